@@ -1,6 +1,8 @@
 package com.music.streaming.config;
 
-import com.music.streaming.service.MusicLibraryService;
+import com.music.streaming.service.LibraryScanJob;
+import com.music.streaming.service.LibraryScanJobService;
+import com.music.streaming.service.LibraryWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +10,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-
 @Component
 public class MusicLibraryStartupRunner implements CommandLineRunner {
 
@@ -18,21 +18,30 @@ public class MusicLibraryStartupRunner implements CommandLineRunner {
     @Value("${music.library.scan-on-startup:false}")
     private boolean scanOnStartup;
 
+    @Value("${music.library.watch.enabled:true}")
+    private boolean watchEnabled;
+
+    @Autowired
+    private LibraryScanJobService scanJobService;
+
     @Autowired
-    private MusicLibraryService musicLibraryService;
+    private LibraryWatcher libraryWatcher;
 
     @Override
     public void run(String... args) {
         if (scanOnStartup) {
-            logger.info("Starting automatic library scan on startup...");
-            try {
-                Map<String, Object> result = musicLibraryService.scanLibrary();
-                logger.info("Library scan completed: {}", result);
-            } catch (Exception e) {
-                logger.error("Error during startup library scan", e);
-            }
+            // Runs in the background like any other scan job: startup does not wait for it, and its
+            // progress can be followed and the scan cancelled through the scan job endpoints
+            LibraryScanJob job = scanJobService.submit(false);
+            logger.info("Library scan on startup submitted as job {}", job.getId());
         } else {
             logger.info("Automatic library scan on startup is disabled");
         }
+
+        if (watchEnabled) {
+            libraryWatcher.start();
+        } else {
+            logger.info("Library watcher is disabled");
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.music.streaming.config;
 
+import com.music.streaming.controller.KeysetPagination;
 import com.music.streaming.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -65,10 +66,15 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/stream/**").permitAll()
+                .requestMatchers("/api/covers/**").permitAll()
                 .requestMatchers("/api/songs/search").permitAll()
+                .requestMatchers("/api/search/**").permitAll()
                 .requestMatchers("/api/songs/top").permitAll()
                 .requestMatchers("/api/artists/search").permitAll()
                 .requestMatchers("/api/artists/top").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // info, metrics and the Prometheus scrape of stream, scan and JVM meters; the scraper sends an admin token
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             );
@@ -85,6 +91,8 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(Arrays.asList(allowedOrigins.split(",")));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        // Lets browser clients read the cursor of paginated list endpoints
+        configuration.setExposedHeaders(Arrays.asList(KeysetPagination.NEXT_CURSOR_HEADER));
         configuration.setAllowCredentials(true);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
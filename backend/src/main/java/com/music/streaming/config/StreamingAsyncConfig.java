@@ -0,0 +1,99 @@
+package com.music.streaming.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs stream response bodies on their own executor so long-lived listeners never occupy the
+ * container's request threads or Spring's shared application task executor.
+ *
+ * {@code music.stream.executor.mode=platform} (default) uses a bounded pool of platform threads;
+ * {@code virtual} uses one virtual thread per stream and needs Java 21 or later; on an older runtime
+ * startup fails rather than quietly streaming on platform threads. Either way the number of
+ * concurrent streams is capped by {@link com.music.streaming.service.StreamBulkhead}.
+ *
+ * The executor and the {@code music.stream.executor.timeout-ms} timeout are deliberately set for all
+ * of Spring MVC's async request handling: a {@code StreamingResponseBody} cannot name an executor or
+ * timeout of its own, and the stream bodies are the only async handlers in the application. A future
+ * async endpoint that should not run on stream threads or get the hour-long timeout must return a
+ * {@code WebAsyncTask} with its own executor and timeout.
+ */
+@Configuration
+public class StreamingAsyncConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAsyncConfig.class);
+
+    @Value("${music.stream.executor.mode:platform}")
+    private String mode;
+
+    @Value("${music.stream.executor.max-streams:512}")
+    private int maxStreams;
+
+    @Value("${music.stream.executor.timeout-ms:3600000}")
+    private long timeoutMillis;
+
+    // Not a bean: exposing an Executor bean would replace Spring Boot's shared applicationTaskExecutor
+    private ExecutorService virtualExecutor;
+    private ThreadPoolTaskExecutor platformExecutor;
+
+    // Global on purpose, see the class comment
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(createStreamExecutor());
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
+        if (platformExecutor != null) {
+            platformExecutor.shutdown();
+        }
+    }
+
+    private AsyncTaskExecutor createStreamExecutor() {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            virtualExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualExecutor != null) {
+                logger.info("Streaming on virtual threads (max {} concurrent streams)", maxStreams);
+                return new TaskExecutorAdapter(virtualExecutor);
+            }
+            throw new IllegalStateException("music.stream.executor.mode=virtual needs Java 21 or later, running on Java "
+                    + Runtime.version().feature() + "; use mode=platform");
+        }
+
+        platformExecutor = new ThreadPoolTaskExecutor();
+        platformExecutor.setThreadNamePrefix("stream-");
+        platformExecutor.setCorePoolSize(maxStreams);
+        platformExecutor.setMaxPoolSize(maxStreams);
+        // The bulkhead keeps submissions at or below maxStreams; the queue only absorbs hand-over races
+        platformExecutor.setQueueCapacity(maxStreams);
+        platformExecutor.setAllowCoreThreadTimeOut(true);
+        platformExecutor.setKeepAliveSeconds(30);
+        platformExecutor.initialize();
+        logger.info("Streaming on platform threads (max {} concurrent streams)", maxStreams);
+        return platformExecutor;
+    }
+
+    // Looked up reflectively so the application still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
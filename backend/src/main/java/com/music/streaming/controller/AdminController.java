@@ -4,9 +4,22 @@ import com.music.streaming.dto.MessageResponse;
 import com.music.streaming.dto.SongDTO;
 import com.music.streaming.model.User;
 import com.music.streaming.repository.UserRepository;
+import com.music.streaming.service.CoverArtService;
+import com.music.streaming.service.LibraryScanJob;
+import com.music.streaming.service.LibraryScanJobService;
+import com.music.streaming.service.LibraryScanThrottle;
+import com.music.streaming.service.LibraryWatcher;
 import com.music.streaming.service.MusicLibraryService;
+import com.music.streaming.service.ScanLeaseService;
+import com.music.streaming.service.SearchIndex;
 import com.music.streaming.service.SongService;
+import com.music.streaming.service.StreamBandwidthScheduler;
+import com.music.streaming.service.StreamBulkhead;
+import com.music.streaming.service.StreamMetrics;
+import com.music.streaming.service.StreamReadAheadService;
+import com.music.streaming.service.StreamSegmentCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -26,12 +39,50 @@ public class AdminController {
     @Autowired
     private MusicLibraryService musicLibraryService;
 
+    @Autowired
+    private LibraryScanJobService libraryScanJobService;
+
+    @Autowired
+    private LibraryScanThrottle libraryScanThrottle;
+
+    @Autowired
+    private ScanLeaseService scanLeaseService;
+
+    @Autowired
+    private CoverArtService coverArtService;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private LibraryWatcher libraryWatcher;
+
+    @Autowired
+    private StreamSegmentCache streamSegmentCache;
+
+    @Autowired
+    private StreamBandwidthScheduler streamBandwidthScheduler;
+
+    @Autowired
+    private StreamReadAheadService streamReadAheadService;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    @Autowired
+    private StreamBulkhead streamBulkhead;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private KeysetPagination pagination;
+
     @GetMapping("/songs")
-    public ResponseEntity<List<SongDTO>> getAllSongs() {
-        return ResponseEntity.ok(songService.getAllSongs());
+    public ResponseEntity<List<SongDTO>> getAllSongs(@RequestParam(required = false) Long after,
+                                                     @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        return pagination.page(songService.getAllSongs(after, pageSize), pageSize, SongDTO::getId);
     }
 
     @PostMapping("/songs")
@@ -55,8 +106,27 @@ public class AdminController {
 
     @PostMapping("/library/scan")
     public ResponseEntity<Map<String, Object>> scanLibrary() {
-        Map<String, Object> result = musicLibraryService.scanLibrary();
-        return ResponseEntity.ok(result);
+        LibraryScanJob job = libraryScanJobService.submit();
+        return ResponseEntity.accepted().body(job.toMap());
+    }
+
+    @GetMapping("/library/scan/jobs")
+    public ResponseEntity<List<Map<String, Object>>> getScanJobs() {
+        return ResponseEntity.ok(libraryScanJobService.getJobs().stream().map(LibraryScanJob::toMap).toList());
+    }
+
+    @GetMapping("/library/scan/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getScanJob(@PathVariable String jobId) {
+        return libraryScanJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toMap()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/library/scan/jobs/{jobId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelScanJob(@PathVariable String jobId) {
+        return libraryScanJobService.cancel(jobId)
+                .map(job -> ResponseEntity.ok(job.toMap()))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/library/stats")
@@ -65,9 +135,70 @@ public class AdminController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/library/scan/throttle")
+    public ResponseEntity<Map<String, Object>> getLibraryScanThrottleStats() {
+        return ResponseEntity.ok(libraryScanThrottle.getStats());
+    }
+
+    @GetMapping("/library/scan/leases")
+    public ResponseEntity<Map<String, Object>> getLibraryScanLeases() {
+        return ResponseEntity.ok(scanLeaseService.getStats());
+    }
+
+    @GetMapping("/library/artwork")
+    public ResponseEntity<Map<String, Object>> getArtworkStats() {
+        return ResponseEntity.ok(coverArtService.getStats());
+    }
+
+    @GetMapping("/search/index")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(searchIndex.getStats());
+    }
+
+    @PostMapping("/search/index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex() {
+        searchIndex.rebuild();
+        return ResponseEntity.ok(searchIndex.getStats());
+    }
+
+    @GetMapping("/library/watch")
+    public ResponseEntity<Map<String, Object>> getLibraryWatchStats() {
+        return ResponseEntity.ok(libraryWatcher.getStats());
+    }
+
+    @GetMapping("/stream/cache")
+    public ResponseEntity<Map<String, Object>> getStreamCacheStats() {
+        return ResponseEntity.ok(streamSegmentCache.getStats());
+    }
+
+    @GetMapping("/stream/bandwidth")
+    public ResponseEntity<Map<String, Object>> getStreamBandwidthStats() {
+        return ResponseEntity.ok(streamBandwidthScheduler.getStats());
+    }
+
+    @GetMapping("/stream/readahead")
+    public ResponseEntity<Map<String, Object>> getStreamReadAheadStats() {
+        return ResponseEntity.ok(streamReadAheadService.getStats());
+    }
+
+    @GetMapping("/stream/bulkhead")
+    public ResponseEntity<Map<String, Object>> getStreamBulkheadStats() {
+        return ResponseEntity.ok(streamBulkhead.getStats());
+    }
+
+    @GetMapping("/stream/top-songs")
+    public ResponseEntity<List<Map<String, Object>>> getTopStreamedSongs(
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(streamMetrics.getTopSongsByBytes(limit));
+    }
+
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userRepository.findAll());
+    public ResponseEntity<List<User>> getAllUsers(@RequestParam(required = false) Long after,
+                                                  @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L,
+                PageRequest.of(0, pageSize));
+        return pagination.page(users, pageSize, User::getId);
     }
 
     @PostMapping("/users/{username}/promote")
@@ -17,9 +17,14 @@ public class ArtistController {
     @Autowired
     private ArtistService artistService;
 
+    @Autowired
+    private KeysetPagination pagination;
+
     @GetMapping
-    public ResponseEntity<List<Artist>> getAllArtists() {
-        return ResponseEntity.ok(artistService.getAllArtists());
+    public ResponseEntity<List<Artist>> getAllArtists(@RequestParam(required = false) Long after,
+                                                      @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        return pagination.page(artistService.getAllArtists(after, pageSize), pageSize, Artist::getId);
     }
 
     @GetMapping("/{id}")
@@ -28,8 +33,10 @@ public class ArtistController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Artist>> searchArtists(@RequestParam String keyword) {
-        return ResponseEntity.ok(artistService.searchArtists(keyword));
+    public ResponseEntity<List<Artist>> searchArtists(@RequestParam String keyword,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(defaultValue = "false") boolean fuzzy) {
+        return ResponseEntity.ok(artistService.searchArtists(keyword, limit, fuzzy));
     }
 
     @GetMapping("/top")
@@ -0,0 +1,49 @@
+package com.music.streaming.controller;
+
+import com.music.streaming.service.CoverArtService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Serves cover thumbnails from the artwork cache. URLs are content-addressed, so a response never
+ * changes and may be cached for a year without revalidation.
+ */
+@RestController
+@RequestMapping("/api/covers")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class CoverController {
+
+    @Autowired
+    private CoverArtService coverArtService;
+
+    @GetMapping("/{hash}/{size}")
+    public ResponseEntity<Resource> getCover(@PathVariable String hash, @PathVariable int size,
+                                             @RequestHeader HttpHeaders requestHeaders) {
+        Path path = coverArtService.resolve(hash, size);
+        if (path == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + hash + "-" + size + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+        for (String candidate : requestHeaders.getIfNoneMatch()) {
+            if (candidate.equals(etag) || candidate.equals("W/" + etag) || candidate.equals("*")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(new FileSystemResource(path));
+    }
+}
@@ -0,0 +1,43 @@
+package com.music.streaming.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for list endpoints: {@code ?after=<id>&limit=}. Pages are in id order and start
+ * after the given id, so every page is one index range scan however far the client has paged, and
+ * inserts or deletes never shift rows between pages. The body stays a plain array; a full page
+ * carries the id to continue after in the {@code X-Next-Cursor} header. A client may get one empty
+ * last page when the rows run out exactly at a page boundary.
+ */
+@Component
+public class KeysetPagination {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    @Value("${music.pagination.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${music.pagination.max-limit:500}")
+    private int maxLimit;
+
+    /** The page size for a requested limit, which may be null. */
+    public int limit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    public <T> ResponseEntity<List<T>> page(List<T> items, int limit, Function<T, Long> idOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!items.isEmpty() && items.size() >= limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idOf.apply(items.get(items.size() - 1))));
+        }
+        return response.body(items);
+    }
+}
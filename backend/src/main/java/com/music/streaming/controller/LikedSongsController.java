@@ -12,7 +12,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/liked-songs")
@@ -69,11 +68,7 @@ public class LikedSongsController {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        List<SongDTO> likedSongs = user.getLikedSongs().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(likedSongs);
+        return ResponseEntity.ok(songRepository.findLikedDTOs(user.getId()));
     }
 
     @GetMapping("/{songId}/is-liked")
@@ -88,19 +83,4 @@ public class LikedSongsController {
         boolean isLiked = user.getLikedSongs().contains(song);
         return ResponseEntity.ok(isLiked);
     }
-
-    private SongDTO convertToDTO(Song song) {
-        SongDTO dto = new SongDTO();
-        dto.setId(song.getId());
-        dto.setTitle(song.getTitle());
-        dto.setArtistId(song.getArtist().getId());
-        dto.setArtistName(song.getArtist().getName());
-        dto.setAlbum(song.getAlbum());
-        dto.setDuration(song.getDuration());
-        dto.setGenre(song.getGenre());
-        dto.setFileUrl(song.getFileUrl());
-        dto.setCoverImageUrl(song.getCoverImageUrl());
-        dto.setPlayCount(song.getPlayCount());
-        return dto;
-    }
 }
@@ -0,0 +1,25 @@
+package com.music.streaming.controller;
+
+import com.music.streaming.dto.SuggestionDTO;
+import com.music.streaming.service.SearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class SearchController {
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    // Served from memory on every keystroke; never queries the database
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String prefix,
+                                                       @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(searchIndex.suggest(prefix, searchIndex.suggestLimit(limit)));
+    }
+}
@@ -17,9 +17,14 @@ public class SongController {
     @Autowired
     private SongService songService;
 
+    @Autowired
+    private KeysetPagination pagination;
+
     @GetMapping
-    public ResponseEntity<List<SongDTO>> getAllSongs() {
-        return ResponseEntity.ok(songService.getAllSongs());
+    public ResponseEntity<List<SongDTO>> getAllSongs(@RequestParam(required = false) Long after,
+                                                     @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        return pagination.page(songService.getAllSongs(after, pageSize), pageSize, SongDTO::getId);
     }
 
     @GetMapping("/{id}")
@@ -28,8 +33,10 @@ public class SongController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<SongDTO>> searchSongs(@RequestParam String keyword) {
-        return ResponseEntity.ok(songService.searchSongs(keyword));
+    public ResponseEntity<List<SongDTO>> searchSongs(@RequestParam String keyword,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(defaultValue = "false") boolean fuzzy) {
+        return ResponseEntity.ok(songService.searchSongs(keyword, limit, fuzzy));
     }
 
     @GetMapping("/top")
@@ -38,13 +45,19 @@ public class SongController {
     }
 
     @GetMapping("/artist/{artistId}")
-    public ResponseEntity<List<SongDTO>> getSongsByArtist(@PathVariable Long artistId) {
-        return ResponseEntity.ok(songService.getSongsByArtist(artistId));
+    public ResponseEntity<List<SongDTO>> getSongsByArtist(@PathVariable Long artistId,
+                                                          @RequestParam(required = false) Long after,
+                                                          @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        return pagination.page(songService.getSongsByArtist(artistId, after, pageSize), pageSize, SongDTO::getId);
     }
 
     @GetMapping("/genre/{genre}")
-    public ResponseEntity<List<SongDTO>> getSongsByGenre(@PathVariable String genre) {
-        return ResponseEntity.ok(songService.getSongsByGenre(genre));
+    public ResponseEntity<List<SongDTO>> getSongsByGenre(@PathVariable String genre,
+                                                         @RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer limit) {
+        int pageSize = pagination.limit(limit);
+        return pagination.page(songService.getSongsByGenre(genre, after, pageSize), pageSize, SongDTO::getId);
     }
 
     @PostMapping
@@ -1,24 +1,30 @@
 package com.music.streaming.controller;
 
-import com.music.streaming.model.Song;
-import com.music.streaming.repository.SongRepository;
+import com.music.streaming.service.ByteRanges;
+import com.music.streaming.service.ResolvedMedia;
+import com.music.streaming.service.SongSeekService;
+import com.music.streaming.service.StreamBulkhead;
+import com.music.streaming.service.StreamMediaIndex;
+import com.music.streaming.service.StreamMetrics;
+import com.music.streaming.service.StreamReadAheadService;
+import com.music.streaming.service.StreamTransferService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 @RequestMapping("/api/stream")
@@ -29,44 +35,125 @@ public class StreamingController {
     private static final long CHUNK_SIZE = 1024 * 1024; // 1MB chunks
 
     @Autowired
-    private SongRepository songRepository;
+    private StreamMediaIndex streamMediaIndex;
+
+    @Autowired
+    private StreamTransferService streamTransferService;
+
+    @Autowired
+    private SongSeekService songSeekService;
+
+    @Autowired
+    private StreamReadAheadService streamReadAheadService;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    @Autowired
+    private StreamBulkhead streamBulkhead;
+
+    // Parsed on the request thread and read before the handler returns, so one instance per thread
+    // serves every request; response bodies copy out the positions they need
+    private static final ThreadLocal<ByteRanges> RANGES = ThreadLocal.withInitial(ByteRanges::new);
+
+    @Value("${music.stream.cache-max-age:86400}")
+    private long cacheMaxAgeSeconds;
 
     @GetMapping("/{songId}")
-    public ResponseEntity<Resource> streamSong(
+    public ResponseEntity<StreamingResponseBody> streamSong(
             @PathVariable Long songId,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
-        
-        try {
-            Song song = songRepository.findById(songId)
-                    .orElseThrow(() -> new RuntimeException("Song not found"));
-
-            // Extract file path from fileUrl (remove "file://" prefix if present)
-            String filePath = song.getFileUrl();
-            if (filePath.startsWith("file://")) {
-                filePath = filePath.substring(7);
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestParam(value = "t", required = false) Double startSeconds,
+            @RequestParam(value = "playlist", required = false) Long playlistId,
+            @RequestParam(value = "next", required = false) Long nextSongId,
+            @RequestHeader HttpHeaders requestHeaders,
+            HttpServletRequest request) {
+        long requestStart = System.nanoTime();
+        // Bodies run on the stream executor; cap how many can be in flight at once. The permit is taken
+        // first so a rejected request does no work: no read-ahead, no request metrics.
+        StreamBulkhead.Permit permit = streamBulkhead.acquire();
+        ResponseEntity<StreamingResponseBody> response;
+        if (permit == null) {
+            response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        } else {
+            response = serve(songId, rangeHeader, startSeconds, playlistId, nextSongId, requestHeaders, requestStart);
+            if (response.getBody() != null) {
+                response = new ResponseEntity<>(streamBulkhead.guard(response.getBody(), permit, request),
+                        response.getHeaders(), response.getStatusCode());
+            } else {
+                permit.release();
             }
+        }
+        streamMetrics.recordStatus(response.getStatusCode().value());
+        return response;
+    }
 
-            File file = new File(filePath);
-            if (!file.exists() || !file.canRead()) {
-                logger.error("File not found or cannot be read: {}", filePath);
+    /**
+     * Play report from the nginx edge, sent for every stream request it sees including those served
+     * from its cache, so read-ahead follows the listener and edge traffic is counted.
+     */
+    @PostMapping("/{songId}/played")
+    public ResponseEntity<Void> played(
+            @PathVariable Long songId,
+            @RequestParam(value = "playlist", required = false) Long playlistId,
+            @RequestParam(value = "next", required = false) Long nextSongId) {
+        streamMetrics.recordEdgeRequest();
+        streamReadAheadService.onPlay(songId, playlistId, nextSongId);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<StreamingResponseBody> serve(Long songId, String rangeHeader, Double startSeconds,
+                                                        Long playlistId, Long nextSongId, HttpHeaders requestHeaders,
+                                                        long requestStart) {
+        try {
+            ResolvedMedia media = streamMediaIndex.resolve(songId);
+            if (media == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            long fileSize = file.length();
-            String contentType = determineContentType(file);
+            // Warm the start of whatever the client is likely to play after this track
+            streamReadAheadService.onPlay(songId, playlistId, nextSongId);
 
-            // Handle Range requests for partial content
-            if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-                return handleRangeRequest(file, fileSize, contentType, rangeHeader);
+            long fileSize = media.getSize();
+            String contentType = media.getContentType();
+            long lastModified = media.getLastModified();
+            String etag = media.getETag();
+
+            if (isNotModified(requestHeaders, etag, lastModified)) {
+                return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag, lastModified).build();
+            }
+
+            // Handle Range requests for partial content, unless If-Range says the client's copy is stale
+            if (rangeHeader != null && isRangeApplicable(requestHeaders, etag, lastModified)) {
+                ByteRanges ranges = RANGES.get();
+                ByteRanges.Result result = ranges.parse(rangeHeader, fileSize, CHUNK_SIZE);
+                if (result == ByteRanges.Result.UNSATISFIABLE) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                            .build();
+                }
+                if (result == ByteRanges.Result.SATISFIABLE) {
+                    return handleRangeRequest(media, contentType, ranges, etag, lastModified, requestStart, false);
+                }
+                // Malformed or non-byte ranges are ignored and the full file is sent
+            } else if (rangeHeader == null && startSeconds != null) {
+                // Seek by time: start at the frame boundary the seek table maps this time to
+                long offset = songSeekService.offsetFor(media, startSeconds);
+                ByteRanges ranges = RANGES.get();
+                if (offset >= 0 && ranges.openFrom(offset, fileSize, CHUNK_SIZE) == ByteRanges.Result.SATISFIABLE) {
+                    return handleRangeRequest(media, contentType, ranges, etag, lastModified, requestStart, true);
+                }
             }
 
             // Full file response
-            Resource resource = new FileSystemResource(file);
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
+            return withValidators(ResponseEntity.ok(), etag, lastModified)
+                    .contentType(media.getMediaType())
                     .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileSize))
                     .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                    .body(resource);
+                    .body(streamMetrics.instrument(media, StreamMetrics.FULL, requestStart,
+                            out -> streamTransferService.transfer(media, 0, fileSize, out)));
 
         } catch (Exception e) {
             logger.error("Error streaming song: {}", songId, e);
@@ -74,68 +161,108 @@ public class StreamingController {
         }
     }
 
-    private ResponseEntity<Resource> handleRangeRequest(File file, long fileSize, String contentType, String rangeHeader) {
-        try {
-            // Parse range header (e.g., "bytes=0-1023")
-            String[] ranges = rangeHeader.replace("bytes=", "").split("-");
-            long rangeStart = Long.parseLong(ranges[0]);
-            long rangeEnd;
-            
-            if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                rangeEnd = Long.parseLong(ranges[1]);
-            } else {
-                rangeEnd = Math.min(rangeStart + CHUNK_SIZE - 1, fileSize - 1);
-            }
+    private ResponseEntity<StreamingResponseBody> handleRangeRequest(ResolvedMedia media, String contentType,
+                                                                     ByteRanges ranges, String etag, long lastModified,
+                                                                     long requestStart, boolean seek) {
+        long fileSize = media.getSize();
+        if (ranges.size() == 1) {
+            long start = ranges.start(0);
+            long end = ranges.end(0);
+            long contentLength = ranges.length(0);
+            String type = seek ? StreamMetrics.SEEK : StreamMetrics.RANGE;
 
-            // Validate range
-            if (rangeStart >= fileSize || rangeStart < 0 || rangeEnd >= fileSize) {
-                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
-                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
-                        .build();
-            }
-
-            long contentLength = rangeEnd - rangeStart + 1;
-
-            // Create partial file resource
-            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-            randomAccessFile.seek(rangeStart);
-            byte[] buffer = new byte[(int) contentLength];
-            randomAccessFile.read(buffer);
-            randomAccessFile.close();
-
-            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                    .contentType(MediaType.parseMediaType(contentType))
+            return withValidators(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), etag, lastModified)
+                    .contentType(media.getMediaType())
                     .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(contentLength))
-                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + rangeStart + "-" + rangeEnd + "/" + fileSize)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize)
                     .header(HttpHeaders.ACCEPT_RANGES, "bytes")
-                    .body(new org.springframework.core.io.ByteArrayResource(buffer));
+                    .body(streamMetrics.instrument(media, type, requestStart,
+                            out -> streamTransferService.transfer(media, start, contentLength, out)));
+        }
 
-        } catch (Exception e) {
-            logger.error("Error handling range request", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        // Several ranges: multipart/byteranges with one part per coalesced range (RFC 7233, appendix A)
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(System.nanoTime());
+        int parts = ranges.size();
+        byte[][] partHeaders = new byte[parts][];
+        // The body runs on the stream executor after this thread has moved on to parse other requests
+        long[] starts = new long[parts];
+        long[] lengths = new long[parts];
+        long contentLength = 0;
+        for (int i = 0; i < parts; i++) {
+            starts[i] = ranges.start(i);
+            lengths[i] = ranges.length(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + ranges.start(i) + "-" + ranges.end(i) + "/" + fileSize
+                    + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            contentLength += partHeaders[i].length + lengths[i];
         }
+        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += closingBoundary.length;
+
+        return withValidators(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), etag, lastModified)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(contentLength))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(streamMetrics.instrument(media, StreamMetrics.MULTIPART, requestStart, out -> {
+                    try (StreamTransferService.RangeWriter writer = streamTransferService.open(media, out)) {
+                        for (int i = 0; i < parts; i++) {
+                            out.write(partHeaders[i]);
+                            writer.write(starts[i], lengths[i]);
+                        }
+                        out.write(closingBoundary);
+                    }
+                }));
+    }
+
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, String etag, long lastModified) {
+        return builder
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(cacheMaxAgeSeconds)).cachePublic());
     }
 
-    private String determineContentType(File file) {
+    /**
+     * If-None-Match takes precedence over If-Modified-Since (RFC 7232, section 6).
+     * If-None-Match uses weak comparison, so a W/ prefix from an intermediary still matches.
+     */
+    private boolean isNotModified(HttpHeaders requestHeaders, String etag, long lastModified) {
         try {
-            Path path = Paths.get(file.getAbsolutePath());
-            String contentType = Files.probeContentType(path);
-            if (contentType != null) {
-                return contentType;
+            List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                for (String candidate : ifNoneMatch) {
+                    String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+                    if ("*".equals(tag) || tag.equals(etag)) {
+                        return true;
+                    }
+                }
+                return false;
             }
-        } catch (IOException e) {
-            logger.warn("Could not determine content type for file: {}", file.getName());
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            // Malformed validators are ignored and the request is served normally
+            return false;
         }
+    }
 
-        // Fallback based on file extension
-        String fileName = file.getName().toLowerCase();
-        if (fileName.endsWith(".mp3")) return "audio/mpeg";
-        if (fileName.endsWith(".wav")) return "audio/wav";
-        if (fileName.endsWith(".flac")) return "audio/flac";
-        if (fileName.endsWith(".m4a") || fileName.endsWith(".aac")) return "audio/aac";
-        if (fileName.endsWith(".ogg")) return "audio/ogg";
-        if (fileName.endsWith(".wma")) return "audio/x-ms-wma";
-        
-        return "application/octet-stream";
+    /**
+     * If-Range requires a strong match on the entity tag or an exact match on the modification date;
+     * otherwise the range is ignored and the whole file is sent (RFC 7233, section 3.2).
+     */
+    private boolean isRangeApplicable(HttpHeaders requestHeaders, String etag, long lastModified) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return requestHeaders.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 }
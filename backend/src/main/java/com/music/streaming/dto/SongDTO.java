@@ -1,9 +1,24 @@
 package com.music.streaming.dto;
 
+import com.music.streaming.model.Song;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+/**
+ * Read model of a song. Read endpoints build it straight from the projection queries in
+ * {@code SongRepository} (constructor expression over {@link #PROJECTION}), so no entity is hydrated;
+ * {@link #of(Song)} covers the few paths that already hold an entity.
+ */
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class SongDTO {
+
+    // Constructor arguments in field order, with s the song and a its artist
+    public static final String PROJECTION = "new com.music.streaming.dto.SongDTO(s.id, s.title, a.name, a.id, "
+            + "s.album, s.duration, s.genre, s.fileUrl, s.coverImageUrl, s.playCount, s.available)";
+
     private Long id;
     private String title;
     private String artistName;
@@ -14,4 +29,11 @@ public class SongDTO {
     private String fileUrl;
     private String coverImageUrl;
     private Integer playCount;
+    private Boolean available;
+
+    public static SongDTO of(Song song) {
+        return new SongDTO(song.getId(), song.getTitle(), song.getArtist().getName(), song.getArtist().getId(),
+                song.getAlbum(), song.getDuration(), song.getGenre(), song.getFileUrl(), song.getCoverImageUrl(),
+                song.getPlayCount(), song.getAvailable());
+    }
 }
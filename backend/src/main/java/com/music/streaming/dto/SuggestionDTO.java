@@ -0,0 +1,16 @@
+package com.music.streaming.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SuggestionDTO {
+    // "song", "artist" or "album"
+    private String type;
+    private String text;
+    // The artist of a song or album
+    private String artistName;
+    // Song or artist id; null for albums
+    private Long id;
+}
@@ -0,0 +1,43 @@
+package com.music.streaming.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One audio file the library scanner has seen. A rescan only reads files whose size or mtime
+ * differ from their row here.
+ */
+@Entity
+@Table(name = "library_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LibraryFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 760 characters keeps the unique index within MySQL's 3072-byte key limit under utf8mb4
+    @Column(nullable = false, unique = true, length = 760)
+    private String path;
+
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column(nullable = false)
+    private Long fileModified;
+
+    // SHA-256 of the file contents, only when music.library.scan.content-hash is enabled
+    @Column(length = 64)
+    private String contentHash;
+
+    // Null when the file was skipped as a duplicate of another song
+    private Long songId;
+
+    private LocalDateTime scannedAt;
+}
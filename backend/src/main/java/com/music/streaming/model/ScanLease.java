@@ -0,0 +1,32 @@
+package com.music.streaming.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A named lease that one backend node holds until it expires, so replicas sharing the database do
+ * not scan the same part of the library at once. A row without an owner is free.
+ */
+@Entity
+@Table(name = "scan_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanLease {
+
+    // Leases are named after library shards (top-level directories), hence the generous length
+    @Id
+    @Column(length = 512)
+    private String name;
+
+    @Column(length = 128)
+    private String owner;
+
+    private LocalDateTime acquiredAt;
+
+    private LocalDateTime expiresAt;
+}
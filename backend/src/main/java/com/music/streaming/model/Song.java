@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -13,7 +14,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "songs")
+@Table(name = "songs", indexes = {
+        @Index(name = "idx_songs_audio_fingerprint", columnList = "audio_fingerprint"),
+        // Keyset pages of a genre or an artist: one range scan in id order
+        @Index(name = "idx_songs_genre_id", columnList = "genre, id"),
+        @Index(name = "idx_songs_artist_id", columnList = "artist_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,6 +53,15 @@ public class Song {
 
     private Integer playCount = 0;
 
+    // False once the library scanner finds the file gone; the song keeps its history and playlists
+    @ColumnDefault("true")
+    @Column(nullable = false)
+    private Boolean available = true;
+
+    // Hash of the audio payload without tags (see AudioFingerprint); follows the file across moves and renames
+    @Column(name = "audio_fingerprint", length = 64)
+    private String audioFingerprint;
+
     @ManyToMany(mappedBy = "songs")
     private Set<Playlist> playlists = new HashSet<>();
 
@@ -0,0 +1,28 @@
+package com.music.streaming.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "song_seek_index")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongSeekIndex {
+
+    @Id
+    private Long songId;
+
+    // Size and mtime of the file the table was built from; a mismatch means it is stale
+    @Column(nullable = false)
+    private Long fileSize;
+
+    @Column(nullable = false)
+    private Long fileModified;
+
+    @Lob
+    @Column(nullable = false, length = 16777215)
+    private byte[] seekTable;
+}
@@ -1,6 +1,7 @@
 package com.music.streaming.repository;
 
 import com.music.streaming.model.Artist;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -16,4 +17,11 @@ public interface ArtistRepository extends JpaRepository<Artist, Long> {
     List<Artist> searchArtists(String keyword);
     
     List<Artist> findTop10ByOrderByFollowerCountDesc();
+
+    // Keyset page: artists after an id, in id order
+    List<Artist> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    // id, name, follower count: the columns the search index is built from
+    @Query("SELECT a.id, a.name, a.followerCount FROM Artist a")
+    List<Object[]> findSearchRows();
 }
@@ -0,0 +1,18 @@
+package com.music.streaming.repository;
+
+import com.music.streaming.model.LibraryFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LibraryFileRepository extends JpaRepository<LibraryFile, Long> {
+
+    List<LibraryFile> findByPathStartingWith(String prefix);
+
+    Optional<LibraryFile> findByPath(String path);
+
+    List<LibraryFile> findBySongId(Long songId);
+}
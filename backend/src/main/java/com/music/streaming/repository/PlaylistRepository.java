@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,4 +16,11 @@ public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     
     @Query("SELECT p FROM Playlist p WHERE p.isPublic = true")
     List<Playlist> findAllPublic();
+
+    @Query("SELECT s.id FROM Playlist p JOIN p.songs s WHERE p.id = :playlistId")
+    List<Long> findSongIdsByPlaylistId(Long playlistId);
+
+    // playlist id, song id: the songs of several playlists, resolved to SongDTOs in one more query
+    @Query("SELECT p.id, s.id FROM Playlist p JOIN p.songs s WHERE p.id IN :playlistIds")
+    List<Object[]> findSongIdRows(Collection<Long> playlistIds);
 }
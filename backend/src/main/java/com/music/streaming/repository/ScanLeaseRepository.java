@@ -0,0 +1,40 @@
+package com.music.streaming.repository;
+
+import com.music.streaming.model.ScanLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScanLeaseRepository extends JpaRepository<ScanLease, String> {
+
+    // Takes the lease if it is free, expired or already ours; the row count says whether it worked
+    @Modifying
+    @Query("UPDATE ScanLease l SET l.owner = :owner, l.acquiredAt = :now, l.expiresAt = :expiresAt " +
+           "WHERE l.name = :name AND (l.owner IS NULL OR l.owner = :owner OR l.expiresAt < :now)")
+    int claim(String name, String owner, LocalDateTime now, LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE ScanLease l SET l.expiresAt = :expiresAt WHERE l.owner = :owner AND l.name IN :names")
+    int renew(Collection<String> names, String owner, LocalDateTime expiresAt);
+
+    @Query("SELECT l.name FROM ScanLease l WHERE l.owner = :owner AND l.name IN :names")
+    List<String> findOwned(Collection<String> names, String owner);
+
+    @Modifying
+    @Query("UPDATE ScanLease l SET l.owner = NULL, l.expiresAt = NULL WHERE l.name = :name AND l.owner = :owner")
+    int release(String name, String owner);
+
+    // Row lock held until the calling transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM ScanLease l WHERE l.name = :name")
+    Optional<ScanLease> lockByName(String name);
+}
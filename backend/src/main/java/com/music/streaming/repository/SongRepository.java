@@ -1,11 +1,14 @@
 package com.music.streaming.repository;
 
+import com.music.streaming.dto.SongDTO;
 import com.music.streaming.model.Artist;
 import com.music.streaming.model.Song;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +18,57 @@ public interface SongRepository extends JpaRepository<Song, Long> {
     List<Song> findByArtist(Artist artist);
     List<Song> findByGenre(String genre);
     
-    @Query("SELECT s FROM Song s WHERE LOWER(s.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(s.artist.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+    // Read endpoints select SongDTO directly: one joined query for exactly its columns, no entities hydrated
+    String SONG_DTOS = "SELECT " + SongDTO.PROJECTION + " FROM Song s JOIN s.artist a ";
+
+    @Query(SONG_DTOS + "WHERE s.id = :id")
+    Optional<SongDTO> findDTOById(Long id);
+
+    @Query(SONG_DTOS + "WHERE s.id IN :ids")
+    List<SongDTO> findDTOsByIds(Collection<Long> ids);
+
+    @Query(SONG_DTOS + "WHERE LOWER(s.title) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "OR LOWER(a.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
            "OR LOWER(s.album) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Song> searchSongs(String keyword);
-    
+    List<SongDTO> searchDTOs(String keyword, Pageable pageable);
+
+    // Keyset pages: songs after an id, in id order
+    @Query(SONG_DTOS + "WHERE s.id > :after ORDER BY s.id")
+    List<SongDTO> findPage(Long after, Pageable pageable);
+
+    @Query(SONG_DTOS + "WHERE s.genre = :genre AND s.id > :after ORDER BY s.id")
+    List<SongDTO> findPageByGenre(String genre, Long after, Pageable pageable);
+
+    @Query(SONG_DTOS + "WHERE a.id = :artistId AND s.id > :after ORDER BY s.id")
+    List<SongDTO> findPageByArtistId(Long artistId, Long after, Pageable pageable);
+
+    @Query(SONG_DTOS + "ORDER BY s.playCount DESC")
+    List<SongDTO> findTopDTOs(Pageable pageable);
+
+    @Query(SONG_DTOS + "WHERE s.genre IN :genres ORDER BY s.id")
+    List<SongDTO> findDTOsByGenres(Collection<String> genres, Pageable pageable);
+
+    @Query("SELECT " + SongDTO.PROJECTION + " FROM User u JOIN u.likedSongs s JOIN s.artist a WHERE u.id = :userId")
+    List<SongDTO> findLikedDTOs(Long userId);
+
+    @Query("SELECT DISTINCT s.genre FROM Song s WHERE s.id IN :ids")
+    List<String> findGenresByIds(Collection<Long> ids);
+
     List<Song> findTop10ByOrderByPlayCountDesc();
     
     Optional<Song> findByTitleAndArtist_Name(String title, String artistName);
+
+    Optional<Song> findFirstByAudioFingerprint(String audioFingerprint);
+
+    // id, title, artist id, artist name, fingerprint: just what the library scan needs to detect duplicates and moves
+    @Query("SELECT s.id, s.title, a.id, a.name, s.audioFingerprint FROM Song s JOIN s.artist a")
+    List<Object[]> findDedupRows();
+
+    // Same columns, for songs written (possibly by another node) since the rows up to afterId were loaded
+    @Query("SELECT s.id, s.title, a.id, a.name, s.audioFingerprint FROM Song s JOIN s.artist a WHERE s.id > :afterId")
+    List<Object[]> findDedupRowsAfter(Long afterId);
+
+    // id, title, album, play count, artist id, artist name: the columns the search index is built from
+    @Query("SELECT s.id, s.title, s.album, s.playCount, a.id, a.name FROM Song s JOIN s.artist a")
+    List<Object[]> findSearchRows();
 }
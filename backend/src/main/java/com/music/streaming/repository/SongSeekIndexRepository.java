@@ -0,0 +1,9 @@
+package com.music.streaming.repository;
+
+import com.music.streaming.model.SongSeekIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SongSeekIndexRepository extends JpaRepository<SongSeekIndex, Long> {
+}
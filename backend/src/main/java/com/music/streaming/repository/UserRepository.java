@@ -1,9 +1,11 @@
 package com.music.streaming.repository;
 
 import com.music.streaming.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    // Keyset page: users after an id, in id order
+    List<User> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
 }
@@ -5,6 +5,7 @@ import com.music.streaming.model.User;
 import com.music.streaming.repository.ArtistRepository;
 import com.music.streaming.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,8 +20,12 @@ public class ArtistService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<Artist> getAllArtists() {
-        return artistRepository.findAll();
+    @Autowired
+    private SearchIndex searchIndex;
+
+    /** Up to {@code limit} artists with an id above {@code after} (null for the first page), in id order. */
+    public List<Artist> getAllArtists(Long after, int limit) {
+        return artistRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, PageRequest.of(0, limit));
     }
 
     public Artist getArtistById(Long id) {
@@ -28,8 +33,13 @@ public class ArtistService {
                 .orElseThrow(() -> new RuntimeException("Artist not found"));
     }
 
-    public List<Artist> searchArtists(String keyword) {
-        return artistRepository.searchArtists(keyword);
+    public List<Artist> searchArtists(String keyword, Integer limit, boolean fuzzy) {
+        int max = searchIndex.resultLimit(limit);
+        if (!searchIndex.isReady()) {
+            return artistRepository.searchArtists(keyword).stream().limit(max).toList();
+        }
+        List<Long> ids = searchIndex.searchArtists(keyword, max, fuzzy);
+        return SearchIndex.inOrder(ids, artistRepository.findAllById(ids), Artist::getId);
     }
 
     public List<Artist> getTopArtists() {
@@ -38,7 +48,9 @@ public class ArtistService {
 
     @Transactional
     public Artist createArtist(Artist artist) {
-        return artistRepository.save(artist);
+        Artist saved = artistRepository.save(artist);
+        searchIndex.indexArtist(saved);
+        return saved;
     }
 
     @Transactional
@@ -54,6 +66,7 @@ public class ArtistService {
         
         userRepository.save(user);
         artistRepository.save(artist);
+        searchIndex.indexArtist(artist);
     }
 
     @Transactional
@@ -69,6 +82,7 @@ public class ArtistService {
         
         userRepository.save(user);
         artistRepository.save(artist);
+        searchIndex.indexArtist(artist);
     }
 
     public List<Artist> getFollowedArtists(String username) {
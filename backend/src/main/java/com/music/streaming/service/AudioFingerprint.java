@@ -0,0 +1,59 @@
+package com.music.streaming.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Identifies a file's audio independently of its path and tags, so the scanner can tell that a
+ * "new" file is an existing song that was moved or renamed.
+ *
+ * The fingerprint is a SHA-256 over the payload length and {@link #WINDOWS} evenly spaced windows of
+ * the audio payload, read through memory-mapped views; payloads smaller than the windows combined are
+ * hashed in full. Tag blocks are outside the payload, so retagging keeps the fingerprint.
+ */
+public final class AudioFingerprint {
+
+    static final int WINDOWS = 16;
+    static final int WINDOW_BYTES = 64 * 1024;
+
+    private AudioFingerprint() {
+    }
+
+    /**
+     * Fingerprint of {@code length} payload bytes starting at {@code offset}, or of the whole file when
+     * the payload is unknown (length 0).
+     */
+    public static String compute(Path path, long offset, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (length <= 0 || offset < 0 || offset + length > size) {
+                offset = 0;
+                length = size;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(Long.BYTES).putLong(0, length));
+            if (length <= (long) WINDOWS * WINDOW_BYTES) {
+                if (length > 0) {
+                    digest.update(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+                }
+            } else {
+                long stride = (length - WINDOW_BYTES) / (WINDOWS - 1);
+                for (int i = 0; i < WINDOWS; i++) {
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                            offset + i * stride, WINDOW_BYTES);
+                    digest.update(window);
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
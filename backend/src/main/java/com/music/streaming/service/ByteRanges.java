@@ -0,0 +1,246 @@
+package com.music.streaming.service;
+
+/**
+ * RFC 7233 byte range set parsed from a {@code Range} header.
+ *
+ * Parsing scans the header in place: no substrings, split arrays or boxed numbers are created, and
+ * resolved ranges are written into the fixed arrays of this instance. Each parse overwrites the
+ * previous result, so a caller can keep one instance per thread and reuse it across requests.
+ * Overlapping and adjacent ranges are coalesced and sorted so a multipart response never sends the
+ * same bytes twice.
+ */
+public final class ByteRanges {
+
+    /** Upper bound on distinct ranges, guarding against requests that fan out into thousands of parts. */
+    public static final int MAX_RANGES = 16;
+
+    public enum Result {
+        /** Header is absent, not a bytes range or syntactically invalid; it must be ignored. */
+        IGNORED,
+        /** At least one range overlaps the representation. */
+        SATISFIABLE,
+        /** Syntactically valid but no range overlaps the representation (416). */
+        UNSATISFIABLE
+    }
+
+    private final long[] starts = new long[MAX_RANGES];
+    private final long[] ends = new long[MAX_RANGES];
+    private int count;
+
+    public int size() {
+        return count;
+    }
+
+    public long start(int index) {
+        return starts[index];
+    }
+
+    /** Inclusive last byte position. */
+    public long end(int index) {
+        return ends[index];
+    }
+
+    public long length(int index) {
+        return ends[index] - starts[index] + 1;
+    }
+
+    /**
+     * Parses {@code header} against a representation of {@code length} bytes.
+     *
+     * @param maxOpenLength cap applied to an open-ended range ({@code bytes=N-}) when it is the only
+     *                      range, so players probing with {@code bytes=0-} receive a bounded chunk
+     */
+    public Result parse(CharSequence header, long length, long maxOpenLength) {
+        count = 0;
+        if (header == null) {
+            return Result.IGNORED;
+        }
+        int n = header.length();
+        int i = skipWhitespace(header, 0, n);
+        if (!regionMatchesIgnoreCase(header, i, "bytes")) {
+            return Result.IGNORED;
+        }
+        i = skipWhitespace(header, i + 5, n);
+        if (i >= n || header.charAt(i) != '=') {
+            return Result.IGNORED;
+        }
+        i++;
+
+        boolean sawSpec = false;
+        boolean openEnded = false;
+        while (i < n) {
+            i = skipWhitespace(header, i, n);
+            if (i < n && header.charAt(i) == ',') {
+                // Empty list elements are permitted by the #rule
+                i++;
+                continue;
+            }
+            if (i >= n) {
+                break;
+            }
+
+            long first = -1;
+            long last = -1;
+            if (header.charAt(i) != '-') {
+                int digitsEnd = scanDigits(header, i, n);
+                if (digitsEnd == i) {
+                    return invalid();
+                }
+                first = parseDigits(header, i, digitsEnd);
+                i = digitsEnd;
+            }
+            if (i >= n || header.charAt(i) != '-') {
+                return invalid();
+            }
+            i++;
+            int digitsEnd = scanDigits(header, i, n);
+            if (digitsEnd > i) {
+                last = parseDigits(header, i, digitsEnd);
+                i = digitsEnd;
+            }
+            if (first < 0 && last < 0) {
+                return invalid();
+            }
+            if (first >= 0 && last >= 0 && last < first) {
+                return invalid();
+            }
+
+            i = skipWhitespace(header, i, n);
+            if (i < n && header.charAt(i) != ',') {
+                return invalid();
+            }
+            sawSpec = true;
+
+            long start;
+            long end;
+            if (first < 0) {
+                // Suffix range: the final 'last' bytes
+                if (last == 0 || length == 0) {
+                    continue;
+                }
+                start = Math.max(0, length - last);
+                end = length - 1;
+            } else {
+                if (first >= length) {
+                    continue;
+                }
+                start = first;
+                if (last < 0) {
+                    openEnded = true;
+                    end = length - 1;
+                } else {
+                    end = Math.min(last, length - 1);
+                }
+            }
+            if (!add(start, end)) {
+                return invalid();
+            }
+        }
+
+        if (!sawSpec) {
+            return invalid();
+        }
+        if (count == 0) {
+            return Result.UNSATISFIABLE;
+        }
+        if (count == 1 && openEnded && maxOpenLength > 0 && length(0) > maxOpenLength) {
+            ends[0] = starts[0] + maxOpenLength - 1;
+        }
+        return Result.SATISFIABLE;
+    }
+
+    /**
+     * Sets a single open-ended range starting at {@code start}, as if {@code bytes=start-} had been
+     * requested. Used when the start position comes from a seek time rather than a Range header.
+     */
+    public Result openFrom(long start, long length, long maxOpenLength) {
+        count = 0;
+        if (start < 0 || start >= length) {
+            return Result.UNSATISFIABLE;
+        }
+        starts[0] = start;
+        ends[0] = maxOpenLength > 0 ? Math.min(length - 1, start + maxOpenLength - 1) : length - 1;
+        count = 1;
+        return Result.SATISFIABLE;
+    }
+
+    private Result invalid() {
+        count = 0;
+        return Result.IGNORED;
+    }
+
+    // Inserts keeping ranges sorted, then merges with any overlapping or adjacent neighbours
+    private boolean add(long start, long end) {
+        int pos = count;
+        while (pos > 0 && starts[pos - 1] > start) {
+            pos--;
+        }
+        if (pos > 0 && ends[pos - 1] + 1 >= start) {
+            pos--;
+            ends[pos] = Math.max(ends[pos], end);
+        } else if (pos < count && starts[pos] <= end + 1) {
+            starts[pos] = start;
+            ends[pos] = Math.max(ends[pos], end);
+        } else {
+            if (count == MAX_RANGES) {
+                return false;
+            }
+            System.arraycopy(starts, pos, starts, pos + 1, count - pos);
+            System.arraycopy(ends, pos, ends, pos + 1, count - pos);
+            starts[pos] = start;
+            ends[pos] = end;
+            count++;
+        }
+        int next = pos + 1;
+        while (next < count && starts[next] <= ends[pos] + 1) {
+            ends[pos] = Math.max(ends[pos], ends[next]);
+            next++;
+        }
+        int removed = next - pos - 1;
+        if (removed > 0) {
+            System.arraycopy(starts, next, starts, pos + 1, count - next);
+            System.arraycopy(ends, next, ends, pos + 1, count - next);
+            count -= removed;
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(CharSequence s, int i, int n) {
+        while (i < n && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int scanDigits(CharSequence s, int i, int n) {
+        while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    // Saturates at Long.MAX_VALUE, which is past the end of any representation
+    private static long parseDigits(CharSequence s, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = s.charAt(i) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return Long.MAX_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean regionMatchesIgnoreCase(CharSequence s, int offset, String expected) {
+        if (offset + expected.length() > s.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(s.charAt(offset + i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
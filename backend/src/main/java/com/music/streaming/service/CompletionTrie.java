@@ -0,0 +1,202 @@
+package com.music.streaming.service;
+
+import java.util.*;
+
+/**
+ * Immutable prefix index for autocomplete: the top {@code k} entries by weight for any prefix of any
+ * word start of the indexed texts.
+ *
+ * Keys (each text from each of its first {@link #MAX_WORD_STARTS} word starts, cut to
+ * {@link #MAX_KEY_LENGTH} characters) are kept in one sorted array, so the keys sharing a prefix form
+ * a contiguous range found with two binary searches. That range is exactly a node of the radix trie
+ * over the keys; for nodes with more than {@code k} keys the best entries are precomputed when the
+ * trie is built, smaller ranges are simply scanned. A lookup is therefore two binary searches and one
+ * hash probe or a scan of at most {@code k} keys, whatever the number of entries.
+ */
+final class CompletionTrie<T> {
+
+    static final int MAX_KEY_LENGTH = 40;
+    static final int MAX_WORD_STARTS = 4;
+
+    private final int k;
+    private final List<T> entries;
+    private final long[] weights;
+    private final String[] keys;
+    private final int[] entryOfKey;
+    // (lo << 32 | hi) of a key range -> its best entries, best first; only for ranges over k keys
+    private final Map<Long, int[]> topByRange = new HashMap<>();
+
+    private record Key(String text, int entry) {
+    }
+
+    static final class Builder<T> {
+
+        private final int k;
+        private final List<T> entries = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final List<Key> keys = new ArrayList<>();
+
+        private Builder(int k) {
+            this.k = k;
+        }
+
+        /** Adds an entry completing prefixes of {@code normalizedText} and of its later words. */
+        Builder<T> add(T entry, long weight, String normalizedText) {
+            if (normalizedText.isEmpty()) {
+                return this;
+            }
+            int index = entries.size();
+            entries.add(entry);
+            weights.add(weight);
+            int starts = 0;
+            for (int i = 0; i < normalizedText.length() && starts < MAX_WORD_STARTS; i++) {
+                if (i == 0 || normalizedText.charAt(i - 1) == ' ') {
+                    keys.add(new Key(normalizedText.substring(i, Math.min(normalizedText.length(), i + MAX_KEY_LENGTH)),
+                            index));
+                    starts++;
+                }
+            }
+            return this;
+        }
+
+        CompletionTrie<T> build() {
+            return new CompletionTrie<>(this);
+        }
+    }
+
+    static <T> Builder<T> builder(int k) {
+        return new Builder<>(k);
+    }
+
+    private CompletionTrie(Builder<T> builder) {
+        k = builder.k;
+        entries = List.copyOf(builder.entries);
+        weights = builder.weights.stream().mapToLong(Long::longValue).toArray();
+        List<Key> sorted = new ArrayList<>(builder.keys);
+        sorted.sort(Comparator.comparing(Key::text));
+        keys = new String[sorted.size()];
+        entryOfKey = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            keys[i] = sorted.get(i).text();
+            entryOfKey[i] = sorted.get(i).entry();
+        }
+        if (keys.length > 0) {
+            best(0, keys.length, 0);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int keyCount() {
+        return keys.length;
+    }
+
+    int nodeCount() {
+        return topByRange.size();
+    }
+
+    /** The best entries for a normalized prefix, at most {@code min(limit, k)}. */
+    List<T> complete(String prefix, int limit) {
+        if (prefix.isEmpty() || keys.length == 0) {
+            return List.of();
+        }
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+        int lo = lowerBound(prefix);
+        int hi = lowerBound(prefix + Character.MAX_VALUE);
+        if (lo >= hi) {
+            return List.of();
+        }
+        int[] top = hi - lo > k ? topByRange.get(range(lo, hi)) : null;
+        if (top == null) {
+            top = scan(lo, hi);
+        }
+        List<T> result = new ArrayList<>(Math.min(limit, top.length));
+        for (int i = 0; i < top.length && result.size() < limit; i++) {
+            result.add(entries.get(top[i]));
+        }
+        return result;
+    }
+
+    // Best entries of the keys in [lo, hi), which share their first depth characters
+    private int[] best(int lo, int hi, int depth) {
+        if (hi - lo <= k) {
+            return scan(lo, hi);
+        }
+        // Follow the chain while every key continues with the same character
+        while (keys[lo].length() > depth && keys[hi - 1].length() > depth
+                && keys[lo].charAt(depth) == keys[hi - 1].charAt(depth)) {
+            depth++;
+        }
+        List<int[]> parts = new ArrayList<>();
+        int i = lo;
+        // Keys ending here sort first
+        while (i < hi && keys[i].length() == depth) {
+            i++;
+        }
+        if (i > lo) {
+            parts.add(scan(lo, i));
+        }
+        while (i < hi) {
+            char c = keys[i].charAt(depth);
+            int end = i + 1;
+            while (end < hi && keys[end].charAt(depth) == c) {
+                end++;
+            }
+            parts.add(best(i, end, depth + 1));
+            i = end;
+        }
+        int[] top = merge(parts);
+        topByRange.put(range(lo, hi), top);
+        return top;
+    }
+
+    private int[] scan(int lo, int hi) {
+        Set<Integer> distinct = new HashSet<>();
+        for (int i = lo; i < hi; i++) {
+            distinct.add(entryOfKey[i]);
+        }
+        return top(distinct);
+    }
+
+    private int[] merge(List<int[]> parts) {
+        Set<Integer> distinct = new HashSet<>();
+        for (int[] part : parts) {
+            for (int entry : part) {
+                distinct.add(entry);
+            }
+        }
+        return top(distinct);
+    }
+
+    // Heaviest first, earlier entries first among equal weights
+    private int[] top(Set<Integer> candidates) {
+        return candidates.stream()
+                .sorted(Comparator.comparingLong((Integer entry) -> weights[entry]).reversed()
+                        .thenComparingInt(entry -> entry))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long range(int lo, int hi) {
+        return ((long) lo << 32) | hi;
+    }
+}
@@ -0,0 +1,301 @@
+package com.music.streaming.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed cache of embedded cover art.
+ *
+ * The scanner hands over a picture's bytes; they are hashed (SHA-256) and stored once as JPEG
+ * thumbnails in {@code music.artwork.sizes}, under {@code <cache-dir>/<hash[0..2]>/<hash>/<size>.jpg}.
+ * Every track of an album embedding the same picture gets the same hash, so an album costs one decode
+ * and resize. Only the header is trusted before decoding: pictures declaring more than
+ * {@code music.artwork.max-pixels} are skipped, and large ones are decoded subsampled to a little
+ * over the largest thumbnail, so a small file claiming huge dimensions cannot exhaust the heap of a
+ * scan reader. Since the path is derived from the content, cached files never change and are served
+ * with immutable cache headers by {@code /api/covers/{hash}/{size}}.
+ */
+@Service
+public class CoverArtService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoverArtService.class);
+
+    public static final String DEFAULT_COVER = "/images/default-cover.jpg";
+    public static final String URL_PREFIX = "/api/covers/";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    // Remembered (directory, album, picture length) -> hash entries
+    private static final int RECENT_ALBUMS = 1024;
+
+    @Value("${music.artwork.enabled:true}")
+    private boolean enabled;
+
+    @Value("${music.artwork.cache-dir:./data/covers}")
+    private String cacheDir;
+
+    @Value("${music.artwork.sizes:96,300,600}")
+    private int[] sizes;
+
+    // The size songs link to; clients pick another by changing the last path segment
+    @Value("${music.artwork.default-size:300}")
+    private int defaultSize;
+
+    // Larger pictures are ignored rather than decoded
+    @Value("${music.artwork.max-bytes:16777216}")
+    private int maxBytes;
+
+    // Checked against the dimensions in the header, before any pixel is decoded
+    @Value("${music.artwork.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${music.artwork.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    private Path root;
+
+    /**
+     * Tracks of one album nearly always embed the same picture. Remembering the hash per directory,
+     * album and picture length lets the rest of the album skip reading and hashing it.
+     */
+    private final Map<String, String> recentAlbums = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > RECENT_ALBUMS;
+                }
+            });
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(cacheDir).toAbsolutePath().normalize();
+        if (Arrays.stream(sizes).noneMatch(size -> size == defaultSize)) {
+            throw new IllegalStateException("music.artwork.default-size " + defaultSize
+                    + " is not one of music.artwork.sizes " + Arrays.toString(sizes));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Caches the picture located by the fast tag reader and returns its hash, or null if the file has
+     * none or it could not be decoded.
+     */
+    public String extract(Path file, FastTagReader.Tags tags) {
+        if (!enabled || tags.artworkLength() <= 0 || tags.artworkLength() > maxBytes) {
+            return null;
+        }
+        String albumKey = file.getParent() + "\u0000" + tags.album() + "\u0000" + tags.artworkLength();
+        String known = tags.album() != null ? recentAlbums.get(albumKey) : null;
+        if (known != null && isCached(known)) {
+            reused.incrementAndGet();
+            return known;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer image = ByteBuffer.allocate(tags.artworkLength());
+            while (image.hasRemaining()) {
+                if (channel.read(image, tags.artworkOffset() + image.position()) < 0) {
+                    return null;
+                }
+            }
+            String hash = store(image.array());
+            if (hash != null && tags.album() != null) {
+                recentAlbums.put(albumKey, hash);
+            }
+            return hash;
+        } catch (IOException e) {
+            logger.warn("Could not read artwork of {}", file, e);
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    /** Caches a picture and returns its hash, or null if it could not be decoded. */
+    public String store(byte[] image) {
+        if (!enabled || image == null || image.length == 0 || image.length > maxBytes) {
+            return null;
+        }
+        String hash = sha256(image);
+        if (isCached(hash)) {
+            reused.incrementAndGet();
+            return hash;
+        }
+        try {
+            BufferedImage source = decode(image, hash);
+            if (source == null) {
+                failed.incrementAndGet();
+                return null;
+            }
+            Path dir = directory(hash);
+            Files.createDirectories(dir);
+            for (int size : sizes) {
+                writeJpeg(resize(source, size), dir.resolve(size + ".jpg"));
+            }
+            stored.incrementAndGet();
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not cache artwork {}", hash, e);
+            failed.incrementAndGet();
+            return null;
+        }
+    }
+
+    /** The cached thumbnail, or null for an unknown hash or size. */
+    public Path resolve(String hash, int size) {
+        if (!HASH.matcher(hash).matches() || Arrays.stream(sizes).noneMatch(s -> s == size)) {
+            return null;
+        }
+        Path path = directory(hash).resolve(size + ".jpg");
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    public String coverUrl(String hash) {
+        return URL_PREFIX + hash + "/" + defaultSize;
+    }
+
+    /** True for the placeholder and for URLs this cache generated, i.e. covers the scanner may replace. */
+    public static boolean isGeneratedCover(String coverImageUrl) {
+        return coverImageUrl == null || coverImageUrl.equals(DEFAULT_COVER) || coverImageUrl.startsWith(URL_PREFIX);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("cacheDir", root.toString());
+        stats.put("sizes", sizes);
+        stats.put("stored", stored.get());
+        stats.put("reused", reused.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    // Null if no ImageIO reader knows the format or the picture is over the pixel budget
+    private BufferedImage decode(byte[] image, String hash) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    logger.warn("Skipping artwork {}: {}x{} is over {} pixels", hash, width, height, maxPixels);
+                    return null;
+                }
+                // Keeps at least twice the largest thumbnail's edge, so resize() still halves down to it
+                int edge = 2 * Arrays.stream(sizes).max().orElse(1);
+                int step = Math.max(1, Math.max(width, height) / edge);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private boolean isCached(String hash) {
+        Path dir = directory(hash);
+        for (int size : sizes) {
+            if (!Files.isRegularFile(dir.resolve(size + ".jpg"))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path directory(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    // Fits the image in a size x size box, halving first so large pictures keep their detail
+    private static BufferedImage resize(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) size / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return draw(current, targetWidth, targetHeight);
+    }
+
+    // JPEG has no alpha channel: transparent areas become white
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Written next to the target and moved into place, so concurrent readers never see a partial file
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,649 @@
+package com.music.streaming.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads title, artist, album, genre and duration of MP3, FLAC, WAV and AIFF files from their headers
+ * with a few positioned reads: tag frames and metadata blocks are visited by their headers and only
+ * the text ones are loaded, so audio data is never read. Embedded artwork (ID3 APIC/PIC frames, FLAC
+ * PICTURE blocks) is located but not loaded; a front cover wins over other pictures. MP3 duration comes
+ * from the Xing/Info or VBRI frame count, or from the bitrate for CBR files without one.
+ *
+ * Anything the reader does not fully understand (compressed or unsynchronised ID3v2.3 tags, unknown
+ * containers, no audio frame) yields null, and the caller falls back to a full tag parser.
+ */
+public final class FastTagReader {
+
+    /**
+     * {@code audioOffset} and {@code audioLength} delimit the audio payload, i.e. the file without its
+     * tag blocks, so retagging a file does not change what {@link AudioFingerprint} hashes.
+     * {@code artworkOffset} and {@code artworkLength} delimit the embedded picture's image data;
+     * the length is 0 when there is none.
+     */
+    public record Tags(String title, String artist, String album, String genre, int durationSeconds,
+                       long audioOffset, long audioLength, long artworkOffset, int artworkLength) {
+
+        /** True if the file carries descriptive tags, not just a playable stream. */
+        public boolean hasMetadata() {
+            return title != null || artist != null || album != null;
+        }
+    }
+
+    // Larger text frames and comment blocks are skipped rather than loaded
+    private static final int MAX_FIELD_BYTES = 64 * 1024;
+    private static final int MAX_COMMENT_BLOCK_BYTES = 1024 * 1024;
+    // Picture headers (MIME type and description) longer than this are not worth locating the image for
+    private static final int MAX_PICTURE_HEADER_BYTES = 4096;
+    private static final int FRONT_COVER = 3;
+    // How far past the ID3v2 tag to look for the first MPEG frame
+    private static final int FRAME_SEARCH_BYTES = 8 * 1024;
+
+    private static final String[] ID3V1_GENRES = {
+        "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+        "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+        "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+        "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+        "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+        "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+        "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta",
+        "Top 40", "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave",
+        "Psychadelic", "Rave", "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka",
+        "Retro", "Musical", "Rock & Roll", "Hard Rock", "Folk", "Folk-Rock", "National Folk", "Swing",
+        "Fast Fusion", "Bebob", "Latin", "Revival", "Celtic", "Bluegrass", "Avantgarde", "Gothic Rock",
+        "Progressive Rock", "Psychedelic Rock", "Symphonic Rock", "Slow Rock", "Big Band", "Chorus",
+        "Easy Listening", "Acoustic", "Humour", "Speech", "Chanson", "Opera", "Chamber Music", "Sonata",
+        "Symphony", "Booty Bass", "Primus", "Porn Groove", "Satire", "Slow Jam", "Club", "Tango", "Samba",
+        "Folklore", "Ballad", "Power Ballad", "Rhythmic Soul", "Freestyle", "Duet", "Punk Rock", "Drum Solo",
+        "A capella", "Euro-House", "Dance Hall"
+    };
+
+    private FastTagReader() {
+    }
+
+    /** Returns the tags of a file, or null if the format is unsupported or the headers could not be parsed. */
+    public static Tags read(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (name.endsWith(".mp3")) {
+                return readMp3(channel);
+            }
+            if (name.endsWith(".flac")) {
+                return readFlac(channel);
+            }
+            if (name.endsWith(".wav")) {
+                return readWav(channel);
+            }
+            if (name.endsWith(".aiff") || name.endsWith(".aif")) {
+                return readAiff(channel);
+            }
+            return null;
+        }
+    }
+
+    static Tags readMp3(FileChannel channel) throws IOException {
+        long size = channel.size();
+        Fields fields = new Fields();
+        long audioStart = 0;
+        ByteBuffer head = read(channel, 0, 10);
+        if (Mp3Frames.hasTag(head, 0, "ID3")) {
+            if (!readId3v2(channel, 0, fields)) {
+                return null;
+            }
+            audioStart = Mp3Frames.id3v2Size(head, 0);
+        }
+        long audioEnd = size;
+        if (size - audioStart >= 128) {
+            ByteBuffer tail = read(channel, size - 128, 128);
+            if (Mp3Frames.hasTag(tail, 0, "TAG")) {
+                audioEnd -= 128;
+                readId3v1(tail, fields);
+            }
+        }
+        if (audioEnd <= audioStart) {
+            return null;
+        }
+
+        ByteBuffer window = read(channel, audioStart, (int) Math.min(FRAME_SEARCH_BYTES, audioEnd - audioStart));
+        int offset = SeekTableBuilder.findMp3Frame(window, 0, window.limit());
+        if (offset < 0) {
+            return null;
+        }
+        int header = window.getInt(offset);
+        long frames = infoFrameCount(window, offset, header);
+        double seconds = frames > 0
+                ? (double) frames * Mp3Frames.samplesPerFrame(header) / Mp3Frames.sampleRate(header)
+                : (audioEnd - audioStart - offset) * 8.0 / (Mp3Frames.bitrateKbps(header) * 1000);
+        return fields.toTags(seconds, audioStart + offset, audioEnd - audioStart - offset);
+    }
+
+    // Number of audio frames recorded in a Xing/Info or VBRI header, or 0 if there is none
+    private static long infoFrameCount(ByteBuffer window, int frameStart, int header) {
+        int xing = frameStart + Mp3Frames.xingTagOffset(header);
+        if ((Mp3Frames.hasTag(window, xing, "Xing") || Mp3Frames.hasTag(window, xing, "Info"))
+                && xing + 12 <= window.limit()
+                && (window.getInt(xing + 4) & 0x1) != 0) {
+            return window.getInt(xing + 8) & 0xFFFFFFFFL;
+        }
+        int vbri = frameStart + Mp3Frames.vbriTagOffset();
+        if (Mp3Frames.hasTag(window, vbri, "VBRI") && vbri + 18 <= window.limit()) {
+            return window.getInt(vbri + 14) & 0xFFFFFFFFL;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the text frames of the ID3v2 tag at {@code tagStart}. Returns false for tags this reader
+     * cannot decode reliably.
+     */
+    private static boolean readId3v2(FileChannel channel, long tagStart, Fields fields) throws IOException {
+        ByteBuffer header = read(channel, tagStart, 10);
+        if (header.limit() < 10 || !Mp3Frames.hasTag(header, 0, "ID3")) {
+            return false;
+        }
+        int major = header.get(3);
+        int flags = header.get(5) & 0xFF;
+        if (major < 2 || major > 4 || (major < 4 && (flags & 0x80) != 0)) {
+            // Unknown version, or whole-tag unsynchronisation before v2.4
+            return false;
+        }
+        long position = tagStart + 10;
+        long end = position + Mp3Frames.syncSafeInt(header, 6);
+        if (major >= 3 && (flags & 0x40) != 0) {
+            ByteBuffer extended = read(channel, position, 4);
+            position += major == 4 ? Mp3Frames.syncSafeInt(extended, 0) : extended.getInt(0) + 4L;
+        }
+
+        int frameHeaderLength = major == 2 ? 6 : 10;
+        while (position + frameHeaderLength <= end && !fields.isComplete()) {
+            ByteBuffer frameHeader = read(channel, position, frameHeaderLength);
+            if (frameHeader.limit() < frameHeaderLength || frameHeader.get(0) == 0) {
+                // Padding
+                break;
+            }
+            String id;
+            int frameSize;
+            int frameFlags = 0;
+            if (major == 2) {
+                id = ascii(frameHeader, 0, 3);
+                frameSize = readUInt24(frameHeader, 3);
+            } else {
+                id = ascii(frameHeader, 0, 4);
+                frameSize = major == 4 ? Mp3Frames.syncSafeInt(frameHeader, 4) : frameHeader.getInt(4);
+                frameFlags = frameHeader.getShort(8) & 0xFFFF;
+            }
+            long body = position + frameHeaderLength;
+            if (frameSize <= 0 || body + frameSize > end) {
+                break;
+            }
+            String field = id3Field(id);
+            if (field != null && frameSize <= MAX_FIELD_BYTES) {
+                fields.set(field, decodeTextFrame(read(channel, body, frameSize), frameFlags, major));
+            } else if (id.equals("APIC") || id.equals("PIC")) {
+                locateId3Picture(channel, body, frameSize, frameFlags, major, fields);
+            }
+            position = body + frameSize;
+        }
+        return true;
+    }
+
+    private static String id3Field(String frameId) {
+        return switch (frameId) {
+            case "TIT2", "TT2" -> "TITLE";
+            case "TPE1", "TP1" -> "ARTIST";
+            case "TALB", "TAL" -> "ALBUM";
+            case "TCON", "TCO" -> "GENRE";
+            default -> null;
+        };
+    }
+
+    private static String decodeTextFrame(ByteBuffer data, int flags, int major) {
+        int start = 0;
+        if (major == 4) {
+            if ((flags & 0x000C) != 0) {
+                // Compressed or encrypted
+                return null;
+            }
+            if ((flags & 0x0001) != 0) {
+                // Data length indicator
+                start += 4;
+            }
+            if ((flags & 0x0002) != 0) {
+                data = removeUnsynchronisation(data, start);
+                start = 0;
+            }
+        } else if (major == 3) {
+            if ((flags & 0x00C0) != 0) {
+                return null;
+            }
+            if ((flags & 0x0020) != 0) {
+                // Group identifier
+                start += 1;
+            }
+        }
+        if (data.limit() <= start) {
+            return null;
+        }
+        Charset charset = switch (data.get(start)) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = new String(data.array(), start + 1, data.limit() - start - 1, charset);
+        // v2.4 separates multiple values with NUL; keep the first
+        int terminator = text.indexOf('\0');
+        return terminator >= 0 ? text.substring(0, terminator) : text;
+    }
+
+    /**
+     * Finds the image data of an APIC (v2.3/2.4) or PIC (v2.2) frame: encoding, MIME type or 3-letter
+     * format, picture type and a terminated description precede it. Frames whose data is transformed
+     * (compressed, encrypted, unsynchronised) are skipped, since their bytes are not the image.
+     */
+    private static void locateId3Picture(FileChannel channel, long body, int frameSize, int flags, int major,
+                                         Fields fields) throws IOException {
+        int start = 0;
+        if (major == 4) {
+            if ((flags & 0x000E) != 0) {
+                return;
+            }
+            if ((flags & 0x0001) != 0) {
+                start += 4;
+            }
+        } else if (major == 3) {
+            if ((flags & 0x00C0) != 0) {
+                return;
+            }
+            if ((flags & 0x0020) != 0) {
+                start += 1;
+            }
+        }
+        ByteBuffer header = read(channel, body, Math.min(frameSize, MAX_PICTURE_HEADER_BYTES));
+        int limit = header.limit();
+        if (limit <= start + 1) {
+            return;
+        }
+        int encoding = header.get(start);
+        int position = start + 1;
+        if (major == 2) {
+            position += 3;
+        } else {
+            while (position < limit && header.get(position) != 0) {
+                position++;
+            }
+            position++;
+        }
+        if (position >= limit) {
+            return;
+        }
+        int pictureType = header.get(position++) & 0xFF;
+        // UTF-16 descriptions end with two zero bytes on a character boundary
+        boolean wide = encoding == 1 || encoding == 2;
+        while (position < limit) {
+            if (!wide && header.get(position) == 0) {
+                position += 1;
+                break;
+            }
+            if (wide && position + 1 < limit && header.get(position) == 0 && header.get(position + 1) == 0) {
+                position += 2;
+                break;
+            }
+            position += wide ? 2 : 1;
+        }
+        if (position >= limit || position >= frameSize) {
+            return;
+        }
+        fields.setArtwork(body + position, frameSize - position, pictureType == FRONT_COVER);
+    }
+
+    // PICTURE block: type, MIME type and description with their lengths, four 32-bit image properties, data
+    private static void locateFlacPicture(FileChannel channel, long body, int length, Fields fields)
+            throws IOException {
+        ByteBuffer header = read(channel, body, Math.min(length, MAX_PICTURE_HEADER_BYTES));
+        int limit = header.limit();
+        if (limit < 8) {
+            return;
+        }
+        int pictureType = header.getInt(0);
+        long position = 8L + (header.getInt(4) & 0xFFFFFFFFL);
+        if (position + 4 > limit) {
+            return;
+        }
+        position += 4L + (header.getInt((int) position) & 0xFFFFFFFFL) + 16;
+        if (position + 4 > limit) {
+            return;
+        }
+        long dataLength = header.getInt((int) position) & 0xFFFFFFFFL;
+        position += 4;
+        if (dataLength == 0 || position + dataLength > length) {
+            return;
+        }
+        fields.setArtwork(body + position, (int) dataLength, pictureType == FRONT_COVER);
+    }
+
+    private static ByteBuffer removeUnsynchronisation(ByteBuffer data, int start) {
+        byte[] out = new byte[data.limit() - start];
+        int length = 0;
+        for (int i = start; i < data.limit(); i++) {
+            byte b = data.get(i);
+            out[length++] = b;
+            if (b == (byte) 0xFF && i + 1 < data.limit() && data.get(i + 1) == 0) {
+                i++;
+            }
+        }
+        return ByteBuffer.wrap(out, 0, length).slice();
+    }
+
+    private static void readId3v1(ByteBuffer tag, Fields fields) {
+        fields.set("TITLE", latin1(tag, 3, 30));
+        fields.set("ARTIST", latin1(tag, 33, 30));
+        fields.set("ALBUM", latin1(tag, 63, 30));
+        int genre = tag.get(127) & 0xFF;
+        if (genre < ID3V1_GENRES.length) {
+            fields.set("GENRE", ID3V1_GENRES[genre]);
+        }
+    }
+
+    static Tags readFlac(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = Mp3Frames.id3v2Size(read(channel, 0, 10), 0);
+        if (!Mp3Frames.hasTag(read(channel, position, 4), 0, "fLaC")) {
+            return null;
+        }
+        position += 4;
+
+        Fields fields = new Fields();
+        int sampleRate = 0;
+        long totalSamples = 0;
+        boolean lastBlock = false;
+        while (!lastBlock) {
+            ByteBuffer blockHeader = read(channel, position, 4);
+            if (blockHeader.limit() < 4) {
+                return null;
+            }
+            lastBlock = (blockHeader.get(0) & 0x80) != 0;
+            int type = blockHeader.get(0) & 0x7F;
+            int length = readUInt24(blockHeader, 1);
+            long body = position + 4;
+            if (body + length > size) {
+                return null;
+            }
+            if (type == 0 && length >= 18) {
+                ByteBuffer streamInfo = read(channel, body, 18);
+                sampleRate = ((streamInfo.get(10) & 0xFF) << 12)
+                        | ((streamInfo.get(11) & 0xFF) << 4)
+                        | ((streamInfo.get(12) & 0xFF) >>> 4);
+                totalSamples = ((long) (streamInfo.get(13) & 0x0F) << 32) | (streamInfo.getInt(14) & 0xFFFFFFFFL);
+            } else if (type == 4 && length <= MAX_COMMENT_BLOCK_BYTES) {
+                readVorbisComments(read(channel, body, length), fields);
+            } else if (type == 6) {
+                locateFlacPicture(channel, body, length, fields);
+            }
+            position = body + length;
+        }
+        if (sampleRate == 0) {
+            return null;
+        }
+        return fields.toTags((double) totalSamples / sampleRate, position, size - position);
+    }
+
+    private static void readVorbisComments(ByteBuffer block, Fields fields) {
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        int limit = block.limit();
+        if (limit < 8) {
+            return;
+        }
+        long position = 4L + (block.getInt(0) & 0xFFFFFFFFL);
+        if (position + 4 > limit) {
+            return;
+        }
+        long count = block.getInt((int) position) & 0xFFFFFFFFL;
+        position += 4;
+        for (long i = 0; i < count && position + 4 <= limit && !fields.isComplete(); i++) {
+            long length = block.getInt((int) position) & 0xFFFFFFFFL;
+            position += 4;
+            if (position + length > limit) {
+                return;
+            }
+            String comment = new String(block.array(), (int) position, (int) length, StandardCharsets.UTF_8);
+            int separator = comment.indexOf('=');
+            if (separator > 0) {
+                fields.set(comment.substring(0, separator).toUpperCase(Locale.ROOT), comment.substring(separator + 1));
+            }
+            position += length;
+        }
+    }
+
+    static Tags readWav(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer riff = read(channel, 0, 12);
+        if (!Mp3Frames.hasTag(riff, 0, "RIFF") || !Mp3Frames.hasTag(riff, 8, "WAVE")) {
+            return null;
+        }
+        Fields fields = new Fields();
+        long byteRate = 0;
+        long dataStart = 0;
+        long dataSize = -1;
+        long position = 12;
+        while (position + 8 <= size) {
+            ByteBuffer chunk = read(channel, position, 8).order(ByteOrder.LITTLE_ENDIAN);
+            String id = ascii(chunk, 0, 4);
+            long length = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            switch (id) {
+                case "fmt " -> {
+                    ByteBuffer format = read(channel, body, 16).order(ByteOrder.LITTLE_ENDIAN);
+                    if (format.limit() >= 12) {
+                        byteRate = format.getInt(8) & 0xFFFFFFFFL;
+                    }
+                }
+                // Streaming writers leave the size at 0 or -1; the data then runs to the end of the file
+                case "data" -> {
+                    dataStart = body;
+                    dataSize = length == 0 || body + length > size ? size - body : length;
+                }
+                case "LIST" -> {
+                    if (length <= MAX_FIELD_BYTES) {
+                        readRiffInfo(read(channel, body, (int) length), fields);
+                    }
+                }
+                case "id3 ", "ID3 " -> readId3v2(channel, body, fields);
+                default -> {
+                }
+            }
+            if (dataSize >= 0 && length == 0) {
+                break;
+            }
+            position = body + length + (length & 1);
+        }
+        if (byteRate == 0 || dataSize < 0) {
+            return null;
+        }
+        return fields.toTags((double) dataSize / byteRate, dataStart, dataSize);
+    }
+
+    private static void readRiffInfo(ByteBuffer list, Fields fields) {
+        if (!Mp3Frames.hasTag(list, 0, "INFO")) {
+            return;
+        }
+        list.order(ByteOrder.LITTLE_ENDIAN);
+        int position = 4;
+        while (position + 8 <= list.limit()) {
+            String id = ascii(list, position, 4);
+            int length = list.getInt(position + 4);
+            int body = position + 8;
+            if (length < 0 || body + length > list.limit()) {
+                return;
+            }
+            String field = switch (id) {
+                case "INAM" -> "TITLE";
+                case "IART" -> "ARTIST";
+                case "IPRD" -> "ALBUM";
+                case "IGNR" -> "GENRE";
+                default -> null;
+            };
+            if (field != null) {
+                String value = new String(list.array(), body, length, StandardCharsets.UTF_8);
+                int terminator = value.indexOf('\0');
+                fields.set(field, terminator >= 0 ? value.substring(0, terminator) : value);
+            }
+            position = body + length + (length & 1);
+        }
+    }
+
+    static Tags readAiff(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer form = read(channel, 0, 12);
+        if (!Mp3Frames.hasTag(form, 0, "FORM")
+                || !(Mp3Frames.hasTag(form, 8, "AIFF") || Mp3Frames.hasTag(form, 8, "AIFC"))) {
+            return null;
+        }
+        Fields fields = new Fields();
+        double seconds = -1;
+        long soundStart = 0;
+        long soundLength = 0;
+        long position = 12;
+        while (position + 8 <= size) {
+            ByteBuffer chunk = read(channel, position, 8);
+            String id = ascii(chunk, 0, 4);
+            long length = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            switch (id) {
+                case "COMM" -> {
+                    ByteBuffer common = read(channel, body, 18);
+                    if (common.limit() == 18) {
+                        long sampleFrames = common.getInt(2) & 0xFFFFFFFFL;
+                        double sampleRate = extendedToDouble(common, 8);
+                        seconds = sampleRate > 0 ? sampleFrames / sampleRate : -1;
+                    }
+                }
+                case "NAME", "AUTH" -> {
+                    if (length <= MAX_FIELD_BYTES) {
+                        ByteBuffer text = read(channel, body, (int) length);
+                        fields.set(id.equals("NAME") ? "TITLE" : "ARTIST",
+                                new String(text.array(), 0, text.limit(), StandardCharsets.ISO_8859_1));
+                    }
+                }
+                case "ID3 " -> readId3v2(channel, body, fields);
+                case "SSND" -> {
+                    // Offset and block size fields precede the samples
+                    soundStart = body + 8;
+                    soundLength = Math.max(0, Math.min(length, size - body) - 8);
+                }
+                default -> {
+                }
+            }
+            position = body + length + (length & 1);
+        }
+        return seconds < 0 ? null : fields.toTags(seconds, soundStart, soundLength);
+    }
+
+    // 80-bit IEEE 754 extended precision, as used for the AIFF sample rate
+    private static double extendedToDouble(ByteBuffer buffer, int offset) {
+        int exponent = ((buffer.get(offset) & 0x7F) << 8) | (buffer.get(offset + 1) & 0xFF);
+        long mantissa = buffer.getLong(offset + 2);
+        if (exponent == 0 && mantissa == 0) {
+            return 0;
+        }
+        double value = Math.scalb((double) (mantissa >>> 1), exponent - 16383 - 62);
+        return (buffer.get(offset) & 0x80) != 0 ? -value : value;
+    }
+
+    /** Reads up to {@code length} bytes at {@code position}; the result is shorter at end of file. */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(0, length));
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String ascii(ByteBuffer buffer, int offset, int length) {
+        return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String latin1(ByteBuffer buffer, int offset, int length) {
+        String value = ascii(buffer, offset, length);
+        int terminator = value.indexOf('\0');
+        return terminator >= 0 ? value.substring(0, terminator) : value;
+    }
+
+    private static int readUInt24(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0xFF) << 16) | ((buffer.get(offset + 1) & 0xFF) << 8) | (buffer.get(offset + 2) & 0xFF);
+    }
+
+    // "(17)", "(17)Rock" and "17" are ID3v1 genre references
+    private static String resolveGenre(String genre) {
+        String reference = genre;
+        if (genre.startsWith("(") && genre.indexOf(')') > 1) {
+            String rest = genre.substring(genre.indexOf(')') + 1).trim();
+            if (!rest.isEmpty()) {
+                return rest;
+            }
+            reference = genre.substring(1, genre.indexOf(')'));
+        }
+        for (int i = 0; i < reference.length(); i++) {
+            if (!Character.isDigit(reference.charAt(i))) {
+                return genre;
+            }
+        }
+        int index = reference.length() <= 3 ? Integer.parseInt(reference) : -1;
+        return index >= 0 && index < ID3V1_GENRES.length ? ID3V1_GENRES[index] : genre;
+    }
+
+    // First non-blank value per field wins: ID3v2 is read before ID3v1
+    private static final class Fields {
+        private String title;
+        private String artist;
+        private String album;
+        private String genre;
+        private long artworkOffset;
+        private int artworkLength;
+        private boolean frontCover;
+
+        // The first picture, unless a later one is the front cover
+        void setArtwork(long offset, int length, boolean front) {
+            if (length > 0 && (artworkLength == 0 || (front && !frontCover))) {
+                artworkOffset = offset;
+                artworkLength = length;
+                frontCover = front;
+            }
+        }
+
+        void set(String field, String value) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            String trimmed = value.trim();
+            switch (field) {
+                case "TITLE" -> title = title != null ? title : trimmed;
+                case "ARTIST" -> artist = artist != null ? artist : trimmed;
+                case "ALBUM" -> album = album != null ? album : trimmed;
+                case "GENRE" -> genre = genre != null ? genre : resolveGenre(trimmed);
+                default -> {
+                }
+            }
+        }
+
+        boolean isComplete() {
+            return title != null && artist != null && album != null && genre != null && frontCover;
+        }
+
+        Tags toTags(double seconds, long audioOffset, long audioLength) {
+            return new Tags(title, artist, album, genre, (int) Math.round(seconds), audioOffset, audioLength,
+                    artworkOffset, artworkLength);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.LibraryFile;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the {@link LibraryFile} rows under one library root for the duration of a scan.
+ * The walker consults it to skip files whose size and mtime are unchanged and marks every path it
+ * sees; whatever was not seen once the walk completes has been deleted.
+ */
+final class LibraryManifest {
+
+    private final Map<String, LibraryFile> byPath;
+    private final Map<String, LibraryFile> byHash = new HashMap<>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    LibraryManifest(List<LibraryFile> entries) {
+        byPath = new HashMap<>(entries.size() * 2);
+        for (LibraryFile entry : entries) {
+            byPath.put(entry.getPath(), entry);
+            if (entry.getContentHash() != null && entry.getSongId() != null) {
+                byHash.put(entry.getContentHash(), entry);
+            }
+        }
+    }
+
+    static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    int size() {
+        return byPath.size();
+    }
+
+    /** Number of supported files the walk has found so far, changed or not. */
+    int seenCount() {
+        return seen.size();
+    }
+
+    LibraryFile get(Path path) {
+        return byPath.get(key(path));
+    }
+
+    /** Marks the file as present and returns true if it needs to be read. */
+    boolean needsRead(Path path, BasicFileAttributes attributes) {
+        String key = key(path);
+        seen.add(key);
+        LibraryFile entry = byPath.get(key);
+        return entry == null
+                || entry.getFileSize() != attributes.size()
+                || entry.getFileModified() != attributes.lastModifiedTime().toMillis();
+    }
+
+    /** A manifest entry with a song whose file has exactly this content, if any. */
+    LibraryFile findByHash(String contentHash) {
+        return contentHash != null ? byHash.get(contentHash) : null;
+    }
+
+    /** Entries whose files were not seen by the walk. Only meaningful after a complete walk. */
+    List<LibraryFile> missing() {
+        List<LibraryFile> missing = new ArrayList<>();
+        for (Map.Entry<String, LibraryFile> entry : byPath.entrySet()) {
+            if (!seen.contains(entry.getKey())) {
+                missing.add(entry.getValue());
+            }
+        }
+        return missing;
+    }
+}
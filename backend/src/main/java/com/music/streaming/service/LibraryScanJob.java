@@ -0,0 +1,121 @@
+package com.music.streaming.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One library scan submitted through {@link LibraryScanJobService}. Progress is read live from the
+ * scan's pipeline while it runs; the scan result is kept once it finishes.
+ */
+public class LibraryScanJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final boolean throttled;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile Map<String, Object> result;
+
+    private volatile LibraryScanPipeline<?> pipeline;
+    private volatile AtomicInteger importedSongs;
+
+    LibraryScanJob(boolean throttled) {
+        this.throttled = throttled;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** Scheduled scans are paced by {@link LibraryScanThrottle}; scans started by an admin are not. */
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    void cancel() {
+        cancelRequested = true;
+        LibraryScanPipeline<?> running = pipeline;
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    /** Called by the scan once its pipeline exists, so progress and cancellation can reach it. */
+    void attach(LibraryScanPipeline<?> pipeline, AtomicInteger importedSongs) {
+        this.importedSongs = importedSongs;
+        this.pipeline = pipeline;
+        // A cancel that raced with attaching must still reach the pipeline
+        if (cancelRequested) {
+            pipeline.cancel();
+        }
+    }
+
+    void started() {
+        startedAt = LocalDateTime.now();
+        state = State.RUNNING;
+    }
+
+    void finished(State state, Map<String, Object> result) {
+        this.result = result;
+        this.finishedAt = LocalDateTime.now();
+        this.state = state;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> job = new LinkedHashMap<>();
+        job.put("id", id);
+        job.put("state", state);
+        job.put("throttled", throttled);
+        job.put("submittedAt", submittedAt);
+        job.put("startedAt", startedAt);
+        job.put("finishedAt", finishedAt);
+        job.put("cancelRequested", cancelRequested);
+
+        LibraryScanPipeline<?> scan = pipeline;
+        if (scan != null) {
+            long discovered = scan.getDiscoveredCount();
+            long processed = scan.getReadCount();
+            double seconds = scan.getElapsedSeconds();
+            double filesPerSecond = seconds > 0 ? processed / seconds : 0;
+            job.put("discoveredFiles", discovered);
+            job.put("discoveryComplete", !scan.isWalking());
+            job.put("processedFiles", processed);
+            job.put("committedFiles", scan.getWrittenCount());
+            job.put("importedSongs", importedSongs.get());
+            job.put("filesPerSecond", Math.round(filesPerSecond * 10) / 10.0);
+            // The total is only known once the walker has listed everything
+            job.put("etaSeconds", !scan.isWalking() && !isFinished() && filesPerSecond > 0
+                    ? Math.round((discovered - processed) / filesPerSecond)
+                    : null);
+            job.put("errorCount", scan.getErrorCount());
+            job.put("errors", scan.getErrors());
+        }
+        if (result != null) {
+            job.put("result", result);
+        }
+        return job;
+    }
+}
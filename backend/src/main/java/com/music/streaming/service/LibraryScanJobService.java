@@ -0,0 +1,138 @@
+package com.music.streaming.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs library scans in the background so the admin request that starts one returns immediately.
+ * Scans run one at a time on a dedicated thread; submitting while a scan is queued or running
+ * returns that job instead of stacking another. Finished jobs are kept for inspection, up to
+ * {@code music.library.scan.job-history}.
+ *
+ * Scans also run on the {@code music.library.scan.cron} schedule (disabled with "-"); those are paced
+ * by {@link LibraryScanThrottle} so they do not disturb playback.
+ */
+@Service
+public class LibraryScanJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryScanJobService.class);
+
+    @Value("${music.library.scan.job-history:20}")
+    private int jobHistory;
+
+    @Autowired
+    private MusicLibraryService musicLibraryService;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "library-scan-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Oldest first
+    private final LinkedHashMap<String, LibraryScanJob> jobs = new LinkedHashMap<>();
+
+    public LibraryScanJob submit() {
+        return submit(false);
+    }
+
+    @Scheduled(cron = "${music.library.scan.cron:-}")
+    public void scheduledScan() {
+        // Joins a scan that is already queued or running, like any other submit
+        LibraryScanJob job = submit(true);
+        logger.debug("Scheduled library scan: job {}", job.getId());
+    }
+
+    public synchronized LibraryScanJob submit(boolean throttled) {
+        for (LibraryScanJob job : jobs.values()) {
+            if (!job.isFinished() && !job.isCancelRequested()) {
+                return job;
+            }
+        }
+        LibraryScanJob job = new LibraryScanJob(throttled);
+        jobs.put(job.getId(), job);
+        trimHistory();
+        executor.execute(() -> run(job));
+        logger.info("Library scan job {} submitted{}", job.getId(), throttled ? " (throttled)" : "");
+        return job;
+    }
+
+    public synchronized Optional<LibraryScanJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /** Most recent first. */
+    public synchronized List<LibraryScanJob> getJobs() {
+        List<LibraryScanJob> list = new ArrayList<>(jobs.values());
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * Requests cancellation. A queued job never starts; a running one stops after committing the
+     * batch it is writing. Returns empty for an unknown job id.
+     */
+    public synchronized Optional<LibraryScanJob> cancel(String jobId) {
+        LibraryScanJob job = jobs.get(jobId);
+        if (job != null && !job.isFinished()) {
+            job.cancel();
+            logger.info("Cancellation requested for library scan job {}", jobId);
+        }
+        return Optional.ofNullable(job);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        for (LibraryScanJob job : jobs.values()) {
+            if (!job.isFinished()) {
+                job.cancel();
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private void run(LibraryScanJob job) {
+        if (job.isCancelRequested()) {
+            job.finished(LibraryScanJob.State.CANCELLED, null);
+            return;
+        }
+        job.started();
+        try {
+            Map<String, Object> result = musicLibraryService.scanLibrary(job);
+            LibraryScanJob.State state;
+            if ("cancelled".equals(result.get("status"))) {
+                state = LibraryScanJob.State.CANCELLED;
+            } else if ("success".equals(result.get("status"))) {
+                state = LibraryScanJob.State.COMPLETED;
+            } else {
+                state = LibraryScanJob.State.FAILED;
+            }
+            job.finished(state, result);
+            logger.info("Library scan job {} {}", job.getId(), state);
+        } catch (RuntimeException e) {
+            logger.error("Library scan job {} failed", job.getId(), e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("status", "error");
+            result.put("message", e.getMessage());
+            job.finished(LibraryScanJob.State.FAILED, result);
+        }
+    }
+
+    private void trimHistory() {
+        Iterator<LibraryScanJob> oldest = jobs.values().iterator();
+        while (jobs.size() > jobHistory && oldest.hasNext()) {
+            if (oldest.next().isFinished()) {
+                oldest.remove();
+            }
+        }
+    }
+}
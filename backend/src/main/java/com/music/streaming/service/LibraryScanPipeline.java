@@ -0,0 +1,311 @@
+package com.music.streaming.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Three-stage scan: one walker thread lists files, a pool of readers extracts metadata, and the
+ * calling thread writes the results in batches. Stages are connected by bounded queues, so a slow
+ * database throttles the readers and slow readers throttle the walker instead of buffering the
+ * whole library in memory.
+ *
+ * @param <T> what a reader produces for one file
+ */
+final class LibraryScanPipeline<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryScanPipeline.class);
+
+    private static final long POLL_MILLIS = 100;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    interface Reader<T> {
+        /** Returns the item for a file, or null to skip it. */
+        T read(Path path) throws Exception;
+    }
+
+    interface BatchWriter<T> {
+        void write(List<T> batch);
+    }
+
+    private final int readerThreads;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final MeterRegistry meterRegistry;
+
+    // Built in the constructor: their counters need meterRegistry assigned first
+    private final Stage walkStage;
+    private final Stage readStage;
+    private final Stage writeStage;
+    private final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private volatile boolean walkComplete;
+    private volatile boolean walking;
+    private volatile boolean cancelled;
+    private volatile long startedNanos;
+    private volatile long elapsedNanos;
+
+    LibraryScanPipeline(int readerThreads, int queueCapacity, int batchSize, MeterRegistry meterRegistry) {
+        this.readerThreads = readerThreads;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+        this.walkStage = new Stage("walk");
+        this.readStage = new Stage("read");
+        this.writeStage = new Stage("write");
+    }
+
+    /**
+     * Runs the scan to completion on the calling thread. Writer exceptions abort the scan and are rethrown.
+     */
+    void run(Path root, BiPredicate<Path, BasicFileAttributes> filter, Reader<T> reader, BatchWriter<T> writer)
+            throws InterruptedException {
+        BlockingQueue<Path> paths = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<T> items = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger readersRunning = new AtomicInteger(readerThreads);
+        long started = System.nanoTime();
+        startedNanos = started;
+        walking = true;
+
+        Thread walker = new Thread(() -> {
+            try {
+                walk(root, filter, paths);
+            } finally {
+                walking = false;
+            }
+        }, "library-scan-walker");
+        walker.setDaemon(true);
+        ExecutorService readers = Executors.newFixedThreadPool(readerThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "library-scan-reader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            walker.start();
+            for (int i = 0; i < readerThreads; i++) {
+                readers.execute(() -> {
+                    try {
+                        read(walker, paths, items, reader);
+                    } finally {
+                        readersRunning.decrementAndGet();
+                    }
+                });
+            }
+            write(readersRunning, items, writer);
+        } finally {
+            walker.interrupt();
+            readers.shutdownNow();
+            elapsedNanos = System.nanoTime() - started;
+        }
+    }
+
+    Map<String, Object> getStageStats() {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        stages.put(walkStage.name, walkStage.toMap());
+        stages.put(readStage.name, readStage.toMap());
+        stages.put(writeStage.name, writeStage.toMap());
+        return stages;
+    }
+
+    long getReadCount() {
+        return readStage.items.get();
+    }
+
+    /** Files the walker has queued so far; final once {@link #isWalking()} is false. */
+    long getDiscoveredCount() {
+        return walkStage.items.get();
+    }
+
+    long getWrittenCount() {
+        return writeStage.items.get();
+    }
+
+    boolean isWalking() {
+        return walking;
+    }
+
+    double getElapsedSeconds() {
+        if (startedNanos == 0) {
+            return 0;
+        }
+        return (elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startedNanos) / 1e9;
+    }
+
+    /**
+     * Asks every stage to stop: the walker lists no more files, readers drop what is still queued and
+     * the writer commits the batch it already holds, so no finished work is lost.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** True if every directory under the root could be listed, so files not seen really are gone. */
+    boolean isWalkComplete() {
+        return walkComplete;
+    }
+
+    List<String> getErrors() {
+        return new ArrayList<>(errors);
+    }
+
+    int getErrorCount() {
+        return errorCount.get();
+    }
+
+    void recordError(String message) {
+        errorCount.incrementAndGet();
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(message);
+        }
+    }
+
+    private void walk(Path root, BiPredicate<Path, BasicFileAttributes> filter, BlockingQueue<Path> paths) {
+        boolean[] failed = new boolean[1];
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (cancelled) {
+                        failed[0] = true;
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (attributes.isRegularFile() && filter.test(file, attributes)) {
+                        long blockedFrom = System.nanoTime();
+                        try {
+                            paths.put(file);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            failed[0] = true;
+                            return FileVisitResult.TERMINATE;
+                        }
+                        walkStage.blockedNanos.addAndGet(System.nanoTime() - blockedFrom);
+                        walkStage.increment();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.warn("Cannot read {} during library scan: {}", file, e.getMessage());
+                    failed[0] = true;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            walkComplete = !failed[0];
+        } catch (IOException e) {
+            logger.error("Error walking library at {}", root, e);
+            recordError(root + ": " + e.getMessage());
+        }
+    }
+
+    private void read(Thread walker, BlockingQueue<Path> paths, BlockingQueue<T> items, Reader<T> reader) {
+        try {
+            while (!cancelled) {
+                Path path = paths.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (path == null) {
+                    if (!walker.isAlive() && paths.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                long begin = System.nanoTime();
+                T item = null;
+                try {
+                    item = reader.read(path);
+                } catch (Exception e) {
+                    logger.error("Error importing file: {}", path, e);
+                    recordError(path.getFileName() + ": " + e.getMessage());
+                }
+                readStage.busyNanos.addAndGet(System.nanoTime() - begin);
+                readStage.increment();
+                if (item != null) {
+                    long blockedFrom = System.nanoTime();
+                    items.put(item);
+                    readStage.blockedNanos.addAndGet(System.nanoTime() - blockedFrom);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(AtomicInteger readersRunning, BlockingQueue<T> items, BatchWriter<T> writer)
+            throws InterruptedException {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (true) {
+            T item = items.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                batch.add(item);
+                items.drainTo(batch, batchSize - batch.size());
+            }
+            boolean finished = cancelled || (item == null && readersRunning.get() == 0 && items.isEmpty());
+            if (batch.size() >= batchSize || (finished && !batch.isEmpty())) {
+                long begin = System.nanoTime();
+                writer.write(batch);
+                writeStage.busyNanos.addAndGet(System.nanoTime() - begin);
+                writeStage.add(batch.size());
+                batch = new ArrayList<>(batchSize);
+            }
+            if (finished) {
+                return;
+            }
+        }
+    }
+
+    private final class Stage {
+        private final String name;
+        private final Counter counter;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        // Time spent waiting for room in the next stage's queue
+        private final AtomicLong blockedNanos = new AtomicLong();
+
+        private Stage(String name) {
+            this.name = name;
+            this.counter = meterRegistry != null
+                    ? meterRegistry.counter("music.library.scan.items", "stage", name)
+                    : null;
+        }
+
+        private void increment() {
+            add(1);
+        }
+
+        private void add(long count) {
+            items.addAndGet(count);
+            if (counter != null) {
+                counter.increment(count);
+            }
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            double seconds = getElapsedSeconds();
+            stats.put("items", items.get());
+            stats.put("itemsPerSecond", seconds > 0 ? Math.round(items.get() / seconds * 10) / 10.0 : 0);
+            stats.put("busySeconds", Math.round(busyNanos.get() / 1e7) / 100.0);
+            stats.put("blockedSeconds", Math.round(blockedNanos.get() / 1e7) / 100.0);
+            return stats;
+        }
+    }
+}
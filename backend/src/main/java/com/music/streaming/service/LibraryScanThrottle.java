@@ -0,0 +1,165 @@
+package com.music.streaming.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Paces throttled (scheduled) library scans so they do not compete with live streams for the disk.
+ *
+ * Before reading a file, a scan reader reserves the file's size against
+ * {@code music.library.scan.throttle.bytes-per-second} and one file against {@code files-per-second};
+ * the seek table build touches every frame, so the file size is what the disk actually reads. While
+ * more than {@code max-active-streams} streams are running, or recent time to first byte is above
+ * {@code max-ttfb-ms}, readers back off instead, doubling the pause up to {@code backoff-max-ms}.
+ * A limit of 0 disables that check.
+ */
+@Service
+public class LibraryScanThrottle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryScanThrottle.class);
+
+    // Waits are sliced so a cancelled scan stops promptly
+    private static final long SLICE_MILLIS = 100;
+
+    @Value("${music.library.scan.throttle.bytes-per-second:0}")
+    private long bytesPerSecond;
+
+    @Value("${music.library.scan.throttle.files-per-second:0}")
+    private double filesPerSecond;
+
+    @Value("${music.library.scan.throttle.max-active-streams:0}")
+    private int maxActiveStreams;
+
+    @Value("${music.library.scan.throttle.max-ttfb-ms:0}")
+    private long maxTtfbMillis;
+
+    @Value("${music.library.scan.throttle.backoff-initial-ms:1000}")
+    private long backoffInitialMillis;
+
+    @Value("${music.library.scan.throttle.backoff-max-ms:30000}")
+    private long backoffMaxMillis;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    // Earliest start for the next reservation in each bucket, in System.nanoTime(); guarded by this
+    private long nextByteSlot;
+    private long nextFileSlot;
+
+    private final AtomicInteger readersBackingOff = new AtomicInteger();
+    private final AtomicLong backoffs = new AtomicLong();
+    private final AtomicLong backoffNanos = new AtomicLong();
+    private final AtomicLong throttledFiles = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    /**
+     * Blocks until a file of {@code bytes} may be read: streaming is quiet enough and the read fits
+     * the budget. Returns false if {@code cancelled} becomes true first.
+     */
+    boolean acquire(long bytes, BooleanSupplier cancelled) throws InterruptedException {
+        if (!awaitQuietStreams(cancelled)) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long start = now;
+        synchronized (this) {
+            if (bytesPerSecond > 0) {
+                long byteStart = Math.max(now, nextByteSlot);
+                nextByteSlot = byteStart + (long) (bytes * 1e9 / bytesPerSecond);
+                start = Math.max(start, byteStart);
+            }
+            if (filesPerSecond > 0) {
+                long fileStart = Math.max(now, nextFileSlot);
+                nextFileSlot = fileStart + (long) (1e9 / filesPerSecond);
+                start = Math.max(start, fileStart);
+            }
+        }
+        long waitNanos = start - now;
+        if (waitNanos > 0) {
+            throttledFiles.incrementAndGet();
+            throttledNanos.addAndGet(waitNanos);
+            return sleep(waitNanos, cancelled);
+        }
+        return !cancelled.getAsBoolean();
+    }
+
+    private boolean awaitQuietStreams(BooleanSupplier cancelled) throws InterruptedException {
+        String reason = streamingBusyReason();
+        if (reason == null) {
+            return true;
+        }
+        readersBackingOff.incrementAndGet();
+        backoffs.incrementAndGet();
+        try {
+            long pauseMillis = Math.max(SLICE_MILLIS, backoffInitialMillis);
+            while (reason != null) {
+                logger.debug("Library scan backing off for {} ms: {}", pauseMillis, reason);
+                long begin = System.nanoTime();
+                boolean completed = sleep(TimeUnit.MILLISECONDS.toNanos(pauseMillis), cancelled);
+                backoffNanos.addAndGet(System.nanoTime() - begin);
+                if (!completed) {
+                    return false;
+                }
+                pauseMillis = Math.min(pauseMillis * 2, Math.max(backoffMaxMillis, backoffInitialMillis));
+                reason = streamingBusyReason();
+            }
+            return true;
+        } finally {
+            readersBackingOff.decrementAndGet();
+        }
+    }
+
+    // Null when the scan may read
+    private String streamingBusyReason() {
+        int activeStreams = streamMetrics.getActiveStreams();
+        if (maxActiveStreams > 0 && activeStreams > maxActiveStreams) {
+            return activeStreams + " active streams";
+        }
+        // Latency only matters while someone is listening; the average is stale once streams stop
+        if (maxTtfbMillis > 0 && activeStreams > 0) {
+            long ttfbMillis = streamMetrics.getRecentTtfbMillis();
+            if (ttfbMillis > maxTtfbMillis) {
+                return "time to first byte " + ttfbMillis + " ms";
+            }
+        }
+        return null;
+    }
+
+    private static boolean sleep(long nanos, BooleanSupplier cancelled) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        while (true) {
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return true;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(left, TimeUnit.MILLISECONDS.toNanos(SLICE_MILLIS)));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("bytesPerSecond", bytesPerSecond);
+        stats.put("filesPerSecond", filesPerSecond);
+        stats.put("maxActiveStreams", maxActiveStreams);
+        stats.put("maxTtfbMillis", maxTtfbMillis);
+        stats.put("backingOff", readersBackingOff.get() > 0);
+        stats.put("backoffs", backoffs.get());
+        stats.put("backoffMillis", TimeUnit.NANOSECONDS.toMillis(backoffNanos.get()));
+        stats.put("throttledFiles", throttledFiles.get());
+        stats.put("throttledMillis", TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+        return stats;
+    }
+}
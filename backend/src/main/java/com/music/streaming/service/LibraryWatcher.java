@@ -0,0 +1,282 @@
+package com.music.streaming.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the library in sync with {@code music.library.path} while the application runs, so new,
+ * changed and deleted files show up without a full rescan.
+ *
+ * Every directory under the root is registered with the platform {@link WatchService}. If that is
+ * not possible (no inotify, watch limit reached, network filesystems) or {@code music.library.watch.mode}
+ * is {@code poll}, the tree is instead compared against a size/mtime snapshot every
+ * {@code poll-interval-ms}. Either way events are only recorded per path; a path is handed to
+ * {@link MusicLibraryService#refreshFile} once it has been quiet for {@code debounce-ms}, so a file
+ * that is still being copied, or that fires create/modify/modify, is imported once.
+ */
+@Service
+public class LibraryWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryWatcher.class);
+
+    @Value("${music.library.path}")
+    private String libraryPath;
+
+    // auto (native with polling fallback), native or poll
+    @Value("${music.library.watch.mode:auto}")
+    private String mode;
+
+    @Value("${music.library.watch.debounce-ms:2000}")
+    private long debounceMillis;
+
+    @Value("${music.library.watch.poll-interval-ms:10000}")
+    private long pollIntervalMillis;
+
+    @Autowired
+    private MusicLibraryService musicLibraryService;
+
+    @Autowired
+    private LibraryScanJobService scanJobService;
+
+    private final Map<Path, Long> pending = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    // Polling mode only: size and mtime of every file seen on the last pass
+    private Map<Path, List<Long>> snapshot = new HashMap<>();
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong removed = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+
+    private volatile String activeMode = "stopped";
+    private Path root;
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledExecutorService scheduler;
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        root = Paths.get(libraryPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            logger.warn("Not watching library: {} is not a directory", root);
+            return;
+        }
+
+        boolean nativeWatch = !"poll".equalsIgnoreCase(mode) && openWatchService();
+        if (!nativeWatch && "native".equalsIgnoreCase(mode)) {
+            logger.error("Native file watching is not available for {}; library watcher not started", root);
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "library-watch-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (nativeWatch) {
+            watchThread = new Thread(this::watchLoop, "library-watch");
+            watchThread.setDaemon(true);
+            watchThread.start();
+            activeMode = "native";
+        } else {
+            snapshot = snapshot(root);
+            scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+            activeMode = "poll";
+        }
+        long flushEvery = Math.max(50, debounceMillis / 2);
+        scheduler.scheduleWithFixedDelay(this::flush, flushEvery, flushEvery, TimeUnit.MILLISECONDS);
+        logger.info("Watching library at {} ({} mode, {} ms debounce)", root, activeMode, debounceMillis);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+        closeWatchService();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        watchedDirectories.clear();
+        activeMode = "stopped";
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", activeMode);
+        stats.put("watchedDirectories", watchedDirectories.size());
+        stats.put("pendingPaths", pending.size());
+        stats.put("events", events.get());
+        stats.put("refreshed", refreshed.get());
+        stats.put("removedSongs", removed.get());
+        stats.put("overflows", overflows.get());
+        return stats;
+    }
+
+    private boolean openWatchService() {
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            registerTree(root);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.warn("Native file watching unavailable for {} ({}); falling back to polling", root, e.toString());
+            closeWatchService();
+            watchedDirectories.clear();
+            return false;
+        }
+    }
+
+    private void closeWatchService() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing watch service", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void registerTree(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Path directory = watchedDirectories.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Events were dropped; let a manifest-based scan of the whole tree catch up. It runs as
+                        // a throttled job, visible and cancellable, and joins one that is already running.
+                        overflows.incrementAndGet();
+                        scanJobService.submit(true);
+                        continue;
+                    }
+                    if (directory == null) {
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                        onDirectoryCreated(path);
+                    } else {
+                        record(path);
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    // Files can land in a new directory before it is registered, so everything already in it is queued too
+    private void onDirectoryCreated(Path directory) {
+        try {
+            registerTree(directory);
+            try (var files = Files.walk(directory)) {
+                files.filter(Files::isRegularFile).forEach(this::record);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not watch new directory {}", directory, e);
+        }
+    }
+
+    private void record(Path path) {
+        events.incrementAndGet();
+        pending.put(path, System.nanoTime());
+    }
+
+    private void poll() {
+        try {
+            Map<Path, List<Long>> current = snapshot(root);
+            for (Map.Entry<Path, List<Long>> entry : current.entrySet()) {
+                if (!entry.getValue().equals(snapshot.get(entry.getKey()))) {
+                    record(entry.getKey());
+                }
+            }
+            for (Path path : snapshot.keySet()) {
+                if (!current.containsKey(path)) {
+                    record(path);
+                }
+            }
+            snapshot = current;
+        } catch (RuntimeException e) {
+            logger.error("Error polling library at {}", root, e);
+        }
+    }
+
+    private static Map<Path, List<Long>> snapshot(Path root) {
+        Map<Path, List<Long>> files = new HashMap<>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile()) {
+                        files.put(file, List.of(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not list library at {}", root, e);
+        }
+        return files;
+    }
+
+    private void flush() {
+        long quietSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        for (Map.Entry<Path, Long> entry : pending.entrySet()) {
+            Path path = entry.getKey();
+            Long lastEvent = entry.getValue();
+            // remove(key, value) fails if a newer event arrived meanwhile, which restarts the quiet period
+            if (lastEvent - quietSince > 0 || !pending.remove(path, lastEvent)) {
+                continue;
+            }
+            try {
+                if (Files.exists(path)) {
+                    if (musicLibraryService.refreshFile(path)) {
+                        refreshed.incrementAndGet();
+                    }
+                } else {
+                    removed.addAndGet(musicLibraryService.removeFiles(path));
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error syncing {} from library watcher", path, e);
+            }
+        }
+    }
+}
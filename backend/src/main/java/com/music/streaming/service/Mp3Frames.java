@@ -0,0 +1,142 @@
+package com.music.streaming.service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MPEG audio frame header arithmetic (MPEG 1/2/2.5, layers I-III), shared by the seek table builder
+ * and the tag reader. Headers are passed around as the raw big-endian 32-bit word so walking a file
+ * frame by frame allocates nothing.
+ */
+public final class Mp3Frames {
+
+    private static final int[][] BITRATES_KBPS = {
+        // MPEG 1: layer I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        // MPEG 2 and 2.5: layer I, II/III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+        {11025, 12000, 8000},   // MPEG 2.5
+        {0, 0, 0},              // reserved
+        {22050, 24000, 16000},  // MPEG 2
+        {44100, 48000, 32000}   // MPEG 1
+    };
+
+    private Mp3Frames() {
+    }
+
+    /** True if the word has a frame sync and no reserved or free-format fields. */
+    public static boolean isValid(int header) {
+        return (header & 0xFFE00000) == 0xFFE00000
+                && version(header) != 1
+                && layer(header) != 0
+                && bitrateIndex(header) != 0 && bitrateIndex(header) != 15
+                && ((header >>> 10) & 0x3) != 3;
+    }
+
+    public static int sampleRate(int header) {
+        return SAMPLE_RATES[version(header)][(header >>> 10) & 0x3];
+    }
+
+    public static int bitrateKbps(int header) {
+        boolean mpeg1 = version(header) == 3;
+        int layer = 4 - layer(header);
+        int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+        return BITRATES_KBPS[table][bitrateIndex(header)];
+    }
+
+    public static int samplesPerFrame(int header) {
+        int layer = 4 - layer(header);
+        if (layer == 1) {
+            return 384;
+        }
+        if (layer == 2 || version(header) == 3) {
+            return 1152;
+        }
+        return 576;
+    }
+
+    /** Total frame length in bytes including the 4-byte header. */
+    public static int frameLength(int header) {
+        int padding = (header >>> 9) & 0x1;
+        int slotSize = layer(header) == 3 ? 4 : 1;
+        int slots = samplesPerFrame(header) / 8 * bitrateKbps(header) * 1000 / sampleRate(header) / slotSize;
+        return (slots + padding) * slotSize;
+    }
+
+    public static boolean isMono(int header) {
+        return ((header >>> 6) & 0x3) == 3;
+    }
+
+    /**
+     * Offset from the frame start where a Xing/Info tag would sit: after the header and side information.
+     */
+    public static int xingTagOffset(int header) {
+        boolean mpeg1 = version(header) == 3;
+        if (mpeg1) {
+            return isMono(header) ? 4 + 17 : 4 + 32;
+        }
+        return isMono(header) ? 4 + 9 : 4 + 17;
+    }
+
+    /** VBRI tags always sit 32 bytes after the header. */
+    public static int vbriTagOffset() {
+        return 4 + 32;
+    }
+
+    /**
+     * True if the frame at {@code frameStart} is a Xing/Info/VBRI metadata frame. Decoders play it as
+     * silence, so it is not counted as audio.
+     */
+    public static boolean isInfoFrame(ByteBuffer buffer, int frameStart, int header) {
+        return hasTag(buffer, frameStart + xingTagOffset(header), "Xing")
+                || hasTag(buffer, frameStart + xingTagOffset(header), "Info")
+                || hasTag(buffer, frameStart + vbriTagOffset(), "VBRI");
+    }
+
+    /** Size of an ID3v2 tag starting at {@code offset}, or 0 if there is none. */
+    public static int id3v2Size(ByteBuffer buffer, int offset) {
+        if (buffer.limit() - offset < 10 || !hasTag(buffer, offset, "ID3")) {
+            return 0;
+        }
+        int flags = buffer.get(offset + 5) & 0xFF;
+        int size = syncSafeInt(buffer, offset + 6);
+        boolean footer = (flags & 0x10) != 0;
+        return 10 + size + (footer ? 10 : 0);
+    }
+
+    public static int syncSafeInt(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21)
+                | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7)
+                | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    public static boolean hasTag(ByteBuffer buffer, int offset, String tag) {
+        if (offset < 0 || offset + tag.length() > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (buffer.get(offset + i) != (byte) tag.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int version(int header) {
+        return (header >>> 19) & 0x3;
+    }
+
+    private static int layer(int header) {
+        return (header >>> 17) & 0x3;
+    }
+
+    private static int bitrateIndex(int header) {
+        return (header >>> 12) & 0xF;
+    }
+}
@@ -1,27 +1,40 @@
 package com.music.streaming.service;
 
 import com.music.streaming.model.Artist;
+import com.music.streaming.model.LibraryFile;
 import com.music.streaming.model.Song;
 import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.LibraryFileRepository;
 import com.music.streaming.repository.SongRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.datatype.Artwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class MusicLibraryService {
@@ -41,15 +54,82 @@ public class MusicLibraryService {
     @Autowired
     private ArtistRepository artistRepository;
 
-    @Transactional
+    @Autowired
+    private LibraryFileRepository libraryFileRepository;
+
+    @Autowired
+    private StreamMediaIndex streamMediaIndex;
+
+    @Autowired
+    private SongSeekService songSeekService;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LibraryScanThrottle scanThrottle;
+
+    @Autowired
+    private ScanLeaseService leaseService;
+
+    @Autowired
+    private CoverArtService coverArtService;
+
+    // 0 sizes the reader pool from the CPU count; metadata reads are mostly I/O waits, so it is 2x cores
+    @Value("${music.library.scan.reader-threads:0}")
+    private int readerThreads;
+
+    @Value("${music.library.scan.queue-capacity:1000}")
+    private int scanQueueCapacity;
+
+    @Value("${music.library.scan.batch-size:200}")
+    private int scanBatchSize;
+
+    // Full scans and single-file updates from the watcher must not write the same manifest rows concurrently
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    // Read tags and duration from the file headers, using jaudiotagger only for files the fast reader rejects
+    @Value("${music.library.scan.fast-tags:true}")
+    private boolean fastTagsEnabled;
+
+    // Hashing reads every new or changed file in full; it lets copies of known files skip the tag read
+    @Value("${music.library.scan.content-hash:false}")
+    private boolean contentHashEnabled;
+
+    // Fingerprint each file's audio payload so moved and renamed files keep their song
+    @Value("${music.library.scan.fingerprint:true}")
+    private boolean fingerprintEnabled;
+
+    /**
+     * Imports new and changed files under the library path. Files are listed, tagged and written by
+     * the stages of a {@link LibraryScanPipeline}; each batch of songs is committed in its own
+     * transaction, so a failure only loses that batch and other requests are not blocked for the
+     * whole scan. Files whose size and mtime match the {@link LibraryFile} manifest are not opened,
+     * and songs whose files have disappeared are marked unavailable.
+     *
+     * When several nodes share the database, each top-level directory of the library (and the files
+     * directly under it) is a shard that a node claims with a {@link ScanLeaseService} lease before
+     * reading any of its files; nodes scanning at the same time split the shards between them.
+     */
     public Map<String, Object> scanLibrary() {
+        return scanLibrary(null);
+    }
+
+    /**
+     * Same as {@link #scanLibrary()}, reporting progress to and honouring cancellation of {@code job}.
+     * Work is committed batch by batch, so a cancelled or failed scan keeps what it wrote and the next
+     * scan only picks up the rest.
+     */
+    public Map<String, Object> scanLibrary(LibraryScanJob job) {
         logger.info("Starting library scan from: {}", libraryPath);
         
         Map<String, Object> result = new HashMap<>();
-        int scannedFiles = 0;
-        int importedSongs = 0;
-        int skippedFiles = 0;
-        List<String> errors = new ArrayList<>();
 
         try {
             Path libraryDir = Paths.get(libraryPath);
@@ -61,37 +141,17 @@ public class MusicLibraryService {
                 return result;
             }
 
-            try (Stream<Path> paths = Files.walk(libraryDir)) {
-                List<Path> audioFiles = paths
-                    .filter(Files::isRegularFile)
-                    .filter(this::isSupportedAudioFile)
-                    .toList();
-
-                for (Path filePath : audioFiles) {
-                    scannedFiles++;
-                    try {
-                        if (importSongFromFile(filePath.toFile())) {
-                            importedSongs++;
-                        } else {
-                            skippedFiles++;
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error importing file: {}", filePath, e);
-                        errors.add(filePath.getFileName().toString() + ": " + e.getMessage());
-                        skippedFiles++;
-                    }
-                }
+            scanLock.lockInterruptibly();
+            try {
+                scanLibrary(libraryDir.toAbsolutePath().normalize(), result, job);
+            } finally {
+                scanLock.unlock();
             }
 
-            result.put("status", "success");
-            result.put("scannedFiles", scannedFiles);
-            result.put("importedSongs", importedSongs);
-            result.put("skippedFiles", skippedFiles);
-            result.put("errors", errors);
-            
-            logger.info("Library scan completed. Scanned: {}, Imported: {}, Skipped: {}", 
-                       scannedFiles, importedSongs, skippedFiles);
-
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.put("status", "error");
+            result.put("message", "Library scan was interrupted");
         } catch (Exception e) {
             logger.error("Error during library scan", e);
             result.put("status", "error");
@@ -101,13 +161,246 @@ public class MusicLibraryService {
         return result;
     }
 
+    private void scanLibrary(Path root, Map<String, Object> result, LibraryScanJob job) throws InterruptedException {
+        LibraryManifest manifest = new LibraryManifest(
+                libraryFileRepository.findByPathStartingWith(root + File.separator));
+
+        int readers = readerThreads > 0
+                ? readerThreads
+                : Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        LibraryScanPipeline<ScannedTrack> pipeline =
+                new LibraryScanPipeline<>(readers, scanQueueCapacity, scanBatchSize, meterRegistry);
+        AtomicInteger importedSongs = new AtomicInteger();
+        SongDedupIndex dedup = SongDedupIndex.load(songRepository, artistRepository);
+        if (job != null) {
+            job.attach(pipeline, importedSongs);
+        }
+        // Shard -> whether this node holds its lease; shards are claimed as the walker reaches them
+        Map<String, Boolean> shards = new ConcurrentHashMap<>();
+        try {
+            pipeline.run(root,
+                    (path, attributes) -> isSupportedAudioFile(path) && claimShard(shards, root, path)
+                            && manifest.needsRead(path, attributes),
+                    path -> {
+                        // Files queued before this node lost the shard's lease are left to its new holder
+                        if (!claimShard(shards, root, path)) {
+                            return null;
+                        }
+                        // Throttled scans wait for their read budget; a cancelled wait skips the file
+                        if (job != null && job.isThrottled()
+                                && !scanThrottle.acquire(path.toFile().length(), pipeline::isCancelled)) {
+                            return null;
+                        }
+                        return readTrack(path, manifest);
+                    },
+                    batch -> importedSongs.addAndGet(writeBatch(batch, dedup, pipeline)));
+
+            // Only trust "not seen" when every directory could be listed, and only in shards this node scanned;
+            // a shard whose directory is gone is claimed here, so exactly one node sweeps it
+            int unavailableSongs = 0;
+            if (pipeline.isWalkComplete() && !pipeline.isCancelled()) {
+                List<LibraryFile> missing = new ArrayList<>();
+                for (LibraryFile entry : manifest.missing()) {
+                    if (claimShard(shards, root, Paths.get(entry.getPath()))) {
+                        missing.add(entry);
+                    }
+                }
+                unavailableSongs = markMissing(missing);
+            }
+            long skippedShards = shards.values().stream().filter(claimed -> !claimed).count();
+            if (skippedShards > 0) {
+                logger.info("Skipped {} library shards held by other nodes", skippedShards);
+            }
+            long lostShards = shards.entrySet().stream()
+                    .filter(shard -> shard.getValue() && !leaseService.holds(shardLease(shard.getKey())))
+                    .count();
+            if (lostShards > 0) {
+                logger.warn("Lost {} library shards to other nodes during the scan", lostShards);
+            }
+
+            int scannedFiles = (int) pipeline.getReadCount();
+            result.put("status", pipeline.isCancelled() ? "cancelled" : "success");
+            result.put("scannedFiles", scannedFiles);
+            result.put("unchangedFiles", manifest.seenCount() - scannedFiles);
+            result.put("importedSongs", importedSongs.get());
+            result.put("skippedFiles", scannedFiles - importedSongs.get());
+            result.put("unavailableSongs", unavailableSongs);
+            result.put("errors", pipeline.getErrors());
+            result.put("errorCount", pipeline.getErrorCount());
+            result.put("readerThreads", readers);
+            result.put("shards", shards.size() - skippedShards);
+            result.put("skippedShards", skippedShards);
+            result.put("lostShards", lostShards);
+            result.put("stages", pipeline.getStageStats());
+            
+            logger.info("Library scan completed. Scanned: {}, Unchanged: {}, Imported: {}, Unavailable: {}, Stages: {}",
+                       scannedFiles, manifest.seenCount() - scannedFiles, importedSongs.get(), unavailableSongs,
+                       pipeline.getStageStats());
+        } finally {
+            shards.forEach((shard, claimed) -> {
+                if (claimed) {
+                    leaseService.release(shardLease(shard));
+                }
+            });
+        }
+    }
+
+    // Claims the path's shard on first sight, and afterwards answers whether this node still holds it
+    private boolean claimShard(Map<String, Boolean> shards, Path root, Path path) {
+        Path relative = root.relativize(path);
+        String shard = relative.getNameCount() > 1 ? relative.getName(0).toString() : "";
+        return shards.computeIfAbsent(shard, key -> leaseService.tryAcquire(shardLease(key)))
+                && leaseService.holds(shardLease(shard));
+    }
+
+    private static String shardLease(String shard) {
+        return "library-shard:" + (shard.isEmpty() ? "." : shard);
+    }
+
     private boolean isSupportedAudioFile(Path path) {
         String filename = path.getFileName().toString().toLowerCase();
         return SUPPORTED_FORMATS.stream().anyMatch(ext -> filename.endsWith("." + ext));
     }
 
-    @Transactional
-    private boolean importSongFromFile(File file) {
+    /**
+     * Imports a single file, e.g. one that appeared after the last scan. Returns false if it was a duplicate.
+     */
+    public boolean importSongFromFile(File file) {
+        Path path = file.toPath();
+        scanLock.lock();
+        try {
+            return importFile(path, manifestFor(path));
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Brings one file in line with the disk: imports it if new, refreshes its song if changed, and does
+     * nothing if the manifest says it is unchanged. A path that no longer exists is treated as removed.
+     * Returns true if a song was written.
+     */
+    public boolean refreshFile(Path path) {
+        if (!Files.exists(path)) {
+            removeFiles(path);
+            return false;
+        }
+        if (!Files.isRegularFile(path) || !isSupportedAudioFile(path)) {
+            return false;
+        }
+        scanLock.lock();
+        try {
+            LibraryManifest manifest = manifestFor(path);
+            if (!manifest.needsRead(path, Files.readAttributes(path, BasicFileAttributes.class))) {
+                return false;
+            }
+            return importFile(path, manifest);
+        } catch (IOException e) {
+            logger.warn("Could not read attributes of {}", path, e);
+            return false;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Marks the songs of a deleted file, or of every file under a deleted directory, unavailable.
+     * Returns the number of songs marked.
+     */
+    public int removeFiles(Path path) {
+        String key = LibraryManifest.key(path);
+        scanLock.lock();
+        try {
+            List<LibraryFile> entries = new ArrayList<>(libraryFileRepository.findByPathStartingWith(key + File.separator));
+            libraryFileRepository.findByPath(key).ifPresent(entries::add);
+            return markMissing(entries);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    private LibraryManifest manifestFor(Path path) {
+        return new LibraryManifest(
+                libraryFileRepository.findByPath(LibraryManifest.key(path)).map(List::of).orElse(List.of()));
+    }
+
+    private boolean importFile(Path path, LibraryManifest manifest) {
+        ScannedTrack track = readTrack(path, manifest);
+        Song saved = transactionTemplate.execute(status -> {
+            leaseService.lockWrites();
+            return writeTrack(track, null);
+        });
+        if (saved == null) {
+            return false;
+        }
+        streamMediaIndex.register(saved);
+        searchIndex.indexSong(saved);
+        return true;
+    }
+
+    /**
+     * Reader stage: everything that touches the file (hash, tags, audio header, seek table) happens
+     * here, on the reader pool, so the writer only talks to the database.
+     */
+    private ScannedTrack readTrack(Path path, LibraryManifest manifest) {
+        File file = path.toFile();
+        long size = file.length();
+        long modified = file.lastModified();
+        LibraryFile entry = manifest.get(path);
+
+        String contentHash = null;
+        Long movedSongId = null;
+        if (contentHashEnabled) {
+            try {
+                contentHash = sha256(path);
+            } catch (IOException e) {
+                logger.warn("Could not hash {}", path, e);
+            }
+            LibraryFile sameContent = manifest.findByHash(contentHash);
+            if (sameContent != null && entry == null) {
+                if (Files.exists(Path.of(sameContent.getPath()))) {
+                    // A byte-for-byte copy of a file that already has a song; no need to read its tags
+                    logger.debug("{} has the same content as {}", path, sameContent.getPath());
+                    return ScannedTrack.knownContent(file, entry, size, modified, contentHash);
+                }
+                // The same file, moved or renamed: read it as usual and re-point its song
+                movedSongId = sameContent.getSongId();
+            }
+        }
+
+        SeekTable seekTable = null;
+        try {
+            seekTable = SeekTableBuilder.build(path);
+        } catch (Exception e) {
+            logger.warn("Could not build seek table for {}", path, e);
+        }
+
+        FastTagReader.Tags tags = null;
+        if (fastTagsEnabled) {
+            try {
+                tags = FastTagReader.read(path);
+            } catch (IOException | RuntimeException e) {
+                logger.debug("Fast tag read failed for {}; falling back to jaudiotagger", path, e);
+            }
+        }
+
+        String fingerprint = null;
+        if (fingerprintEnabled) {
+            try {
+                // Without a header read the payload is unknown and the whole file is sampled
+                fingerprint = tags != null
+                        ? AudioFingerprint.compute(path, tags.audioOffset(), tags.audioLength())
+                        : AudioFingerprint.compute(path, 0, 0);
+            } catch (IOException e) {
+                logger.warn("Could not fingerprint {}", path, e);
+            }
+        }
+        if (tags != null) {
+            String coverHash = coverArtService.extract(path, tags);
+            return fromTags(file, entry, tags, size, modified, contentHash, fingerprint, coverHash, seekTable,
+                    movedSongId);
+        }
+
         try {
             // Extract metadata using jaudiotagger
             AudioFile audioFile = AudioFileIO.read(file);
@@ -118,84 +411,285 @@ public class MusicLibraryService {
             String album = getTagField(tag, FieldKey.ALBUM, "Unknown Album");
             String genre = getTagField(tag, FieldKey.GENRE, "Unknown");
             int duration = audioFile.getAudioHeader().getTrackLength();
-
-            // Check if song already exists with normalized comparison
-            if (isDuplicate(title, artistName)) {
-                logger.debug("Song already exists: {} by {}", title, artistName);
-                return false;
-            }
-
-            // Get or create artist
-            Artist artist = artistRepository.findByName(artistName)
-                .orElseGet(() -> {
-                    Artist newArtist = new Artist();
-                    newArtist.setName(artistName);
-                    newArtist.setBio("Auto-imported artist");
-                    newArtist.setCountry("Unknown");
-                    return artistRepository.save(newArtist);
-                });
-
-            // Create song
-            Song song = new Song();
-            song.setTitle(title);
-            song.setArtist(artist);
-            song.setAlbum(album);
-            song.setGenre(genre);
-            song.setDuration(duration);
-            song.setFileUrl("file://" + file.getAbsolutePath());
-            song.setCoverImageUrl("/images/default-cover.jpg");
-            song.setPlayCount(0);
-            song.setReleasedAt(LocalDateTime.now());
-
-            songRepository.save(song);
-            logger.info("Imported song: {} by {} from {}", title, artistName, file.getName());
-            return true;
+            Artwork artwork = tag != null && coverArtService.isEnabled() ? tag.getFirstArtwork() : null;
+            String coverHash = artwork != null ? coverArtService.store(artwork.getBinaryData()) : null;
+            return new ScannedTrack(file, entry, title, artistName, album, genre, duration, false, false,
+                    size, modified, contentHash, fingerprint, coverHash, seekTable, movedSongId);
 
         } catch (Exception e) {
             logger.error("Error reading metadata from file: {}", file.getName(), e);
             // Create basic entry for files without proper metadata
-            return importSongWithBasicInfo(file);
+            String filename = file.getName();
+            String title = filename.substring(0, filename.lastIndexOf('.'));
+            // The seek table spans the whole stream; without one, default to 3 minutes
+            int duration = seekTable != null ? seekTable.size() * seekTable.getIntervalMillis() / 1000 : 180;
+            return new ScannedTrack(file, entry, title, "Unknown Artist", "Unknown Album", "Unknown",
+                    duration, true, false, size, modified, contentHash, fingerprint, null, seekTable, movedSongId);
         }
     }
 
-    private boolean importSongWithBasicInfo(File file) {
+    private static ScannedTrack fromTags(File file, LibraryFile entry, FastTagReader.Tags tags, long size,
+                                         long modified, String contentHash, String fingerprint,
+                                         String coverHash, SeekTable seekTable, Long movedSongId) {
+        String filename = file.getName();
+        boolean basicInfo = !tags.hasMetadata();
+        String title = tags.title() != null ? tags.title()
+                : basicInfo ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        return new ScannedTrack(file, entry, title,
+                tags.artist() != null ? tags.artist() : "Unknown Artist",
+                tags.album() != null ? tags.album() : "Unknown Album",
+                tags.genre() != null ? tags.genre() : "Unknown",
+                tags.durationSeconds(), basicInfo, false, size, modified, contentHash, fingerprint, coverHash,
+                seekTable, movedSongId);
+    }
+
+    /** Writer stage: one transaction per batch, with the media index updated only after it commits. */
+    private int writeBatch(List<ScannedTrack> batch, SongDedupIndex dedup, LibraryScanPipeline<?> pipeline) {
         try {
-            String filename = file.getName();
-            String title = filename.substring(0, filename.lastIndexOf('.'));
-            String artistName = "Unknown Artist";
+            List<Song> saved = transactionTemplate.execute(status -> {
+                // Other nodes' writers wait here, so their songs and artists are committed and visible
+                if (leaseService.lockWrites()) {
+                    dedup.refresh();
+                }
+                List<Song> songs = new ArrayList<>(batch.size());
+                for (ScannedTrack track : batch) {
+                    Song song = writeTrack(track, dedup);
+                    if (song != null) {
+                        songs.add(song);
+                    }
+                }
+                return songs;
+            });
+            for (Song song : saved) {
+                streamMediaIndex.register(song);
+                searchIndex.indexSong(song);
+            }
+            return saved.size();
+        } catch (Exception e) {
+            logger.error("Error writing batch of {} songs", batch.size(), e);
+            pipeline.recordError("Batch starting at " + batch.get(0).file().getName() + ": " + e.getMessage());
+            // Artists and songs created in the rolled back transaction no longer exist
+            dedup.reload();
+            return 0;
+        }
+    }
 
+    /**
+     * Creates or updates the song for a file and records the file in the manifest. {@code dedup} is
+     * the scan's index, or null for a single file, which then looks up duplicates by artist.
+     */
+    private Song writeTrack(ScannedTrack track, SongDedupIndex dedup) {
+        String path = LibraryManifest.key(track.file().toPath());
+        LibraryFile manifestEntry = track.manifestEntry();
+        if (manifestEntry == null && dedup == null) {
+            // Another node's watcher may have imported the file since this one read the manifest
+            manifestEntry = libraryFileRepository.findByPath(path).orElse(null);
+        }
+        Song song = null;
+        if (!track.knownContent()) {
+            Song existing = null;
+            if (manifestEntry != null && manifestEntry.getSongId() != null) {
+                existing = songRepository.findById(manifestEntry.getSongId()).orElse(null);
+            }
+            if (existing == null && track.movedSongId() != null) {
+                existing = songRepository.findById(track.movedSongId()).orElse(null);
+                if (existing != null) {
+                    logger.info("Song {} moved from {} to {}", existing.getId(), existing.getFileUrl(), path);
+                }
+            }
+            if (existing == null) {
+                existing = findMoved(track, dedup);
+            }
+            song = existing != null ? updateSong(existing, track, dedup) : insertSong(track, dedup);
+            if (song != null && song.getId() != null) {
+                songSeekService.save(song.getId(), track.size(), track.modified(), track.seekTable());
+            }
+        }
+
+        LibraryFile entry = manifestEntry != null ? manifestEntry : new LibraryFile();
+        entry.setPath(path);
+        entry.setFileSize(track.size());
+        entry.setFileModified(track.modified());
+        entry.setContentHash(track.contentHash());
+        entry.setSongId(song != null ? song.getId() : null);
+        entry.setScannedAt(LocalDateTime.now());
+        libraryFileRepository.save(entry);
+        return song;
+    }
+
+    private Song insertSong(ScannedTrack track, SongDedupIndex dedup) {
+        String title = track.title();
+        String artistName = track.artistName();
+        String fileUrl = "file://" + track.file().getAbsolutePath();
+
+        Song duplicate;
+        if (dedup != null) {
+            duplicate = dedup.findSong(artistName, title);
+        } else if (track.basicInfo()) {
             // Check if already exists
-            Optional<Song> existingSong = songRepository.findByTitleAndArtist_Name(title, artistName);
-            if (existingSong.isPresent()) {
-                return false;
+            duplicate = songRepository.findByTitleAndArtist_Name(title, artistName).orElse(null);
+        } else {
+            // Check if song already exists with normalized comparison
+            duplicate = findDuplicate(title, artistName);
+        }
+        if (duplicate != null) {
+            if (fileUrl.equals(duplicate.getFileUrl()) || !Boolean.TRUE.equals(duplicate.getAvailable())
+                    || isFileGone(duplicate)) {
+                // Same file imported before the manifest existed, or a song whose file went missing and is
+                // back, possibly under a new path (songs imported before fingerprints only match by tags)
+                duplicate.setFileUrl(fileUrl);
+                duplicate.setAvailable(true);
+                if (duplicate.getAudioFingerprint() == null) {
+                    duplicate.setAudioFingerprint(track.fingerprint());
+                }
+                applyCover(duplicate, track);
+                return songRepository.save(duplicate);
             }
+            logger.debug("Song already exists: {} by {}", title, artistName);
+            return null;
+        }
 
-            // Get or create unknown artist
-            Artist artist = artistRepository.findByName(artistName)
-                .orElseGet(() -> {
-                    Artist newArtist = new Artist();
-                    newArtist.setName(artistName);
-                    newArtist.setBio("Default artist for songs without metadata");
-                    newArtist.setCountry("Unknown");
-                    return artistRepository.save(newArtist);
-                });
-
-            Song song = new Song();
-            song.setTitle(title);
-            song.setArtist(artist);
-            song.setAlbum("Unknown Album");
-            song.setGenre("Unknown");
-            song.setDuration(180); // Default 3 minutes
-            song.setFileUrl("file://" + file.getAbsolutePath());
-            song.setCoverImageUrl("/images/default-cover.jpg");
-            song.setPlayCount(0);
-            song.setReleasedAt(LocalDateTime.now());
-
-            songRepository.save(song);
-            return true;
-        } catch (Exception e) {
-            logger.error("Error creating basic song entry: {}", file.getName(), e);
-            return false;
+        // Create song
+        Song song = new Song();
+        song.setTitle(title);
+        song.setArtist(resolveArtist(artistName, track.basicInfo(), dedup));
+        song.setAlbum(track.album());
+        song.setGenre(track.genre());
+        song.setDuration(track.duration());
+        song.setFileUrl(fileUrl);
+        song.setAudioFingerprint(track.fingerprint());
+        applyCover(song, track);
+        song.setPlayCount(0);
+        song.setReleasedAt(LocalDateTime.now());
+
+        Song savedSong = songRepository.save(song);
+        if (dedup != null) {
+            dedup.add(artistName, title, track.fingerprint(), savedSong.getId());
+        }
+        logger.debug("Imported song: {} by {} from {}", title, artistName, track.file().getName());
+        return savedSong;
+    }
+
+    // The file behind an existing song changed: refresh its metadata in place so plays and playlists are kept
+    private Song updateSong(Song song, ScannedTrack track, SongDedupIndex dedup) {
+        if (!track.basicInfo()) {
+            song.setTitle(track.title());
+            song.setArtist(resolveArtist(track.artistName(), false, dedup));
+            song.setAlbum(track.album());
+            song.setGenre(track.genre());
+            song.setDuration(track.duration());
+        }
+        song.setFileUrl("file://" + track.file().getAbsolutePath());
+        song.setAvailable(true);
+        if (track.fingerprint() != null) {
+            song.setAudioFingerprint(track.fingerprint());
+        }
+        applyCover(song, track);
+        logger.debug("Updated song {} from changed file {}", song.getId(), track.file().getName());
+        return songRepository.save(song);
+    }
+
+    // Embedded artwork replaces the placeholder or an earlier extracted cover, never a URL set by an admin
+    private void applyCover(Song song, ScannedTrack track) {
+        if (CoverArtService.isGeneratedCover(song.getCoverImageUrl())) {
+            song.setCoverImageUrl(track.coverHash() != null
+                    ? coverArtService.coverUrl(track.coverHash())
+                    : CoverArtService.DEFAULT_COVER);
+        }
+    }
+
+    /**
+     * A file without a manifest entry whose audio matches a song whose own file is gone is that song,
+     * moved or renamed: re-point it instead of importing a duplicate. A song whose file still exists
+     * keeps it; the new file is then a copy and goes through the usual duplicate check.
+     */
+    private Song findMoved(ScannedTrack track, SongDedupIndex dedup) {
+        if (track.fingerprint() == null) {
+            return null;
+        }
+        Song candidate = dedup != null
+                ? dedup.findByFingerprint(track.fingerprint())
+                : songRepository.findFirstByAudioFingerprint(track.fingerprint()).orElse(null);
+        if (candidate == null) {
+            return null;
+        }
+        String fileUrl = "file://" + track.file().getAbsolutePath();
+        if (!fileUrl.equals(candidate.getFileUrl()) && Boolean.TRUE.equals(candidate.getAvailable())
+                && !isFileGone(candidate)) {
+            return null;
+        }
+        logger.info("Song {} moved from {} to {}", candidate.getId(), candidate.getFileUrl(), fileUrl);
+        return candidate;
+    }
+
+    // Only imported songs point at local files; other URLs are never treated as missing
+    private static boolean isFileGone(Song song) {
+        String fileUrl = song.getFileUrl();
+        return fileUrl != null && fileUrl.startsWith("file://") && !Files.exists(StreamMediaIndex.toPath(fileUrl));
+    }
+
+    private Artist resolveArtist(String artistName, boolean basicInfo, SongDedupIndex dedup) {
+        // Get or create artist
+        Artist artist = dedup != null
+                ? dedup.findArtist(artistName)
+                : artistRepository.findByName(artistName).orElse(null);
+        if (artist == null) {
+            artist = new Artist();
+            artist.setName(artistName);
+            artist.setBio(basicInfo
+                    ? "Default artist for songs without metadata"
+                    : "Auto-imported artist");
+            artist.setCountry("Unknown");
+            artist = artistRepository.save(artist);
+            if (dedup != null) {
+                dedup.addArtist(artistName, artist);
+            }
+        }
+        return artist;
+    }
+
+    /** Marks the songs of deleted files unavailable and drops their manifest rows. */
+    private int markMissing(List<LibraryFile> missing) {
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        List<Long> unavailable = transactionTemplate.execute(status -> {
+            List<Long> songIds = new ArrayList<>();
+            for (LibraryFile entry : missing) {
+                if (entry.getSongId() != null) {
+                    songRepository.findById(entry.getSongId())
+                            .filter(song -> ("file://" + entry.getPath()).equals(song.getFileUrl()))
+                            .filter(song -> !Boolean.FALSE.equals(song.getAvailable()))
+                            .ifPresent(song -> {
+                                song.setAvailable(false);
+                                songRepository.save(song);
+                                songIds.add(song.getId());
+                            });
+                }
+                libraryFileRepository.delete(entry);
+            }
+            return songIds;
+        });
+        for (Long songId : unavailable) {
+            streamMediaIndex.invalidate(songId);
+        }
+        logger.info("{} files disappeared from the library; marked {} songs unavailable",
+                missing.size(), unavailable.size());
+        return unavailable.size();
+    }
+
+    private static String sha256(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -216,24 +710,28 @@ public class MusicLibraryService {
      * This helps avoid duplicates with slight variations in spelling, case, or special characters.
      */
     private boolean isDuplicate(String title, String artistName) {
-        String normalizedTitle = normalizeString(title);
-        String normalizedArtist = normalizeString(artistName);
-        
+        return findDuplicate(title, artistName) != null;
+    }
+
+    // Single-file imports have no scan index; they compare against the artist's songs instead
+    private Song findDuplicate(String title, String artistName) {
+        String key = SongDedupIndex.key(artistName, title);
+
         // Get all songs by the artist
         Artist artist = artistRepository.findByName(artistName).orElse(null);
         if (artist == null) {
-            return false;
+            return null;
         }
         
         // Check if any existing song matches the normalized title
         List<Song> existingSongs = songRepository.findByArtist(artist);
         for (Song song : existingSongs) {
-            if (normalizeString(song.getTitle()).equals(normalizedTitle)) {
-                return true;
+            if (SongDedupIndex.key(artistName, song.getTitle()).equals(key)) {
+                return song;
             }
         }
         
-        return false;
+        return null;
     }
 
     /**
@@ -243,15 +741,19 @@ public class MusicLibraryService {
      * - Removing special characters and punctuation
      * - Trimming whitespace
      */
-    private String normalizeString(String input) {
-        if (input == null) {
-            return "";
+    public static String normalizeString(String input) {
+        return SongDedupIndex.normalize(input);
+    }
+
+    private record ScannedTrack(File file, LibraryFile manifestEntry, String title, String artistName, String album,
+                                String genre, int duration, boolean basicInfo, boolean knownContent,
+                                long size, long modified, String contentHash, String fingerprint,
+                                String coverHash, SeekTable seekTable, Long movedSongId) {
+
+        static ScannedTrack knownContent(File file, LibraryFile entry, long size, long modified, String contentHash) {
+            return new ScannedTrack(file, entry, null, null, null, null, 0, false, true,
+                    size, modified, contentHash, null, null, null, null);
         }
-        
-        return input.toLowerCase()
-                .replaceAll("[^a-z0-9\\s]", "") // Remove special characters
-                .replaceAll("\\s+", " ")        // Normalize whitespace
-                .trim();
     }
 
     public Map<String, Object> getLibraryStats() {
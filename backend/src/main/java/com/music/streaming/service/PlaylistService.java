@@ -12,8 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
 
 @Service
 public class PlaylistService {
@@ -31,15 +30,11 @@ public class PlaylistService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return playlistRepository.findByUserId(user.getId()).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(playlistRepository.findByUserId(user.getId()));
     }
 
     public List<PlaylistDTO> getPublicPlaylists() {
-        return playlistRepository.findAllPublic().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(playlistRepository.findAllPublic());
     }
 
     public PlaylistDTO getPlaylistById(Long id) {
@@ -96,31 +91,49 @@ public class PlaylistService {
     }
 
     private PlaylistDTO convertToDTO(Playlist playlist) {
-        PlaylistDTO dto = new PlaylistDTO();
-        dto.setId(playlist.getId());
-        dto.setName(playlist.getName());
-        dto.setDescription(playlist.getDescription());
-        dto.setCoverImageUrl(playlist.getCoverImageUrl());
-        dto.setPublic(playlist.isPublic());
-        
-        List<SongDTO> songDTOs = playlist.getSongs().stream()
-                .map(song -> {
-                    SongDTO songDTO = new SongDTO();
-                    songDTO.setId(song.getId());
-                    songDTO.setTitle(song.getTitle());
-                    songDTO.setArtistName(song.getArtist().getName());
-                    songDTO.setArtistId(song.getArtist().getId());
-                    songDTO.setAlbum(song.getAlbum());
-                    songDTO.setDuration(song.getDuration());
-                    songDTO.setGenre(song.getGenre());
-                    songDTO.setFileUrl(song.getFileUrl());
-                    songDTO.setCoverImageUrl(song.getCoverImageUrl());
-                    songDTO.setPlayCount(song.getPlayCount());
-                    return songDTO;
-                })
-                .collect(Collectors.toList());
-        
-        dto.setSongs(songDTOs);
-        return dto;
+        return convertToDTOs(List.of(playlist)).get(0);
+    }
+
+    // Song lists come from the playlist_songs rows and the SongDTO projection, never from the
+    // entities' collections, so any number of playlists costs two queries
+    private List<PlaylistDTO> convertToDTOs(List<Playlist> playlists) {
+        if (playlists.isEmpty()) {
+            return List.of();
+        }
+        List<Long> playlistIds = playlists.stream().map(Playlist::getId).toList();
+        Map<Long, List<Long>> songIdsByPlaylist = new HashMap<>();
+        Set<Long> songIds = new HashSet<>();
+        // playlist id, song id
+        for (Object[] row : playlistRepository.findSongIdRows(playlistIds)) {
+            songIdsByPlaylist.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            songIds.add((Long) row[1]);
+        }
+        Map<Long, SongDTO> songs = new HashMap<>();
+        if (!songIds.isEmpty()) {
+            for (SongDTO song : songRepository.findDTOsByIds(songIds)) {
+                songs.put(song.getId(), song);
+            }
+        }
+
+        List<PlaylistDTO> dtos = new ArrayList<>(playlists.size());
+        for (Playlist playlist : playlists) {
+            PlaylistDTO dto = new PlaylistDTO();
+            dto.setId(playlist.getId());
+            dto.setName(playlist.getName());
+            dto.setDescription(playlist.getDescription());
+            dto.setCoverImageUrl(playlist.getCoverImageUrl());
+            dto.setPublic(playlist.isPublic());
+            List<Long> ids = songIdsByPlaylist.getOrDefault(playlist.getId(), List.of());
+            List<SongDTO> playlistSongs = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                SongDTO song = songs.get(id);
+                if (song != null) {
+                    playlistSongs.add(song);
+                }
+            }
+            dto.setSongs(playlistSongs);
+            dtos.add(dto);
+        }
+        return dtos;
     }
 }
@@ -1,14 +1,14 @@
 package com.music.streaming.service;
 
-import com.music.streaming.model.Song;
+import com.music.streaming.dto.SongDTO;
 import com.music.streaming.repository.PlayHistoryRepository;
 import com.music.streaming.repository.SongRepository;
 import com.music.streaming.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class RecommendationService {
@@ -22,7 +22,7 @@ public class RecommendationService {
     @Autowired
     private UserRepository userRepository;
 
-    public List<Song> getRecommendations(String username) {
+    public List<SongDTO> getRecommendations(String username) {
         var user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -31,28 +31,20 @@ public class RecommendationService {
         
         if (mostPlayedSongs.isEmpty()) {
             // Return top songs if no history
-            return songRepository.findTop10ByOrderByPlayCountDesc();
+            return songRepository.findTopDTOs(PageRequest.of(0, 10));
         }
 
-        // Extract song IDs and get genres
-        Set<String> preferredGenres = new HashSet<>();
+        // Extract song IDs and get their genres in one query
+        List<Long> songIds = new ArrayList<>(mostPlayedSongs.size());
         for (Object[] result : mostPlayedSongs) {
-            Long songId = (Long) result[0];
-            songRepository.findById(songId).ifPresent(song -> 
-                preferredGenres.add(song.getGenre())
-            );
+            songIds.add((Long) result[0]);
         }
-
-        // Get songs from preferred genres that user hasn't played much
-        List<Song> recommendations = new ArrayList<>();
-        for (String genre : preferredGenres) {
-            recommendations.addAll(songRepository.findByGenre(genre));
+        List<String> preferredGenres = songRepository.findGenresByIds(songIds);
+        if (preferredGenres.isEmpty()) {
+            return List.of();
         }
 
-        // Remove duplicates and limit to 20
-        return recommendations.stream()
-                .distinct()
-                .limit(20)
-                .collect(Collectors.toList());
+        // Up to 20 songs from the preferred genres
+        return songRepository.findDTOsByGenres(preferredGenres, PageRequest.of(0, 20));
     }
 }
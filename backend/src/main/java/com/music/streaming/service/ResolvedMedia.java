@@ -0,0 +1,85 @@
+package com.music.streaming.service;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Everything the stream endpoint needs to know about a song's file, resolved once and kept in
+ * {@link StreamMediaIndex}: canonical path, size, modification time, content type and entity tag.
+ */
+public final class ResolvedMedia {
+
+    private final long songId;
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final String contentType;
+    private final MediaType mediaType;
+    private final String etag;
+    private final int durationSeconds;
+
+    // Last time the file attributes were confirmed against the filesystem
+    volatile long checkedAt;
+
+    // Loaded on the first seek request; an empty table means none is stored for this file version
+    volatile SeekTable seekTable;
+
+    ResolvedMedia(long songId, Path path, long size, long lastModified, String contentType, int durationSeconds,
+                  long checkedAt) {
+        this.songId = songId;
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.mediaType = MediaType.parseMediaType(contentType);
+        // Strong validator: changes whenever the file is replaced or rewritten
+        this.etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+        this.durationSeconds = durationSeconds;
+        this.checkedAt = checkedAt;
+    }
+
+    public long getSongId() {
+        return songId;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /** Average encoded bitrate in bytes per second, or 0 when the duration is unknown. */
+    public long getBytesPerSecond() {
+        return durationSeconds > 0 ? size / durationSeconds : 0;
+    }
+
+    public FileChannel open() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.READ);
+    }
+}
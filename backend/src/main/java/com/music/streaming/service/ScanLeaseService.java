@@ -0,0 +1,212 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.ScanLease;
+import com.music.streaming.repository.ScanLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates library scans between backend replicas through the {@code scan_leases} table.
+ *
+ * A node claims a named lease with a conditional update and keeps it alive with a periodic renewal;
+ * a lease whose holder stopped renewing is free again after {@code music.library.scan.lease.ttl-ms}.
+ * When a renewal finds that another node took a lease over, the lease is dropped here too and
+ * {@link #holds(String)} turns false for it.
+ *
+ * Renewal runs on a thread of its own rather than on Spring's shared scheduler thread, where a
+ * search index rebuild over a large catalog or any other long scheduled task could hold it back
+ * past the TTL and hand the lease to another node in the middle of a scan.
+ * Writes of songs and artists are additionally serialized across nodes by a row lock on the
+ * {@value #WRITE_LOCK} row, held for the length of each write transaction.
+ */
+@Service
+public class ScanLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanLeaseService.class);
+
+    static final String WRITE_LOCK = "library-write";
+
+    @Value("${music.library.scan.lease.enabled:true}")
+    private boolean enabled;
+
+    // Must comfortably exceed the renewal interval and any clock skew between nodes
+    @Value("${music.library.scan.lease.ttl-ms:120000}")
+    private long ttlMillis;
+
+    @Value("${music.library.scan.lease.renew-ms:30000}")
+    private long renewMillis;
+
+    // Defaults to the host name plus a random suffix, so a restarted pod is a new holder
+    @Value("${music.library.scan.lease.node-id:}")
+    private String configuredNodeId;
+
+    @Autowired
+    private ScanLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String nodeId;
+    private TransactionTemplate newTransaction;
+    private ScheduledExecutorService renewer;
+
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+    private final Set<String> created = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                ? configuredNodeId
+                : hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        // Lease updates commit on their own, whatever transaction the caller is in
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (enabled && renewMillis > 0) {
+            renewer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "scan-lease-renewer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            renewer.scheduleWithFixedDelay(this::renewHeld, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Claims the lease for this node. Returns false if another node holds it and it has not expired.
+     * Claimed leases are renewed until {@link #release(String)}.
+     */
+    public boolean tryAcquire(String name) {
+        if (!enabled) {
+            return true;
+        }
+        ensureExists(name);
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = newTransaction.execute(status ->
+                leaseRepository.claim(name, nodeId, now, now.plusNanos(ttlMillis * 1_000_000)));
+        if (claimed != null && claimed > 0) {
+            held.add(name);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether this node still holds the lease. Turns false once a renewal finds that another node
+     * took the lease over, so work guarded by it can stop.
+     */
+    public boolean holds(String name) {
+        return !enabled || held.contains(name);
+    }
+
+    public void release(String name) {
+        if (!enabled || !held.remove(name)) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> leaseRepository.release(name, nodeId));
+        } catch (RuntimeException e) {
+            // It expires on its own
+            logger.warn("Could not release lease {}", name, e);
+        }
+    }
+
+    /**
+     * Blocks until no other node is writing library rows, then keeps them out until the caller's
+     * transaction ends. Must be called inside that transaction. Returns false when leases are
+     * disabled, i.e. this node is assumed to be the only writer.
+     */
+    public boolean lockWrites() {
+        if (!enabled) {
+            return false;
+        }
+        ensureExists(WRITE_LOCK);
+        leaseRepository.lockByName(WRITE_LOCK);
+        return true;
+    }
+
+    public void renewHeld() {
+        if (held.isEmpty()) {
+            return;
+        }
+        List<String> names = new ArrayList<>(held);
+        try {
+            Integer renewed = newTransaction.execute(status -> leaseRepository.renew(names, nodeId,
+                    LocalDateTime.now().plusNanos(ttlMillis * 1_000_000)));
+            if (renewed == null || renewed < names.size()) {
+                // Expired and taken over while this node was stalled; the new holder does that work now
+                List<String> lost = new ArrayList<>(names);
+                lost.removeAll(newTransaction.execute(status -> leaseRepository.findOwned(names, nodeId)));
+                held.removeAll(lost);
+                logger.warn("Scan leases {} were taken over by another node; stopping work under them", lost);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew scan leases {}", names, e);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("nodeId", nodeId);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("heldLeases", new TreeSet<>(held));
+        return stats;
+    }
+
+    private void ensureExists(String name) {
+        if (created.contains(name)) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!leaseRepository.existsById(name)) {
+                    leaseRepository.saveAndFlush(new ScanLease(name, null, null, null));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("Lease {} was created by another node", name);
+        }
+        created.add(name);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
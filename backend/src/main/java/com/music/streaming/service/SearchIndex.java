@@ -0,0 +1,721 @@
+package com.music.streaming.service;
+
+import com.music.streaming.dto.SuggestionDTO;
+import com.music.streaming.model.Artist;
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.SongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory inverted index over song titles, artist names and albums, so searching is a few hash
+ * lookups instead of a {@code LIKE '%keyword%'} scan of the songs and artists tables.
+ *
+ * Text is normalized (lowercased, accents stripped, punctuation dropped) and split into words. Every
+ * word is indexed under its one and two character prefixes and under its trigrams; a query word of
+ * three or more characters intersects the postings of its trigrams and the survivors are checked for
+ * the actual substring, shorter query words use the prefix postings. All query words must match.
+ * Matches are ranked by where and how well the words matched (title over artist over album, whole
+ * word over prefix over substring) plus a little for popularity (play or follower count).
+ *
+ * In fuzzy mode every query word of {@code MIN_FUZZY_LENGTH} or more characters may also match the
+ * indexed words within one edit (two from seven characters on), found in a {@link SymSpellDictionary}
+ * of the indexed words, at a lower score per edit; so "beatels" finds "The Beatles".
+ *
+ * Autocomplete is served from a {@link CompletionTrie} over song titles, artist names and albums,
+ * weighted by play count (summed for albums; plus followers for artists). It is rebuilt from the
+ * index, without touching the database, at most every {@code music.search.suggest.refresh-ms} after
+ * a change.
+ *
+ * The index is built when the application is ready and rebuilt every {@code music.search.index.rebuild-ms}
+ * to pick up writes from other nodes; in between, the services writing songs and artists keep it
+ * current. Such writes made while a rebuild is loading are logged and replayed onto the new index
+ * before it replaces the old one, so they are not lost with it. It only hands out ids: callers load the entities, so an id that is not (or no longer) in
+ * the database simply drops out of the results.
+ */
+@Service
+public class SearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final double TITLE_WEIGHT = 3;
+    private static final double ARTIST_WEIGHT = 2;
+    private static final double ALBUM_WEIGHT = 1;
+
+    private static final double WORD_MATCH = 1.0;
+    private static final double PREFIX_MATCH = 0.7;
+    private static final double SUBSTRING_MATCH = 0.4;
+
+    // Per factor of ten plays or followers; enough to order equally relevant matches
+    private static final double POPULARITY_WEIGHT = 0.5;
+
+    // Fuzzy matches score this much less per edit
+    private static final double EDIT_PENALTY = 0.3;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // Corrections tried per query word
+    private static final int MAX_CORRECTIONS = 8;
+
+    // The scanner's placeholder for untagged files; not worth suggesting
+    private static final String UNKNOWN_ALBUM = "unknown album";
+
+    @Value("${music.search.index.enabled:true}")
+    private boolean enabled;
+
+    // The deletion dictionary for fuzzy search costs a few dozen map entries per distinct word
+    @Value("${music.search.fuzzy.enabled:true}")
+    private boolean fuzzyEnabled;
+
+    @Value("${music.search.suggest.default-limit:10}")
+    private int suggestDefaultLimit;
+
+    // Completions precomputed per prefix, and so the most a suggest request can get
+    @Value("${music.search.suggest.max-limit:20}")
+    private int suggestMaxLimit;
+
+    @Value("${music.search.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${music.search.max-limit:200}")
+    private int maxLimit;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private Map<Long, SongEntry> songs = new HashMap<>();
+    private Map<Long, ArtistEntry> artists = new HashMap<>();
+    private GramIndex songGrams = new GramIndex(false);
+    private GramIndex artistGrams = new GramIndex(false);
+    // Non-null while rebuild() loads; incremental writes are recorded here and replayed onto the new index
+    private List<Runnable> changesDuringRebuild;
+
+    private volatile CompletionTrie<SuggestionDTO> completions = CompletionTrie.<SuggestionDTO>builder(1).build();
+    private volatile boolean completionsStale;
+    private volatile long lastCompletionBuildMillis;
+
+    private volatile boolean ready;
+    private volatile long lastBuildMillis;
+    private volatile long builtAt;
+
+    // Normalized title, artist and album, and the originals for display
+    private record SongEntry(long id, String title, String artist, String album, long artistId, int playCount,
+                             String displayTitle, String displayArtist, String displayAlbum) {
+        static SongEntry of(long id, String title, String artist, String album, long artistId, Integer playCount) {
+            return new SongEntry(id, normalize(title), normalize(artist), normalize(album), artistId,
+                    playCount != null ? playCount : 0, title, artist, album);
+        }
+
+        String text() {
+            return title + " " + artist + " " + album;
+        }
+    }
+
+    private record ArtistEntry(long id, String name, int followerCount, String displayName) {
+        static ArtistEntry of(long id, String name, Integer followerCount) {
+            return new ArtistEntry(id, normalize(name), followerCount != null ? followerCount : 0, name);
+        }
+    }
+
+    private record Scored(long id, double score, int popularity) {
+    }
+
+    // An album is a normalized name per artist
+    private record AlbumKey(long artistId, String album) {
+    }
+
+    // A word to look for, and how many edits away from the query word it is
+    private record Term(String word, int distance) {
+    }
+
+    private static final Comparator<Scored> BEST_FIRST = Comparator.comparingDouble(Scored::score).reversed()
+            .thenComparing(Comparator.comparingInt(Scored::popularity).reversed())
+            .thenComparingLong(Scored::id);
+
+    /** False until the first build finished; callers then fall back to the database. */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /** The number of results to return for a requested limit, which may be null. */
+    public int resultLimit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    /** Orders loaded entities like the ids they were loaded for, dropping ids that were not found. */
+    public static <T> List<T> inOrder(List<Long> ids, Iterable<T> loaded, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T entity : loaded) {
+            byId.put(idOf.apply(entity), entity);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T entity = byId.get(id);
+            if (entity != null) {
+                ordered.add(entity);
+            }
+        }
+        return ordered;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${music.search.index.rebuild-ms:600000}",
+            initialDelayString = "${music.search.index.rebuild-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /** Reloads everything from the database; searches keep using the old index until the new one is complete. */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long begin = System.nanoTime();
+        // Started before the snapshot is read, so every write the snapshot might miss is recorded
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            load(begin);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        rebuildCompletions();
+    }
+
+    private void load(long begin) {
+        Map<Long, SongEntry> newSongs = new HashMap<>();
+        GramIndex newSongGrams = new GramIndex(fuzzyEnabled);
+        for (Object[] row : songRepository.findSearchRows()) {
+            // id, title, album, play count, artist id, artist name
+            SongEntry entry = SongEntry.of((Long) row[0], (String) row[1], (String) row[5], (String) row[2],
+                    (Long) row[4], (Integer) row[3]);
+            newSongs.put(entry.id(), entry);
+            newSongGrams.add(entry.id(), entry.text());
+        }
+        Map<Long, ArtistEntry> newArtists = new HashMap<>();
+        GramIndex newArtistGrams = new GramIndex(fuzzyEnabled);
+        for (Object[] row : artistRepository.findSearchRows()) {
+            // id, name, follower count
+            ArtistEntry entry = ArtistEntry.of((Long) row[0], (String) row[1], (Integer) row[2]);
+            newArtists.put(entry.id(), entry);
+            newArtistGrams.add(entry.id(), entry.name());
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            songs = newSongs;
+            songGrams = newSongGrams;
+            artists = newArtists;
+            artistGrams = newArtistGrams;
+            // The snapshot may already hold some of these; applying a change again leaves the same state
+            for (Runnable change : changesDuringRebuild) {
+                change.run();
+            }
+            replayed = changesDuringRebuild.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastBuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        builtAt = System.currentTimeMillis();
+        ready = true;
+        logger.info("Search index built: {} songs, {} artists in {} ms, {} changes replayed", newSongs.size(),
+                newArtists.size(), lastBuildMillis, replayed);
+    }
+
+    @Scheduled(fixedDelayString = "${music.search.suggest.refresh-ms:30000}")
+    public void refreshCompletions() {
+        if (completionsStale) {
+            rebuildCompletions();
+        }
+    }
+
+    private void rebuildCompletions() {
+        long begin = System.nanoTime();
+        // Cleared first, so a change made during the build marks the new trie stale again
+        completionsStale = false;
+        CompletionTrie.Builder<SuggestionDTO> builder = CompletionTrie.builder(suggestMaxLimit);
+        lock.readLock().lock();
+        try {
+            Map<Long, Long> artistPlays = new HashMap<>();
+            Map<AlbumKey, SongEntry> albumSongs = new HashMap<>();
+            Map<AlbumKey, Long> albumPlays = new HashMap<>();
+            for (SongEntry song : songs.values()) {
+                builder.add(new SuggestionDTO("song", song.displayTitle(), song.displayArtist(), song.id()),
+                        song.playCount(), song.title());
+                artistPlays.merge(song.artistId(), (long) song.playCount(), Long::sum);
+                if (!song.album().isEmpty() && !song.album().equals(UNKNOWN_ALBUM)) {
+                    AlbumKey key = new AlbumKey(song.artistId(), song.album());
+                    albumSongs.putIfAbsent(key, song);
+                    albumPlays.merge(key, (long) song.playCount(), Long::sum);
+                }
+            }
+            for (Map.Entry<AlbumKey, Long> album : albumPlays.entrySet()) {
+                SongEntry song = albumSongs.get(album.getKey());
+                builder.add(new SuggestionDTO("album", song.displayAlbum(), song.displayArtist(), null),
+                        album.getValue(), song.album());
+            }
+            for (ArtistEntry artist : artists.values()) {
+                builder.add(new SuggestionDTO("artist", artist.displayName(), null, artist.id()),
+                        artist.followerCount() + artistPlays.getOrDefault(artist.id(), 0L), artist.name());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        completions = builder.build();
+        lastCompletionBuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+
+    /** The number of completions to return for a requested limit, which may be null. */
+    public int suggestLimit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return suggestDefaultLimit;
+        }
+        return Math.min(requested, suggestMaxLimit);
+    }
+
+    /** Songs, artists and albums with a word starting with {@code prefix}, most played first. */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return completions.complete(normalize(prefix), limit);
+    }
+
+    /** Adds or updates a song, and its artist if the index does not know it yet. */
+    public void indexSong(Song song) {
+        if (!enabled || song.getId() == null || song.getArtist() == null) {
+            return;
+        }
+        SongEntry entry = SongEntry.of(song.getId(), song.getTitle(), song.getArtist().getName(), song.getAlbum(),
+                song.getArtist().getId(), song.getPlayCount());
+        ArtistEntry artist = ArtistEntry.of(song.getArtist().getId(), song.getArtist().getName(),
+                song.getArtist().getFollowerCount());
+        completionsStale = true;
+        lock.writeLock().lock();
+        try {
+            apply(() -> putSong(entry, artist));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSong(Long songId) {
+        completionsStale = true;
+        lock.writeLock().lock();
+        try {
+            apply(() -> deleteSong(songId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds or updates an artist, e.g. after it was created or its follower count changed. */
+    public void indexArtist(Artist artist) {
+        if (!enabled || artist.getId() == null) {
+            return;
+        }
+        ArtistEntry entry = ArtistEntry.of(artist.getId(), artist.getName(), artist.getFollowerCount());
+        completionsStale = true;
+        lock.writeLock().lock();
+        try {
+            apply(() -> putArtist(entry));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void apply(Runnable change) {
+        change.run();
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private void putSong(SongEntry entry, ArtistEntry artist) {
+        SongEntry previous = songs.put(entry.id(), entry);
+        // A play count change leaves the postings alone
+        if (previous == null || !previous.text().equals(entry.text())) {
+            if (previous != null) {
+                songGrams.remove(previous.id(), previous.text());
+            }
+            songGrams.add(entry.id(), entry.text());
+        }
+        if (!artists.containsKey(entry.artistId())) {
+            putArtist(artist);
+        }
+    }
+
+    private void deleteSong(Long songId) {
+        SongEntry previous = songs.remove(songId);
+        if (previous != null) {
+            songGrams.remove(previous.id(), previous.text());
+        }
+    }
+
+    private void putArtist(ArtistEntry entry) {
+        ArtistEntry previous = artists.put(entry.id(), entry);
+        if (previous == null || !previous.name().equals(entry.name())) {
+            if (previous != null) {
+                artistGrams.remove(previous.id(), previous.name());
+            }
+            artistGrams.add(entry.id(), entry.name());
+        }
+    }
+
+    public List<Long> searchSongs(String query, int limit) {
+        return searchSongs(query, limit, false);
+    }
+
+    /** Ids of the songs matching every word of the query, best first. */
+    public List<Long> searchSongs(String query, int limit, boolean fuzzy) {
+        String[] words = words(normalize(query));
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        String phrase = String.join(" ", words);
+        lock.readLock().lock();
+        try {
+            List<Term[]> terms = terms(songGrams, words, fuzzy);
+            PriorityQueue<Scored> top = new PriorityQueue<>(BEST_FIRST.reversed());
+            for (long id : candidates(songGrams, terms)) {
+                SongEntry song = songs.get(id);
+                double relevance = 0;
+                for (Term[] alternatives : terms) {
+                    double best = Math.max(TITLE_WEIGHT * match(song.title(), alternatives),
+                            Math.max(ARTIST_WEIGHT * match(song.artist(), alternatives),
+                                    ALBUM_WEIGHT * match(song.album(), alternatives)));
+                    if (best == 0) {
+                        relevance = 0;
+                        break;
+                    }
+                    relevance += best;
+                }
+                if (relevance > 0) {
+                    relevance += phraseBonus(song.title(), phrase) + phraseBonus(song.artist(), phrase);
+                    offer(top, new Scored(id, relevance + popularity(song.playCount()), song.playCount()), limit);
+                }
+            }
+            return drain(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> searchArtists(String query, int limit) {
+        return searchArtists(query, limit, false);
+    }
+
+    /** Ids of the artists whose name matches every word of the query, best first. */
+    public List<Long> searchArtists(String query, int limit, boolean fuzzy) {
+        String[] words = words(normalize(query));
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        String phrase = String.join(" ", words);
+        lock.readLock().lock();
+        try {
+            List<Term[]> terms = terms(artistGrams, words, fuzzy);
+            PriorityQueue<Scored> top = new PriorityQueue<>(BEST_FIRST.reversed());
+            for (long id : candidates(artistGrams, terms)) {
+                ArtistEntry artist = artists.get(id);
+                double relevance = 0;
+                for (Term[] alternatives : terms) {
+                    double score = match(artist.name(), alternatives);
+                    if (score == 0) {
+                        relevance = 0;
+                        break;
+                    }
+                    relevance += ARTIST_WEIGHT * score;
+                }
+                if (relevance > 0) {
+                    relevance += phraseBonus(artist.name(), phrase);
+                    offer(top, new Scored(id, relevance + popularity(artist.followerCount()),
+                            artist.followerCount()), limit);
+                }
+            }
+            return drain(top);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Per query word: the word itself and, in fuzzy mode, the indexed words close to it
+    private static List<Term[]> terms(GramIndex grams, String[] words, boolean fuzzy) {
+        List<Term[]> terms = new ArrayList<>(words.length);
+        for (String word : words) {
+            List<Term> alternatives = new ArrayList<>();
+            alternatives.add(new Term(word, 0));
+            if (fuzzy && grams.dictionary != null && word.length() >= MIN_FUZZY_LENGTH) {
+                int maxEdits = word.length() >= SymSpellDictionary.PREFIX_LENGTH ? SymSpellDictionary.MAX_DISTANCE : 1;
+                for (SymSpellDictionary.Suggestion suggestion : grams.dictionary.lookup(word, maxEdits, MAX_CORRECTIONS)) {
+                    if (suggestion.distance() > 0) {
+                        alternatives.add(new Term(suggestion.word(), suggestion.distance()));
+                    }
+                }
+            }
+            terms.add(alternatives.toArray(new Term[0]));
+        }
+        return terms;
+    }
+
+    // Documents that may match every query word through one of its alternatives
+    private static Set<Long> candidates(GramIndex grams, List<Term[]> terms) {
+        List<Set<Long>> perWord = new ArrayList<>(terms.size());
+        for (Term[] alternatives : terms) {
+            if (alternatives.length == 1) {
+                perWord.add(grams.candidates(alternatives[0].word()));
+            } else {
+                Set<Long> union = new HashSet<>();
+                for (Term term : alternatives) {
+                    union.addAll(grams.candidates(term.word()));
+                }
+                perWord.add(union);
+            }
+        }
+        perWord.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(perWord.get(0));
+        for (int i = 1; i < perWord.size() && !result.isEmpty(); i++) {
+            result.retainAll(perWord.get(i));
+        }
+        return result;
+    }
+
+    private static double match(String field, Term[] alternatives) {
+        double best = 0;
+        for (Term term : alternatives) {
+            best = Math.max(best, match(field, term.word()) * (1 - EDIT_PENALTY * term.distance()));
+        }
+        return best;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("songs", songs.size());
+            stats.put("artists", artists.size());
+            stats.put("songGrams", songGrams.size());
+            stats.put("artistGrams", artistGrams.size());
+            if (songGrams.dictionary != null) {
+                stats.put("fuzzyWords", songGrams.dictionary.size() + artistGrams.dictionary.size());
+                stats.put("fuzzyDeletes", songGrams.dictionary.deleteCount() + artistGrams.dictionary.deleteCount());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("enabled", enabled);
+        stats.put("fuzzyEnabled", fuzzyEnabled);
+        stats.put("ready", ready);
+        stats.put("lastBuildMillis", lastBuildMillis);
+        stats.put("builtAt", builtAt);
+        CompletionTrie<SuggestionDTO> trie = completions;
+        stats.put("completions", trie.size());
+        stats.put("completionKeys", trie.keyCount());
+        stats.put("completionNodes", trie.nodeCount());
+        stats.put("completionsStale", completionsStale);
+        stats.put("lastCompletionBuildMillis", lastCompletionBuildMillis);
+        return stats;
+    }
+
+    // Keeps the limit best in a heap whose head is the worst kept
+    private static void offer(PriorityQueue<Scored> top, Scored candidate, int limit) {
+        if (top.size() < limit) {
+            top.add(candidate);
+        } else if (BEST_FIRST.compare(candidate, top.peek()) < 0) {
+            top.poll();
+            top.add(candidate);
+        }
+    }
+
+    private static List<Long> drain(PriorityQueue<Scored> top) {
+        List<Scored> sorted = new ArrayList<>(top);
+        sorted.sort(BEST_FIRST);
+        List<Long> ids = new ArrayList<>(sorted.size());
+        for (Scored scored : sorted) {
+            ids.add(scored.id());
+        }
+        return ids;
+    }
+
+    private static double popularity(int count) {
+        return POPULARITY_WEIGHT * Math.log10(1 + Math.max(0, count));
+    }
+
+    // The whole query as the complete field, or as its start
+    private static double phraseBonus(String field, String phrase) {
+        if (field.equals(phrase)) {
+            return 2;
+        }
+        return field.startsWith(phrase) ? 1 : 0;
+    }
+
+    /** How well {@code word} matches some word of {@code field}: whole word, prefix, substring or not at all. */
+    static double match(String field, String word) {
+        int from = 0;
+        double best = 0;
+        while (true) {
+            int at = field.indexOf(word, from);
+            if (at < 0) {
+                return best;
+            }
+            boolean wordStart = at == 0 || field.charAt(at - 1) == ' ';
+            int end = at + word.length();
+            boolean wordEnd = end == field.length() || field.charAt(end) == ' ';
+            if (wordStart && wordEnd) {
+                return WORD_MATCH;
+            }
+            best = Math.max(best, wordStart ? PREFIX_MATCH : SUBSTRING_MATCH);
+            from = at + 1;
+        }
+    }
+
+    static String[] words(String normalized) {
+        return normalized.isEmpty() ? new String[0]
+                : Arrays.stream(normalized.split(" ")).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Lowercases, strips accents, keeps letters and digits of any script and collapses everything
+     * else into single spaces, so "Beyoncé - Halo!" becomes "beyonce halo".
+     */
+    static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(input, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(Character.toLowerCase(c));
+            } else if (out.length() > 0) {
+                pendingSpace = true;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Postings from grams to document ids. Keys are "^" plus the first one or two characters of each
+     * word, and every three character substring of each word. With fuzzy search on, the distinct words
+     * also go into a spelling dictionary, counted once per document.
+     */
+    private static final class GramIndex {
+
+        private static final Set<Long> NONE = Set.of();
+
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private final SymSpellDictionary dictionary;
+
+        GramIndex(boolean fuzzy) {
+            dictionary = fuzzy ? new SymSpellDictionary() : null;
+        }
+
+        void add(long id, String text) {
+            for (String gram : grams(text)) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+            if (dictionary != null) {
+                for (String word : words(text)) {
+                    dictionary.add(word);
+                }
+            }
+        }
+
+        void remove(long id, String text) {
+            for (String gram : grams(text)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+            if (dictionary != null) {
+                for (String word : words(text)) {
+                    dictionary.remove(word);
+                }
+            }
+        }
+
+        int size() {
+            return postings.size();
+        }
+
+        /**
+         * Documents that may contain the word; three gram intersections can yield false positives
+         * (e.g. "abcab" for "cabc"), which the caller's match check drops. The result may be a
+         * posting set itself and must not be modified.
+         */
+        Set<Long> candidates(String word) {
+            if (word.length() < 3) {
+                return postings.getOrDefault("^" + word, NONE);
+            }
+            List<Set<Long>> lists = new ArrayList<>(word.length() - 2);
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                lists.add(postings.getOrDefault(word.substring(i, i + 3), NONE));
+            }
+            if (lists.size() == 1) {
+                return lists.get(0);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+
+        private static Set<String> grams(String text) {
+            Set<String> grams = new HashSet<>();
+            for (String word : words(text)) {
+                grams.add("^" + word.substring(0, 1));
+                if (word.length() >= 2) {
+                    grams.add("^" + word.substring(0, 2));
+                }
+                for (int i = 0; i + 3 <= word.length(); i++) {
+                    grams.add(word.substring(i, i + 3));
+                }
+            }
+            return grams;
+        }
+    }
+}
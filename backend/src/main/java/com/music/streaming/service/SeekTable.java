@@ -0,0 +1,91 @@
+package com.music.streaming.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Time-to-byte map for one audio file: entry {@code i} is the byte offset of the frame that is
+ * playing at {@code i * intervalMillis}. Offsets never decrease, so the serialized form stores
+ * varint-encoded deltas: about two bytes per entry for typical bitrates.
+ */
+public final class SeekTable {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int intervalMillis;
+    private final long[] offsets;
+
+    public SeekTable(int intervalMillis, long[] offsets) {
+        this.intervalMillis = intervalMillis;
+        this.offsets = offsets;
+    }
+
+    public int getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    public int size() {
+        return offsets.length;
+    }
+
+    /** Byte offset of the frame boundary at or just before {@code seconds}, or -1 if the table is empty. */
+    public long offsetAt(double seconds) {
+        if (offsets.length == 0) {
+            return -1;
+        }
+        long index = (long) Math.floor(seconds * 1000 / intervalMillis);
+        if (index < 0) {
+            index = 0;
+        }
+        return offsets[(int) Math.min(index, offsets.length - 1)];
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(offsets.length * 2 + 16);
+        out.write(FORMAT_VERSION);
+        writeVarLong(out, intervalMillis);
+        writeVarLong(out, offsets.length);
+        long previous = 0;
+        for (long offset : offsets) {
+            writeVarLong(out, offset - previous);
+            previous = offset;
+        }
+        return out.toByteArray();
+    }
+
+    public static SeekTable decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.get() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported seek table format");
+        }
+        int intervalMillis = (int) readVarLong(in);
+        int count = (int) readVarLong(in);
+        long[] offsets = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarLong(in);
+            offsets[i] = previous;
+        }
+        return new SeekTable(intervalMillis, offsets);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
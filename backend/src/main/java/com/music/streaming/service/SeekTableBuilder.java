@@ -0,0 +1,321 @@
+package com.music.streaming.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Builds {@link SeekTable}s by walking the frames of MP3 and FLAC files through a memory-mapped view.
+ *
+ * MP3 tables come from a frame-by-frame scan, which is exact for both CBR and VBR files (the Xing TOC
+ * only has 1% resolution). FLAC tables come from a frame header scan validated by the header CRC-8;
+ * if no frames can be found the file's SEEKTABLE block is used instead.
+ */
+public final class SeekTableBuilder {
+
+    public static final int INTERVAL_MILLIS = 500;
+
+    // Same sync, version, layer and sample rate: used to confirm a candidate MP3 frame
+    private static final int MP3_STREAM_MASK = 0xFFFE0C00;
+
+    private static final int[] CRC8_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+            }
+            CRC8_TABLE[i] = crc;
+        }
+    }
+
+    private SeekTableBuilder() {
+    }
+
+    /** Returns the seek table for a file, or null if the format is unsupported or no frames were found. */
+    public static SeekTable build(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean mp3 = name.endsWith(".mp3");
+        boolean flac = name.endsWith(".flac");
+        if (!mp3 && !flac) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return mp3 ? buildMp3(buffer, INTERVAL_MILLIS) : buildFlac(buffer, INTERVAL_MILLIS);
+        }
+    }
+
+    static SeekTable buildMp3(ByteBuffer buffer, int intervalMillis) {
+        int limit = buffer.limit();
+        if (limit >= 128 && Mp3Frames.hasTag(buffer, limit - 128, "TAG")) {
+            limit -= 128;
+        }
+        int position = findMp3Frame(buffer, Mp3Frames.id3v2Size(buffer, 0), limit);
+        if (position < 0) {
+            return null;
+        }
+
+        OffsetList offsets = new OffsetList();
+        double time = 0;
+        boolean firstFrame = true;
+        while (position + 4 <= limit) {
+            int header = buffer.getInt(position);
+            if (!Mp3Frames.isValid(header)) {
+                position = findMp3Frame(buffer, position + 1, limit);
+                if (position < 0) {
+                    break;
+                }
+                continue;
+            }
+            int length = Mp3Frames.frameLength(header);
+            if (position + length > limit) {
+                break;
+            }
+            if (firstFrame) {
+                firstFrame = false;
+                if (Mp3Frames.isInfoFrame(buffer, position, header)) {
+                    position += length;
+                    continue;
+                }
+            }
+            double frameEnd = time + (double) Mp3Frames.samplesPerFrame(header) / Mp3Frames.sampleRate(header);
+            while ((double) offsets.size() * intervalMillis / 1000 < frameEnd) {
+                offsets.add(position);
+            }
+            time = frameEnd;
+            position += length;
+        }
+        return offsets.size() == 0 ? null : new SeekTable(intervalMillis, offsets.toArray());
+    }
+
+    // A candidate only counts if the next frame follows exactly where its length says it should
+    static int findMp3Frame(ByteBuffer buffer, int from, int limit) {
+        for (int position = from; position + 4 <= limit; position++) {
+            if ((buffer.get(position) & 0xFF) != 0xFF) {
+                continue;
+            }
+            int header = buffer.getInt(position);
+            if (!Mp3Frames.isValid(header)) {
+                continue;
+            }
+            int next = position + Mp3Frames.frameLength(header);
+            if (next + 4 > limit) {
+                return next <= limit ? position : -1;
+            }
+            int nextHeader = buffer.getInt(next);
+            if (Mp3Frames.isValid(nextHeader) && (nextHeader & MP3_STREAM_MASK) == (header & MP3_STREAM_MASK)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    static SeekTable buildFlac(ByteBuffer buffer, int intervalMillis) {
+        int limit = buffer.limit();
+        int position = Mp3Frames.id3v2Size(buffer, 0);
+        if (!Mp3Frames.hasTag(buffer, position, "fLaC")) {
+            return null;
+        }
+        position += 4;
+
+        int minBlockSize = 0;
+        int minFrameSize = 0;
+        int sampleRate = 0;
+        int seekTableStart = -1;
+        int seekTableLength = 0;
+        boolean lastBlock = false;
+        while (!lastBlock) {
+            if (position + 4 > limit) {
+                return null;
+            }
+            int blockHeader = buffer.get(position) & 0xFF;
+            lastBlock = (blockHeader & 0x80) != 0;
+            int type = blockHeader & 0x7F;
+            int length = readUInt24(buffer, position + 1);
+            int body = position + 4;
+            if (body + length > limit) {
+                return null;
+            }
+            if (type == 0 && length >= 18) {
+                minBlockSize = buffer.getShort(body) & 0xFFFF;
+                minFrameSize = readUInt24(buffer, body + 4);
+                sampleRate = ((buffer.get(body + 10) & 0xFF) << 12)
+                        | ((buffer.get(body + 11) & 0xFF) << 4)
+                        | ((buffer.get(body + 12) & 0xFF) >>> 4);
+            } else if (type == 3) {
+                seekTableStart = body;
+                seekTableLength = length;
+            }
+            position = body + length;
+        }
+        if (sampleRate == 0) {
+            return null;
+        }
+        int audioStart = position;
+
+        OffsetList offsets = new OffsetList();
+        long[] frame = new long[2];
+        while (position + 6 <= limit) {
+            if ((buffer.get(position) & 0xFF) == 0xFF && (buffer.get(position + 1) & 0xFE) == 0xF8) {
+                int headerLength = parseFlacFrameHeader(buffer, position, limit, minBlockSize, frame);
+                if (headerLength > 0) {
+                    long frameEndSample = frame[0] + frame[1];
+                    while (offsets.size() * (long) intervalMillis * sampleRate / 1000 < frameEndSample) {
+                        offsets.add(position);
+                    }
+                    position += Math.max(headerLength + 1, minFrameSize);
+                    continue;
+                }
+            }
+            position++;
+        }
+        if (offsets.size() > 0) {
+            return new SeekTable(intervalMillis, offsets.toArray());
+        }
+        return seekTableStart < 0 ? null
+                : fromFlacSeekPoints(buffer, seekTableStart, seekTableLength, audioStart, sampleRate, intervalMillis);
+    }
+
+    /**
+     * Validates a FLAC frame header at {@code position} and stores its first sample number and block
+     * size in {@code frame}. Returns the header length including the CRC byte, or -1 if it is not a frame.
+     */
+    private static int parseFlacFrameHeader(ByteBuffer buffer, int position, int limit, int fixedBlockSize, long[] frame) {
+        boolean variableBlocking = (buffer.get(position + 1) & 0x01) != 0;
+        int blockSizeCode = (buffer.get(position + 2) & 0xFF) >>> 4;
+        int sampleRateCode = buffer.get(position + 2) & 0x0F;
+        int channels = (buffer.get(position + 3) & 0xFF) >>> 4;
+        int sampleSize = (buffer.get(position + 3) >>> 1) & 0x07;
+        if (blockSizeCode == 0 || sampleRateCode == 15 || channels > 10 || sampleSize == 3
+                || (buffer.get(position + 3) & 0x01) != 0) {
+            return -1;
+        }
+
+        // Frame or sample number, UTF-8 style variable length coding
+        int p = position + 4;
+        int first = buffer.get(p++) & 0xFF;
+        int extraBytes;
+        long number;
+        if ((first & 0x80) == 0) {
+            extraBytes = 0;
+            number = first;
+        } else {
+            int ones = Integer.numberOfLeadingZeros(~first << 24);
+            if (ones < 2 || ones > 7) {
+                return -1;
+            }
+            extraBytes = ones - 1;
+            number = first & (0x7F >>> ones);
+        }
+        if (p + extraBytes + 3 > limit) {
+            return -1;
+        }
+        for (int i = 0; i < extraBytes; i++) {
+            int b = buffer.get(p++) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                return -1;
+            }
+            number = (number << 6) | (b & 0x3F);
+        }
+
+        int blockSize;
+        if (blockSizeCode == 1) {
+            blockSize = 192;
+        } else if (blockSizeCode <= 5) {
+            blockSize = 576 << (blockSizeCode - 2);
+        } else if (blockSizeCode == 6) {
+            blockSize = (buffer.get(p++) & 0xFF) + 1;
+        } else if (blockSizeCode == 7) {
+            blockSize = (buffer.getShort(p) & 0xFFFF) + 1;
+            p += 2;
+        } else {
+            blockSize = 256 << (blockSizeCode - 8);
+        }
+        if (sampleRateCode == 12) {
+            p += 1;
+        } else if (sampleRateCode == 13 || sampleRateCode == 14) {
+            p += 2;
+        }
+        if (p >= limit) {
+            return -1;
+        }
+
+        int crc = 0;
+        for (int i = position; i < p; i++) {
+            crc = CRC8_TABLE[(crc ^ buffer.get(i)) & 0xFF];
+        }
+        if (crc != (buffer.get(p) & 0xFF)) {
+            return -1;
+        }
+        frame[0] = variableBlocking ? number : number * fixedBlockSize;
+        frame[1] = blockSize;
+        return p + 1 - position;
+    }
+
+    private static SeekTable fromFlacSeekPoints(ByteBuffer buffer, int start, int length, int audioStart,
+                                               int sampleRate, int intervalMillis) {
+        int points = length / 18;
+        long[] samples = new long[points];
+        long[] pointOffsets = new long[points];
+        int count = 0;
+        for (int i = 0; i < points; i++) {
+            long sample = buffer.getLong(start + i * 18);
+            if (sample == -1L) {
+                // Placeholder point
+                continue;
+            }
+            samples[count] = sample;
+            pointOffsets[count] = audioStart + buffer.getLong(start + i * 18 + 8);
+            count++;
+        }
+        if (count == 0) {
+            return null;
+        }
+        long lastSample = samples[count - 1];
+        OffsetList offsets = new OffsetList();
+        int point = 0;
+        for (long entry = 0; entry * intervalMillis * sampleRate / 1000 <= lastSample; entry++) {
+            long target = entry * intervalMillis * sampleRate / 1000;
+            while (point + 1 < count && samples[point + 1] <= target) {
+                point++;
+            }
+            offsets.add(pointOffsets[point]);
+        }
+        return new SeekTable(intervalMillis, offsets.toArray());
+    }
+
+    private static int readUInt24(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0xFF) << 16) | ((buffer.get(offset + 1) & 0xFF) << 8) | (buffer.get(offset + 2) & 0xFF);
+    }
+
+    private static final class OffsetList {
+        private long[] values = new long[256];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
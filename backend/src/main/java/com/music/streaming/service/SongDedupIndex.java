@@ -0,0 +1,177 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.Artist;
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.SongRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scan-scoped lookup of existing songs by normalized artist and title, plus a cache of artists by
+ * name, so deciding whether a scanned file is a duplicate costs a hash lookup instead of loading and
+ * re-normalizing every song of the artist. Loaded with one projection query per scan and kept up to
+ * date by the writer; it is only touched from the writer thread. When other nodes write to the same
+ * database, {@link #refresh()} picks up their songs.
+ */
+final class SongDedupIndex {
+
+    private final SongRepository songRepository;
+    private final ArtistRepository artistRepository;
+
+    private final Map<String, Long> songIds = new HashMap<>();
+    private final Map<String, Long> songIdsByFingerprint = new HashMap<>();
+    private final Map<String, Long> artistIds = new HashMap<>();
+    private final Map<String, Artist> artists = new HashMap<>();
+    private long lastSongId;
+
+    private SongDedupIndex(SongRepository songRepository, ArtistRepository artistRepository) {
+        this.songRepository = songRepository;
+        this.artistRepository = artistRepository;
+    }
+
+    static SongDedupIndex load(SongRepository songRepository, ArtistRepository artistRepository) {
+        SongDedupIndex index = new SongDedupIndex(songRepository, artistRepository);
+        index.reload();
+        return index;
+    }
+
+    /** Drops everything and reloads from the database, e.g. after a batch was rolled back. */
+    void reload() {
+        songIds.clear();
+        songIdsByFingerprint.clear();
+        artistIds.clear();
+        artists.clear();
+        lastSongId = 0;
+        addRows(songRepository.findDedupRows());
+    }
+
+    /**
+     * Adds songs written since the index was loaded. Called with the cluster write lock held, so every
+     * song committed by another node so far has an id above those already loaded.
+     */
+    void refresh() {
+        addRows(songRepository.findDedupRowsAfter(lastSongId));
+    }
+
+    private void addRows(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            // id, title, artist id, artist name, fingerprint
+            Long songId = (Long) row[0];
+            songIds.putIfAbsent(key((String) row[3], (String) row[1]), songId);
+            artistIds.putIfAbsent((String) row[3], (Long) row[2]);
+            if (row[4] != null) {
+                songIdsByFingerprint.putIfAbsent((String) row[4], songId);
+            }
+            lastSongId = Math.max(lastSongId, songId);
+        }
+    }
+
+    int size() {
+        return songIds.size();
+    }
+
+    /** The existing song with the same normalized artist and title, or null. */
+    Song findSong(String artistName, String title) {
+        return load(songIds, key(artistName, title));
+    }
+
+    /** The existing song with this audio fingerprint, or null. */
+    Song findByFingerprint(String fingerprint) {
+        return fingerprint != null ? load(songIdsByFingerprint, fingerprint) : null;
+    }
+
+    void add(String artistName, String title, String fingerprint, Long songId) {
+        if (songId != null) {
+            songIds.putIfAbsent(key(artistName, title), songId);
+            if (fingerprint != null) {
+                songIdsByFingerprint.putIfAbsent(fingerprint, songId);
+            }
+        }
+    }
+
+    private Song load(Map<String, Long> ids, String key) {
+        Long songId = ids.get(key);
+        if (songId == null) {
+            return null;
+        }
+        Song song = songRepository.findById(songId).orElse(null);
+        if (song == null) {
+            // Deleted since the index was loaded
+            ids.remove(key);
+        }
+        return song;
+    }
+
+    /** The artist with exactly this name, if it exists; cached for the rest of the scan. */
+    Artist findArtist(String name) {
+        Artist artist = artists.get(name);
+        if (artist == null) {
+            Long artistId = artistIds.get(name);
+            artist = artistId != null
+                    ? artistRepository.findById(artistId).orElse(null)
+                    : artistRepository.findByName(name).orElse(null);
+            if (artist != null) {
+                artists.put(name, artist);
+            }
+        }
+        return artist;
+    }
+
+    void addArtist(String name, Artist artist) {
+        artists.put(name, artist);
+    }
+
+    static String key(String artistName, String title) {
+        StringBuilder key = new StringBuilder(length(artistName) + length(title) + 1);
+        appendNormalized(key, artistName, false);
+        key.append('\u0000');
+        appendNormalized(key, title, false);
+        return key.toString();
+    }
+
+    /**
+     * Lowercases, drops everything but ASCII letters, digits and whitespace, collapses whitespace runs
+     * to one space and trims, in a single pass without regexes.
+     */
+    static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(input.length());
+        appendNormalized(normalized, input, true);
+        return normalized.toString();
+    }
+
+    // With keepSpaces false whitespace is dropped too, so "Test Song" and "Test-Song!" get the same key
+    private static void appendNormalized(StringBuilder out, String input, boolean keepSpaces) {
+        if (input == null) {
+            return;
+        }
+        int start = out.length();
+        boolean pendingSpace = false;
+        for (int i = 0; i < input.length(); i++) {
+            char c = Character.toLowerCase(input.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(c);
+            } else if (keepSpaces && isWhitespace(c) && out.length() > start) {
+                pendingSpace = true;
+            }
+        }
+    }
+
+    // Same set as the regex \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.Song;
+import com.music.streaming.model.SongSeekIndex;
+import com.music.streaming.repository.SongSeekIndexRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Stores per-song seek tables built during library scans and answers time-to-byte lookups for
+ * {@code /api/stream/{songId}?t=seconds}. Tables are kept on the song's {@link ResolvedMedia}
+ * after the first lookup, so repeated seeks cost no database access.
+ */
+@Service
+public class SongSeekService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SongSeekService.class);
+
+    private static final SeekTable NONE = new SeekTable(SeekTableBuilder.INTERVAL_MILLIS, new long[0]);
+
+    @Autowired
+    private SongSeekIndexRepository songSeekIndexRepository;
+
+    public void index(Song song, Path path) {
+        if (song.getId() == null) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            save(song.getId(), attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    SeekTableBuilder.build(path));
+        } catch (Exception e) {
+            logger.warn("Could not build seek table for {}", path, e);
+        }
+    }
+
+    /** Stores a table built ahead of time, e.g. by a scan reader thread; does nothing if it is null. */
+    public void save(long songId, long fileSize, long fileModified, SeekTable table) {
+        if (table == null) {
+            return;
+        }
+        songSeekIndexRepository.save(new SongSeekIndex(songId, fileSize, fileModified, table.encode()));
+        logger.debug("Stored seek table with {} entries for song {}", table.size(), songId);
+    }
+
+    /**
+     * Byte offset of the frame boundary playing at {@code seconds}, or -1 when no up-to-date table exists.
+     */
+    public long offsetFor(ResolvedMedia media, double seconds) {
+        SeekTable table = media.seekTable;
+        if (table == null) {
+            table = load(media);
+            media.seekTable = table;
+        }
+        long offset = table.offsetAt(seconds);
+        return offset < media.getSize() ? offset : -1;
+    }
+
+    public void remove(long songId) {
+        if (songSeekIndexRepository.existsById(songId)) {
+            songSeekIndexRepository.deleteById(songId);
+        }
+    }
+
+    private SeekTable load(ResolvedMedia media) {
+        try {
+            return songSeekIndexRepository.findById(media.getSongId())
+                    .filter(index -> index.getFileSize() == media.getSize()
+                            && index.getFileModified() == media.getLastModified())
+                    .map(index -> SeekTable.decode(index.getSeekTable()))
+                    .orElse(NONE);
+        } catch (Exception e) {
+            logger.warn("Could not load seek table for song {}", media.getSongId(), e);
+            return NONE;
+        }
+    }
+}
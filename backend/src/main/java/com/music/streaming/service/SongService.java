@@ -10,12 +10,12 @@ import com.music.streaming.repository.PlayHistoryRepository;
 import com.music.streaming.repository.SongRepository;
 import com.music.streaming.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class SongService {
@@ -32,40 +32,48 @@ public class SongService {
     @Autowired
     private PlayHistoryRepository playHistoryRepository;
 
-    public List<SongDTO> getAllSongs() {
-        return songRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Autowired
+    private StreamMediaIndex streamMediaIndex;
+
+    @Autowired
+    private SongSeekService songSeekService;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    /** Up to {@code limit} songs with an id above {@code after} (null for the first page), in id order. */
+    public List<SongDTO> getAllSongs(Long after, int limit) {
+        return songRepository.findPage(after != null ? after : 0L, PageRequest.of(0, limit));
     }
 
     public SongDTO getSongById(Long id) {
-        Song song = songRepository.findById(id)
+        return songRepository.findDTOById(id)
                 .orElseThrow(() -> new RuntimeException("Song not found with id: " + id));
-        return convertToDTO(song);
     }
 
-    public List<SongDTO> searchSongs(String keyword) {
-        return songRepository.searchSongs(keyword).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    /** Fuzzy search also matches misspelled words; it needs the search index and is exact without it. */
+    public List<SongDTO> searchSongs(String keyword, Integer limit, boolean fuzzy) {
+        int max = searchIndex.resultLimit(limit);
+        if (searchIndex.isReady()) {
+            List<Long> ids = searchIndex.searchSongs(keyword, max, fuzzy);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            return SearchIndex.inOrder(ids, songRepository.findDTOsByIds(ids), SongDTO::getId);
+        }
+        return songRepository.searchDTOs(keyword, PageRequest.of(0, max));
     }
 
     public List<SongDTO> getTopSongs() {
-        return songRepository.findTop10ByOrderByPlayCountDesc().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return songRepository.findTopDTOs(PageRequest.of(0, 10));
     }
 
-    public List<SongDTO> getSongsByArtist(Long artistId) {
-        return songRepository.findByArtistId(artistId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<SongDTO> getSongsByArtist(Long artistId, Long after, int limit) {
+        return songRepository.findPageByArtistId(artistId, after != null ? after : 0L, PageRequest.of(0, limit));
     }
 
-    public List<SongDTO> getSongsByGenre(String genre) {
-        return songRepository.findByGenre(genre).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<SongDTO> getSongsByGenre(String genre, Long after, int limit) {
+        return songRepository.findPageByGenre(genre, after != null ? after : 0L, PageRequest.of(0, limit));
     }
 
     @Transactional
@@ -84,7 +92,8 @@ public class SongService {
         song.setReleasedAt(LocalDateTime.now());
 
         Song savedSong = songRepository.save(song);
-        return convertToDTO(savedSong);
+        searchIndex.indexSong(savedSong);
+        return SongDTO.of(savedSong);
     }
 
     @Transactional
@@ -98,6 +107,7 @@ public class SongService {
         // Increment play count
         song.setPlayCount(song.getPlayCount() + 1);
         songRepository.save(song);
+        searchIndex.indexSong(song);
 
         // Record play history
         PlayHistory playHistory = new PlayHistory();
@@ -110,20 +120,8 @@ public class SongService {
     @Transactional
     public void deleteSong(Long id) {
         songRepository.deleteById(id);
-    }
-
-    private SongDTO convertToDTO(Song song) {
-        SongDTO dto = new SongDTO();
-        dto.setId(song.getId());
-        dto.setTitle(song.getTitle());
-        dto.setArtistName(song.getArtist().getName());
-        dto.setArtistId(song.getArtist().getId());
-        dto.setAlbum(song.getAlbum());
-        dto.setDuration(song.getDuration());
-        dto.setGenre(song.getGenre());
-        dto.setFileUrl(song.getFileUrl());
-        dto.setCoverImageUrl(song.getCoverImageUrl());
-        dto.setPlayCount(song.getPlayCount());
-        return dto;
+        streamMediaIndex.invalidate(id);
+        songSeekService.remove(id);
+        searchIndex.removeSong(id);
     }
 }
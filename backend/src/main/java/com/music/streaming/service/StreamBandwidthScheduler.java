@@ -0,0 +1,189 @@
+package com.music.streaming.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token-bucket shaping for stream responses.
+ *
+ * Every active stream gets its own bucket. Its rate is capped at
+ * {@code music.stream.bandwidth.bitrate-multiplier} times the track's average bitrate, so a client
+ * pulling a whole FLAC gets the file well ahead of playback but not at line rate. Tracks with an
+ * unknown bitrate (no duration) have no cap of their own, since any guess could fall below their
+ * playback rate. When {@code music.stream.bandwidth.global-bytes-per-second} is set, the global
+ * budget is split with max-min fairness: streams whose cap is below the fair share keep their cap,
+ * and the rest share what is left equally. Each bucket starts full ({@code burst-seconds} of its rate) so playback can
+ * start without waiting.
+ */
+@Service
+public class StreamBandwidthScheduler {
+
+    @Value("${music.stream.bandwidth.global-bytes-per-second:0}")
+    private long globalBytesPerSecond;
+
+    @Value("${music.stream.bandwidth.bitrate-multiplier:4.0}")
+    private double bitrateMultiplier;
+
+    // Floor for very low bitrate files
+    @Value("${music.stream.bandwidth.min-bytes-per-second:65536}")
+    private long minBytesPerSecond;
+
+    @Value("${music.stream.bandwidth.burst-seconds:2.0}")
+    private double burstSeconds;
+
+    private final Set<StreamPermit> active = new HashSet<>();
+    private volatile long fairShare = Long.MAX_VALUE;
+
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong throttledBytes = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    /**
+     * Registers a new stream for a track with the given average bitrate (0 if unknown).
+     * The permit must be closed when the response finishes.
+     */
+    public StreamPermit open(long trackBytesPerSecond) {
+        long cap = Long.MAX_VALUE;
+        if (bitrateMultiplier > 0 && trackBytesPerSecond > 0) {
+            cap = Math.max(minBytesPerSecond, (long) (trackBytesPerSecond * bitrateMultiplier));
+        }
+        StreamPermit permit = new StreamPermit(cap);
+        synchronized (this) {
+            active.add(permit);
+            recomputeFairShare();
+        }
+        return permit;
+    }
+
+    public int getActiveStreams() {
+        synchronized (this) {
+            return active.size();
+        }
+    }
+
+    public long getBytesServed() {
+        return bytesServed.get();
+    }
+
+    public long getThrottledBytes() {
+        return throttledBytes.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeStreams", getActiveStreams());
+        stats.put("bytesServed", bytesServed.get());
+        stats.put("throttledBytes", throttledBytes.get());
+        stats.put("throttledMillis", TimeUnit.NANOSECONDS.toMillis(throttledNanos.get()));
+        stats.put("globalBytesPerSecond", globalBytesPerSecond);
+        stats.put("fairShareBytesPerSecond", fairShare == Long.MAX_VALUE ? -1 : fairShare);
+        stats.put("bitrateMultiplier", bitrateMultiplier);
+        return stats;
+    }
+
+    private void close(StreamPermit permit) {
+        synchronized (this) {
+            if (active.remove(permit)) {
+                recomputeFairShare();
+            }
+        }
+    }
+
+    // Water-filling over the per-stream caps; caller holds the monitor
+    private void recomputeFairShare() {
+        if (globalBytesPerSecond <= 0 || active.isEmpty()) {
+            fairShare = Long.MAX_VALUE;
+            return;
+        }
+        long[] caps = new long[active.size()];
+        int i = 0;
+        for (StreamPermit permit : active) {
+            caps[i++] = permit.cap;
+        }
+        Arrays.sort(caps);
+        long remaining = globalBytesPerSecond;
+        long share = Long.MAX_VALUE;
+        for (int j = 0; j < caps.length; j++) {
+            long equalSplit = remaining / (caps.length - j);
+            if (caps[j] > equalSplit) {
+                share = equalSplit;
+                break;
+            }
+            remaining -= caps[j];
+        }
+        fairShare = Math.max(1, share);
+    }
+
+    public final class StreamPermit implements AutoCloseable {
+        private final long cap;
+        private double tokens = Double.NaN;
+        private long lastRefill;
+
+        private StreamPermit(long cap) {
+            this.cap = cap;
+        }
+
+        public long getRate() {
+            return Math.min(cap, fairShare);
+        }
+
+        public boolean isUnlimited() {
+            return getRate() == Long.MAX_VALUE;
+        }
+
+        /** Largest write that keeps output smooth at the current rate: roughly 1/8 of a second. */
+        public int sliceSize(int maxSlice) {
+            if (isUnlimited()) {
+                return maxSlice;
+            }
+            return (int) Math.max(16 * 1024, Math.min(maxSlice, getRate() / 8));
+        }
+
+        /** Blocks until {@code bytes} may be sent. */
+        public void acquire(long bytes) throws InterruptedIOException {
+            bytesServed.addAndGet(bytes);
+            long rate = getRate();
+            if (rate == Long.MAX_VALUE) {
+                return;
+            }
+            long now = System.nanoTime();
+            double burst = Math.max(rate * burstSeconds, bytes);
+            if (Double.isNaN(tokens)) {
+                tokens = burst;
+            } else {
+                tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * rate);
+            }
+            lastRefill = now;
+            tokens -= bytes;
+            if (tokens >= 0) {
+                return;
+            }
+
+            long waitNanos = (long) (-tokens / rate * 1e9);
+            throttledBytes.addAndGet(bytes);
+            throttledNanos.addAndGet(waitNanos);
+            long deadline = now + waitNanos;
+            while (true) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(left);
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Stream interrupted while throttled");
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            StreamBandwidthScheduler.this.close(this);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.music.streaming.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.ServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit for stream response bodies, independent of the servlet container's request pool.
+ * A stream that cannot get a permit is turned away with 503 before any bytes are written, so a surge
+ * of listeners queues at the client instead of inside the server.
+ */
+@Service
+public class StreamBulkhead {
+
+    @Value("${music.stream.executor.max-streams:512}")
+    private int maxStreams;
+
+    private static final String PERMIT_INTERCEPTOR = StreamBulkhead.class.getName() + ".permit";
+
+    private Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /** The permit of one stream; returned at most once, by whichever release path runs first. */
+    public final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                StreamBulkhead.this.release();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxStreams);
+    }
+
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /** A permit for one stream, or null (counted as rejected) when the limit is reached. */
+    public Permit acquire() {
+        return tryAcquire() ? new Permit() : null;
+    }
+
+    /**
+     * Wraps a body so its permit is returned once it finishes, successfully or not. The permit is also
+     * returned when the async request completes, so a body that never starts (timeout, client gone,
+     * dispatch error) cannot leak it.
+     */
+    public StreamingResponseBody guard(StreamingResponseBody body, Permit permit, ServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(PERMIT_INTERCEPTOR,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.release();
+                    }
+                });
+        return out -> {
+            try {
+                body.writeTo(out);
+            } finally {
+                permit.release();
+            }
+        };
+    }
+
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    public int getActive() {
+        return maxStreams - permits.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("maxStreams", maxStreams);
+        stats.put("active", getActive());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
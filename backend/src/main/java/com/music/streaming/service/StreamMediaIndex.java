@@ -0,0 +1,176 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.SongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index from songId to its resolved media file, so the stream hot path is a single
+ * hash lookup instead of a song query, path munging and several filesystem probes per request.
+ *
+ * Entries are filled by the library scanner and otherwise on first request. They are re-checked
+ * against the filesystem at most every {@code music.stream.index.revalidate-ms}; a changed size or
+ * mtime produces a fresh entry, and a vanished file falls back to the database in case the song
+ * was moved.
+ */
+@Service
+public class StreamMediaIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamMediaIndex.class);
+
+    private static final Map<String, String> CONTENT_TYPES_BY_EXTENSION = Map.of(
+        "mp3", "audio/mpeg",
+        "wav", "audio/wav",
+        "flac", "audio/flac",
+        "m4a", "audio/aac",
+        "aac", "audio/aac",
+        "ogg", "audio/ogg",
+        "wma", "audio/x-ms-wma"
+    );
+
+    private final ConcurrentHashMap<Long, ResolvedMedia> entries = new ConcurrentHashMap<>();
+
+    @Value("${music.stream.index.revalidate-ms:5000}")
+    private long revalidateMillis;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private StreamSegmentCache segmentCache;
+
+    /**
+     * Returns the media for a song, or null if its file is missing or unreadable.
+     * Throws if the song itself does not exist.
+     */
+    public ResolvedMedia resolve(long songId) {
+        ResolvedMedia media = entries.get(songId);
+        if (media != null) {
+            long now = System.currentTimeMillis();
+            if (now - media.checkedAt < revalidateMillis) {
+                return media;
+            }
+            ResolvedMedia current = revalidate(media, now);
+            if (current != null) {
+                return current;
+            }
+        }
+
+        Song song = songRepository.findById(songId)
+                .orElseThrow(() -> new RuntimeException("Song not found"));
+        return register(song);
+    }
+
+    /**
+     * Resolves and caches the file for a song, e.g. right after the scanner imported it.
+     * Returns null (and drops any cached entry) if the file cannot be read.
+     */
+    public ResolvedMedia register(Song song) {
+        if (song.getId() == null || song.getFileUrl() == null) {
+            return null;
+        }
+        ResolvedMedia media = load(song.getId(), toPath(song.getFileUrl()), null,
+                song.getDuration() != null ? song.getDuration() : 0);
+        if (media == null) {
+            invalidate(song.getId());
+            return null;
+        }
+        ResolvedMedia previous = entries.put(song.getId(), media);
+        if (previous != null && previous.getLastModified() != media.getLastModified()) {
+            segmentCache.invalidate(song.getId());
+        }
+        return media;
+    }
+
+    public void invalidate(long songId) {
+        if (entries.remove(songId) != null) {
+            segmentCache.invalidate(songId);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static Path toPath(String fileUrl) {
+        // Extract file path from fileUrl (remove "file://" prefix if present)
+        String filePath = fileUrl.startsWith("file://") ? fileUrl.substring(7) : fileUrl;
+        return Paths.get(filePath);
+    }
+
+    private ResolvedMedia revalidate(ResolvedMedia media, long now) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(media.getPath(), BasicFileAttributes.class);
+            if (attributes.size() == media.getSize()
+                    && attributes.lastModifiedTime().toMillis() == media.getLastModified()) {
+                media.checkedAt = now;
+                return media;
+            }
+        } catch (IOException e) {
+            // Gone from its indexed location; the song row may point somewhere new
+            invalidate(media.getSongId());
+            return null;
+        }
+        ResolvedMedia refreshed = load(media.getSongId(), media.getPath(), media.getContentType(),
+                media.getDurationSeconds());
+        if (refreshed == null) {
+            invalidate(media.getSongId());
+            return null;
+        }
+        entries.put(media.getSongId(), refreshed);
+        segmentCache.invalidate(media.getSongId());
+        return refreshed;
+    }
+
+    private ResolvedMedia load(long songId, Path path, String knownContentType, int durationSeconds) {
+        try {
+            Path canonical = path.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(canonical, BasicFileAttributes.class);
+            if (!attributes.isRegularFile() || !Files.isReadable(canonical)) {
+                logger.error("File not found or cannot be read: {}", path);
+                return null;
+            }
+            String contentType = knownContentType != null ? knownContentType : determineContentType(canonical);
+            return new ResolvedMedia(songId, canonical, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    contentType, durationSeconds, System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.error("File not found or cannot be read: {}", path);
+            return null;
+        }
+    }
+
+    private String determineContentType(Path path) {
+        try {
+            String contentType = Files.probeContentType(path);
+            if (contentType != null) {
+                return contentType;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not determine content type for file: {}", path.getFileName());
+        }
+
+        // Fallback based on file extension
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = fileName.lastIndexOf('.');
+        if (dot >= 0) {
+            String contentType = CONTENT_TYPES_BY_EXTENSION.get(fileName.substring(dot + 1));
+            if (contentType != null) {
+                return contentType;
+            }
+        }
+        return "application/octet-stream";
+    }
+}
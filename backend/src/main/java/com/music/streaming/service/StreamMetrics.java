@@ -0,0 +1,187 @@
+package com.music.streaming.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer meters for the stream endpoint, exported through /actuator/prometheus.
+ *
+ * Meters are tagged by response type (full, range, multipart, seek) and content type only; bytes
+ * per song would give one time series per track in the library, so those totals are kept in memory
+ * and exposed through the admin API instead.
+ */
+@Service
+public class StreamMetrics {
+
+    public static final String FULL = "full";
+    public static final String RANGE = "range";
+    public static final String MULTIPART = "multipart";
+    public static final String SEEK = "seek";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StreamSegmentCache segmentCache;
+
+    @Autowired
+    private StreamBandwidthScheduler bandwidthScheduler;
+
+    @Autowired
+    private StreamBulkhead bulkhead;
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final ConcurrentHashMap<Long, LongAdder> bytesBySong = new ConcurrentHashMap<>();
+    // Exponentially weighted time to first byte (weight 1/8 per response), for callers that back off under load
+    private final AtomicLong recentTtfbNanos = new AtomicLong();
+
+    @PostConstruct
+    public void bindMeters() {
+        Gauge.builder("music.stream.active", activeStreams, AtomicInteger::get)
+                .description("Stream responses currently being written")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.stream.cache.hits", segmentCache, StreamSegmentCache::getHits)
+                .register(meterRegistry);
+        FunctionCounter.builder("music.stream.cache.misses", segmentCache, StreamSegmentCache::getMisses)
+                .register(meterRegistry);
+        FunctionCounter.builder("music.stream.cache.evictions", segmentCache, StreamSegmentCache::getEvictions)
+                .register(meterRegistry);
+        FunctionCounter.builder("music.stream.throttled.bytes", bandwidthScheduler,
+                        StreamBandwidthScheduler::getThrottledBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.stream.bulkhead.rejected", bulkhead, StreamBulkhead::getRejected)
+                .register(meterRegistry);
+        Gauge.builder("music.stream.bulkhead.limit", bulkhead, StreamBulkhead::getMaxStreams)
+                .register(meterRegistry);
+    }
+
+    public void recordStatus(int status) {
+        meterRegistry.counter("music.stream.responses", "status", String.valueOf(status)).increment();
+    }
+
+    /** A stream request seen by the caching proxy, whether or not it was forwarded here. */
+    public void recordEdgeRequest() {
+        meterRegistry.counter("music.stream.edge.requests").increment();
+    }
+
+    /**
+     * Wraps a response body so its time to first byte, total transfer time and size are recorded.
+     * {@code requestStartNanos} is when the request reached the controller.
+     */
+    public StreamingResponseBody instrument(ResolvedMedia media, String type, long requestStartNanos,
+                                            StreamingResponseBody body) {
+        meterRegistry.counter("music.stream.requests", "type", type).increment();
+        return out -> {
+            activeStreams.incrementAndGet();
+            long transferStart = System.nanoTime();
+            MeteredOutputStream metered = new MeteredOutputStream(out, type, requestStartNanos);
+            String outcome = "aborted";
+            try {
+                body.writeTo(metered);
+                outcome = "completed";
+            } finally {
+                activeStreams.decrementAndGet();
+                Timer.builder("music.stream.transfer")
+                        .description("Time spent writing a stream response body")
+                        .tags("type", type, "outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - transferStart, TimeUnit.NANOSECONDS);
+                if (metered.bytes > 0) {
+                    meterRegistry.counter("music.stream.bytes", "content_type", media.getContentType())
+                            .increment(metered.bytes);
+                    bytesBySong.computeIfAbsent(media.getSongId(), id -> new LongAdder()).add(metered.bytes);
+                }
+            }
+        };
+    }
+
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    public long getRecentTtfbMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(recentTtfbNanos.get());
+    }
+
+    public long getBytesServed(long songId) {
+        LongAdder bytes = bytesBySong.get(songId);
+        return bytes != null ? bytes.sum() : 0;
+    }
+
+    /** Songs with the most bytes served since startup, highest first. */
+    public List<Map<String, Object>> getTopSongsByBytes(int limit) {
+        List<Map.Entry<Long, Long>> totals = new ArrayList<>(bytesBySong.size());
+        bytesBySong.forEach((songId, bytes) -> totals.add(Map.entry(songId, bytes.sum())));
+        totals.sort(Map.Entry.<Long, Long>comparingByValue().reversed());
+
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Map.Entry<Long, Long> entry : totals.subList(0, Math.min(limit, totals.size()))) {
+            Map<String, Object> song = new HashMap<>();
+            song.put("songId", entry.getKey());
+            song.put("bytes", entry.getValue());
+            top.add(song);
+        }
+        return top;
+    }
+
+    private final class MeteredOutputStream extends FilterOutputStream {
+        private final String type;
+        private final long requestStartNanos;
+        private long bytes;
+
+        private MeteredOutputStream(OutputStream out, String type, long requestStartNanos) {
+            super(out);
+            this.type = type;
+            this.requestStartNanos = requestStartNanos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            firstByte();
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            firstByte();
+            out.write(b, off, len);
+            bytes += len;
+        }
+
+        private void firstByte() {
+            if (bytes == 0) {
+                long ttfb = System.nanoTime() - requestStartNanos;
+                recentTtfbNanos.accumulateAndGet(ttfb, (average, sample) ->
+                        average == 0 ? sample : average + (sample - average) / 8);
+                Timer.builder("music.stream.ttfb")
+                        .description("Time from request arrival to the first body byte")
+                        .tags("type", type)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(ttfb, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.music.streaming.service;
+
+import com.music.streaming.repository.PlaylistRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the opening seconds of the track that will most likely play next into the
+ * {@link StreamSegmentCache}, so the first range request for it does not wait on cold storage.
+ *
+ * The next track is the one after the current song in the playlist the client is playing from,
+ * or whatever the client names explicitly (e.g. the head of its recommendation queue). Predictions
+ * are keyed by the song that is playing, so a new hint while it plays cancels the prefetch of the
+ * old one: a warm-up still queued or running is interrupted, and the old target's admission to the
+ * cache is revoked even if its warm-up finished. Predictions and warm-ups each run on one background
+ * thread behind a queue of at most {@code music.stream.readahead.max-pending} tasks, which drops its
+ * oldest task when full; at most that many prefetches are kept, and the oldest is cancelled when the
+ * budget is exceeded.
+ */
+@Service
+public class StreamReadAheadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamReadAheadService.class);
+
+    @Value("${music.stream.readahead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${music.stream.readahead.seconds:10}")
+    private double readAheadSeconds;
+
+    @Value("${music.stream.readahead.max-bytes:2097152}")
+    private long maxBytesPerSong;
+
+    @Value("${music.stream.readahead.max-pending:8}")
+    private int maxPending;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private StreamMediaIndex streamMediaIndex;
+
+    @Autowired
+    private StreamSegmentCache segmentCache;
+
+    @Autowired
+    private SongSeekService songSeekService;
+
+    private ThreadPoolExecutor executor;
+    // Separate from the prediction thread, so a superseded warm-up can be interrupted by the next prediction
+    private ThreadPoolExecutor warmers;
+
+    // Latest prefetch per playing song, oldest first
+    private final LinkedHashMap<Long, Prefetch> pending = new LinkedHashMap<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong prefetchedBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // Every range request of a listener may enqueue a prediction; newer ones matter more
+        executor = newSingleThreadPool("stream-readahead-");
+        warmers = newSingleThreadPool("stream-readahead-warm-");
+    }
+
+    /**
+     * Called when a song starts streaming. {@code playlistId} is the playlist it plays from and
+     * {@code nextSongId} an explicit hint for the next track; either may be null.
+     */
+    public void onPlay(long songId, Long playlistId, Long nextSongId) {
+        if (!enabled || !segmentCache.isEnabled() || (playlistId == null && nextSongId == null)) {
+            return;
+        }
+        synchronized (this) {
+            Prefetch current = pending.get(songId);
+            if (current != null && Objects.equals(current.playlistId, playlistId)
+                    && Objects.equals(current.nextSongId, nextSongId)) {
+                // Further range requests for the same track; the prediction is already in flight
+                return;
+            }
+        }
+        executor.execute(() -> predictAndSchedule(songId, playlistId, nextSongId));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (this) {
+            stats.put("predictions", pending.size());
+        }
+        stats.put("completed", completed.get());
+        stats.put("cancelled", cancelled.get());
+        stats.put("dropped", dropped.get());
+        stats.put("prefetchedBytes", prefetchedBytes.get());
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        warmers.shutdownNow();
+    }
+
+    private ThreadPoolExecutor newSingleThreadPool(String namePrefix) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxPending)), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        Thread thread = new Thread(task, namePrefix + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.DiscardOldestPolicy() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+                        if (!pool.isShutdown()) {
+                            dropped.incrementAndGet();
+                        }
+                        super.rejectedExecution(task, pool);
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private void predictAndSchedule(long songId, Long playlistId, Long nextSongId) {
+        Long target = nextSongId;
+        if (target == null) {
+            target = nextInPlaylist(playlistId, songId);
+        }
+        if (target == null || target == songId || segmentCache.admittedChunks(target) == Long.MAX_VALUE) {
+            // End of the playlist, or the next song is already in the hot set
+            return;
+        }
+
+        Prefetch prefetch = new Prefetch(playlistId, nextSongId, target);
+        synchronized (this) {
+            Prefetch previous = pending.remove(songId);
+            if (previous != null && previous.targetSongId == target) {
+                // Same prediction from a different hint: keep the prefetch, remember the hint
+                prefetch.future = previous.future;
+                pending.put(songId, prefetch);
+                return;
+            }
+            // The listener changed what comes next; the old prefetch is no longer needed
+            cancel(previous);
+            pending.put(songId, prefetch);
+            while (pending.size() > maxPending) {
+                Iterator<Prefetch> oldest = pending.values().iterator();
+                Prefetch evicted = oldest.next();
+                oldest.remove();
+                cancel(evicted);
+            }
+            prefetch.future = new FutureTask<>(() -> warm(prefetch), null);
+        }
+        // Finished prefetches stay in the map so repeated range requests for the same track are no-ops
+        warmers.execute(prefetch.future);
+    }
+
+    private Long nextInPlaylist(long playlistId, long songId) {
+        List<Long> songIds = playlistRepository.findSongIdsByPlaylistId(playlistId);
+        int index = songIds.indexOf(songId);
+        if (index < 0 || index + 1 >= songIds.size()) {
+            return null;
+        }
+        return songIds.get(index + 1);
+    }
+
+    private void warm(Prefetch prefetch) {
+        long songId = prefetch.targetSongId;
+        try {
+            ResolvedMedia media = streamMediaIndex.resolve(songId);
+            if (media == null) {
+                return;
+            }
+            long bytes = prefetchLength(media);
+            synchronized (this) {
+                // Superseded while resolving; admitting now would outlive the revoke in cancel()
+                if (prefetch.future.isCancelled()) {
+                    return;
+                }
+                segmentCache.admitPrefetch(songId, bytes);
+            }
+
+            int segmentSize = segmentCache.getSegmentSize();
+            long chunks = (bytes + segmentSize - 1) / segmentSize;
+            try (FileChannel channel = media.open()) {
+                for (long chunk = 0; chunk < chunks; chunk++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    StreamSegmentCache.Segment segment =
+                            segmentCache.acquire(songId, chunk, media.getLastModified(), channel);
+                    if (segment == null) {
+                        // Every slot is pinned by live streams; those take priority
+                        break;
+                    }
+                    prefetchedBytes.addAndGet(segment.getLength());
+                    segmentCache.release(segment);
+                }
+            }
+            completed.incrementAndGet();
+            logger.debug("Prefetched {} bytes of song {}", bytes, songId);
+        } catch (ClosedByInterruptException e) {
+            // Cancelled mid-read
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not prefetch song {}: {}", songId, e.getMessage());
+        }
+    }
+
+    private long prefetchLength(ResolvedMedia media) {
+        long bytes = songSeekService.offsetFor(media, readAheadSeconds);
+        if (bytes <= 0 && media.getBytesPerSecond() > 0) {
+            bytes = (long) (media.getBytesPerSecond() * readAheadSeconds);
+        }
+        if (bytes <= 0) {
+            bytes = maxBytesPerSong;
+        }
+        return Math.min(Math.min(bytes, maxBytesPerSong), media.getSize());
+    }
+
+    // Caller holds the monitor and has already removed the prefetch from pending
+    private void cancel(Prefetch prefetch) {
+        if (prefetch == null) {
+            return;
+        }
+        if (prefetch.future != null) {
+            // Interrupts a running warm-up, skips a queued one, and is a no-op for a finished one
+            prefetch.future.cancel(true);
+        }
+        // A finished warm-up still pins its chunks until the TTL; keep them only if another listener expects the song
+        boolean stillPredicted = pending.values().stream()
+                .anyMatch(other -> other.targetSongId == prefetch.targetSongId);
+        if (!stillPredicted) {
+            segmentCache.revokePrefetch(prefetch.targetSongId);
+        }
+        cancelled.incrementAndGet();
+    }
+
+    private static final class Prefetch {
+        private final Long playlistId;
+        private final Long nextSongId;
+        private final long targetSongId;
+        private FutureTask<Void> future;
+
+        private Prefetch(Long playlistId, Long nextSongId, long targetSongId) {
+            this.playlistId = playlistId;
+            this.nextSongId = nextSongId;
+            this.targetSongId = targetSongId;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.music.streaming.service;
+
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.SongRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap cache of fixed-size file segments for the most played songs, keyed by (songId, chunk index).
+ *
+ * Segments live in direct-buffer slabs that are carved into equally sized slots and recycled on
+ * eviction, so the cache never holds more than {@code music.stream.cache.max-bytes} outside the heap
+ * and eviction does not churn direct memory. Entries are evicted in LRU order; segments that are
+ * currently being written to a client are pinned and skipped by eviction.
+ *
+ * Besides the hot set, the read-ahead service can admit the first few segments of a song that is
+ * about to be played; that admission expires after {@code music.stream.readahead.ttl-ms}.
+ */
+@Service
+public class StreamSegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamSegmentCache.class);
+
+    // Keep single slabs well below the 2GB ByteBuffer limit
+    private static final long MAX_SLAB_BYTES = 64L * 1024 * 1024;
+
+    @Value("${music.stream.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${music.stream.cache.segment-size:262144}")
+    private int segmentSize;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    private final LinkedHashMap<SegmentKey, Segment> segments = new LinkedHashMap<>(256, 0.75f, true);
+    private final Deque<ByteBuffer> freeSlots = new ArrayDeque<>();
+    private long allocatedBytes;
+
+    @Value("${music.stream.readahead.ttl-ms:600000}")
+    private long prefetchTtlMillis;
+
+    private volatile Set<Long> hotSongIds = Set.of();
+    private final ConcurrentHashMap<Long, PrefetchAdmission> prefetched = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public boolean isEnabled() {
+        return maxBytes >= segmentSize;
+    }
+
+    /**
+     * Songs are admitted into the cache only while they are in the current top played set,
+     * so one-off plays of the long tail cannot push popular segments out.
+     */
+    public boolean admits(long songId) {
+        return admittedChunks(songId) > 0;
+    }
+
+    /**
+     * Number of leading chunks of a song that may be served from the cache: all of them for hot
+     * songs, the read-ahead window for prefetched ones, none otherwise.
+     */
+    public long admittedChunks(long songId) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        if (hotSongIds.contains(songId)) {
+            return Long.MAX_VALUE;
+        }
+        PrefetchAdmission admission = prefetched.get(songId);
+        if (admission == null) {
+            return 0;
+        }
+        if (admission.expiresAt < System.currentTimeMillis()) {
+            prefetched.remove(songId, admission);
+            return 0;
+        }
+        return admission.chunks;
+    }
+
+    /** Admits the chunks covering the first {@code bytes} of a song until the read-ahead TTL expires. */
+    public void admitPrefetch(long songId, long bytes) {
+        if (!isEnabled()) {
+            return;
+        }
+        long chunks = Math.max(1, (bytes + segmentSize - 1) / segmentSize);
+        prefetched.put(songId, new PrefetchAdmission(chunks, System.currentTimeMillis() + prefetchTtlMillis));
+    }
+
+    public void revokePrefetch(long songId) {
+        prefetched.remove(songId);
+    }
+
+    @Scheduled(fixedDelayString = "${music.stream.cache.hot-songs-refresh-ms:60000}")
+    public void refreshHotSongs() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Set<Long> ids = new HashSet<>();
+            for (Song song : songRepository.findTop10ByOrderByPlayCountDesc()) {
+                ids.add(song.getId());
+            }
+            Set<Long> previous = hotSongIds;
+            hotSongIds = Set.copyOf(ids);
+            for (Long songId : previous) {
+                if (!ids.contains(songId)) {
+                    invalidate(songId);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh hot song set for stream cache", e);
+        }
+    }
+
+    /**
+     * Returns the pinned segment for the given chunk, loading it from the channel on a miss.
+     * Returns null when no slot can be freed; the caller should then read from disk directly.
+     * Every non-null result must be handed back through {@link #release(Segment)}.
+     */
+    public Segment acquire(long songId, long chunkIndex, long version, FileChannel channel) throws IOException {
+        SegmentKey key = new SegmentKey(songId, chunkIndex);
+        ByteBuffer slot;
+        synchronized (this) {
+            Segment cached = segments.get(key);
+            if (cached != null && cached.version == version) {
+                cached.pins++;
+                hits.incrementAndGet();
+                return cached;
+            }
+            if (cached != null && cached.pins == 0) {
+                // File changed on disk since this segment was cached
+                segments.remove(key);
+                freeSlots.push(cached.slot);
+            }
+            misses.incrementAndGet();
+            slot = takeSlot();
+            if (slot == null) {
+                return null;
+            }
+        }
+
+        Segment loaded;
+        try {
+            loaded = load(key, version, slot, channel);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                freeSlots.push(slot);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Segment existing = segments.get(key);
+            if (existing != null && existing.version == version) {
+                // Another stream loaded the same chunk concurrently; keep theirs
+                freeSlots.push(slot);
+                existing.pins++;
+                return existing;
+            }
+            if (existing == null || existing.pins == 0) {
+                if (existing != null) {
+                    freeSlots.push(existing.slot);
+                }
+                segments.put(key, loaded);
+            }
+            loaded.pins++;
+            return loaded;
+        }
+    }
+
+    public synchronized void release(Segment segment) {
+        segment.pins--;
+        if (segment.pins == 0 && segments.get(segment.key) != segment) {
+            // Segment was replaced while pinned; its slot can be reused now
+            freeSlots.push(segment.slot);
+        }
+    }
+
+    public synchronized void invalidate(long songId) {
+        Iterator<Map.Entry<SegmentKey, Segment>> it = segments.entrySet().iterator();
+        while (it.hasNext()) {
+            Segment segment = it.next().getValue();
+            if (segment.key.songId() == songId) {
+                it.remove();
+                if (segment.pins == 0) {
+                    freeSlots.push(segment.slot);
+                }
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("segments", segments.size());
+        stats.put("segmentSize", segmentSize);
+        stats.put("usedBytes", (long) segments.size() * segmentSize);
+        stats.put("allocatedBytes", allocatedBytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hotSongIds", hotSongIds);
+        stats.put("prefetchedSongs", prefetched.size());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Segment load(SegmentKey key, long version, ByteBuffer slot, FileChannel channel) throws IOException {
+        ByteBuffer target = slot.duplicate();
+        target.clear();
+        long position = key.chunkIndex() * segmentSize;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        return new Segment(key, version, slot, target.position());
+    }
+
+    // Caller must hold the cache monitor
+    private ByteBuffer takeSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        if (allocatedBytes + segmentSize <= maxBytes) {
+            allocateSlab();
+            return freeSlots.pop();
+        }
+        Iterator<Segment> lru = segments.values().iterator();
+        while (lru.hasNext()) {
+            Segment candidate = lru.next();
+            if (candidate.pins == 0) {
+                lru.remove();
+                evictions.incrementAndGet();
+                return candidate.slot;
+            }
+        }
+        return null;
+    }
+
+    private void allocateSlab() {
+        long slabBytes = Math.min(MAX_SLAB_BYTES, maxBytes - allocatedBytes);
+        int slots = (int) (slabBytes / segmentSize);
+        ByteBuffer slab = ByteBuffer.allocateDirect(slots * segmentSize);
+        for (int i = 0; i < slots; i++) {
+            freeSlots.push(slab.slice(i * segmentSize, segmentSize));
+        }
+        allocatedBytes += (long) slots * segmentSize;
+        logger.debug("Allocated stream cache slab of {} segments ({} bytes total)", slots, allocatedBytes);
+    }
+
+    private record SegmentKey(long songId, long chunkIndex) {
+    }
+
+    private record PrefetchAdmission(long chunks, long expiresAt) {
+    }
+
+    public static final class Segment {
+        private final SegmentKey key;
+        private final long version;
+        private final ByteBuffer slot;
+        private final int length;
+        private int pins;
+
+        private Segment(SegmentKey key, long version, ByteBuffer slot, int length) {
+            this.key = key;
+            this.version = version;
+            this.slot = slot;
+            this.length = length;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /** Independent read-only view of {@code [offset, offset + count)} within the segment. */
+        public ByteBuffer view(int offset, int count) {
+            return slot.asReadOnlyBuffer().position(offset).limit(offset + count);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.music.streaming.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copies byte ranges of media files to a response stream straight from a {@link FileChannel}.
+ * Nothing is buffered on the heap beyond the channel adapter's small fixed-size copy window,
+ * so memory per stream stays the same regardless of how large the requested range is.
+ * Songs admitted by the {@link StreamSegmentCache} are served from off-heap segments instead of disk.
+ * Every writer holds a {@link StreamBandwidthScheduler} permit and paces its slices through it.
+ */
+@Service
+public class StreamTransferService {
+
+    // Upper bound for a single transferTo call so long ranges are written in steady slices
+    private static final long TRANSFER_SLICE = 256 * 1024;
+
+    @Autowired
+    private StreamSegmentCache segmentCache;
+
+    @Autowired
+    private StreamBandwidthScheduler bandwidthScheduler;
+
+    public void transfer(ResolvedMedia media, long start, long length, OutputStream out) throws IOException {
+        try (RangeWriter writer = open(media, out)) {
+            writer.write(start, length);
+        }
+    }
+
+    /**
+     * Opens the file once for writing several ranges, e.g. the parts of a multipart/byteranges response.
+     * Callers may interleave their own writes to {@code out} between ranges.
+     */
+    public RangeWriter open(ResolvedMedia media, OutputStream out) throws IOException {
+        FileChannel channel = media.open();
+        return new RangeWriter(media.getSongId(), media.getLastModified(), channel, out,
+                bandwidthScheduler.open(media.getBytesPerSecond()));
+    }
+
+    public void transfer(FileChannel channel, long start, long length, WritableByteChannel target) throws IOException {
+        transfer(channel, start, length, target, null);
+    }
+
+    private void transfer(FileChannel channel, long start, long length, WritableByteChannel target,
+                          StreamBandwidthScheduler.StreamPermit permit) throws IOException {
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long slice = Math.min(remaining, permit != null ? permit.sliceSize((int) TRANSFER_SLICE) : TRANSFER_SLICE);
+            if (permit != null) {
+                permit.acquire(slice);
+            }
+            long written = channel.transferTo(position, slice, target);
+            if (written <= 0) {
+                // File was truncated underneath us; stop rather than spin
+                throw new IOException("Unexpected end of file at position " + position);
+            }
+            position += written;
+            remaining -= written;
+        }
+    }
+
+    public final class RangeWriter implements Closeable {
+        private final long songId;
+        private final long version;
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final WritableByteChannel target;
+        private final long cachedChunks;
+        private final StreamBandwidthScheduler.StreamPermit permit;
+
+        private RangeWriter(long songId, long version, FileChannel channel, OutputStream out,
+                            StreamBandwidthScheduler.StreamPermit permit) {
+            this.songId = songId;
+            this.version = version;
+            this.channel = channel;
+            this.out = out;
+            this.target = Channels.newChannel(out);
+            this.cachedChunks = segmentCache.admittedChunks(songId);
+            this.permit = permit;
+        }
+
+        public void write(long start, long length) throws IOException {
+            if (cachedChunks > 0) {
+                transferCached(songId, version, cachedChunks, channel, start, length, target, permit);
+            } else {
+                transfer(channel, start, length, target, permit);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.flush();
+            } finally {
+                permit.close();
+                channel.close();
+            }
+        }
+    }
+
+    private void transferCached(long songId, long version, long cachedChunks, FileChannel channel, long start,
+                                long length, WritableByteChannel target, StreamBandwidthScheduler.StreamPermit permit)
+            throws IOException {
+        int segmentSize = segmentCache.getSegmentSize();
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long chunkIndex = position / segmentSize;
+            int offset = (int) (position - chunkIndex * segmentSize);
+            int count = (int) Math.min(remaining, segmentSize - offset);
+
+            if (chunkIndex >= cachedChunks) {
+                // Past the read-ahead window of a prefetched song; the rest comes from disk
+                transfer(channel, position, remaining, target, permit);
+                return;
+            }
+            StreamSegmentCache.Segment segment = segmentCache.acquire(songId, chunkIndex, version, channel);
+            if (segment == null) {
+                // Cache is full of pinned segments; fall back to disk for this chunk
+                transfer(channel, position, count, target, permit);
+            } else {
+                try {
+                    if (segment.getLength() < offset + count) {
+                        throw new IOException("Unexpected end of file at position " + position);
+                    }
+                    // Pace in smaller pieces so a throttled stream does not pin the segment for long bursts
+                    int step = permit.sliceSize(count);
+                    for (int written = 0; written < count; written += step) {
+                        int piece = Math.min(step, count - written);
+                        permit.acquire(piece);
+                        ByteBuffer view = segment.view(offset + written, piece);
+                        while (view.hasRemaining()) {
+                            target.write(view);
+                        }
+                    }
+                } finally {
+                    segmentCache.release(segment);
+                }
+            }
+            position += count;
+            remaining -= count;
+        }
+    }
+}
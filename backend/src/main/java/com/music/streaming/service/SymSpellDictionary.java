@@ -0,0 +1,160 @@
+package com.music.streaming.service;
+
+import java.util.*;
+
+/**
+ * Spelling dictionary using symmetric deletes (SymSpell). Every word is filed under each string left
+ * after deleting up to {@link #MAX_DISTANCE} characters from its first {@link #PREFIX_LENGTH}
+ * characters. A misspelling shares such a delete with every word within that many edits of it, so a
+ * lookup is a few dozen hash probes however large the vocabulary is, and only the words found that
+ * way are compared with the optimal string alignment distance (Levenshtein plus adjacent swaps).
+ *
+ * Words are reference counted so the dictionary can follow incremental index updates. Not thread
+ * safe; {@link SearchIndex} guards it with its lock.
+ */
+final class SymSpellDictionary {
+
+    static final int MAX_DISTANCE = 2;
+    // Deletes only come from the start of a word, which bounds their number per word
+    static final int PREFIX_LENGTH = 7;
+
+    record Suggestion(String word, int distance, int count) {
+    }
+
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator.comparingInt(Suggestion::distance)
+            .thenComparing(Comparator.comparingInt(Suggestion::count).reversed())
+            .thenComparing(Suggestion::word);
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, List<String>> deletes = new HashMap<>();
+
+    void add(String word) {
+        if (counts.merge(word, 1, Integer::sum) == 1) {
+            for (String delete : deletes(word)) {
+                deletes.computeIfAbsent(delete, key -> new ArrayList<>(1)).add(word);
+            }
+        }
+    }
+
+    void remove(String word) {
+        Integer count = counts.get(word);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            counts.put(word, count - 1);
+            return;
+        }
+        counts.remove(word);
+        for (String delete : deletes(word)) {
+            List<String> words = deletes.get(delete);
+            if (words != null && words.remove(word) && words.isEmpty()) {
+                deletes.remove(delete);
+            }
+        }
+    }
+
+    boolean contains(String word) {
+        return counts.containsKey(word);
+    }
+
+    int size() {
+        return counts.size();
+    }
+
+    int deleteCount() {
+        return deletes.size();
+    }
+
+    /** Dictionary words within {@code maxDistance} edits of {@code input}, closest and most common first. */
+    List<Suggestion> lookup(String input, int maxDistance, int limit) {
+        maxDistance = Math.min(maxDistance, MAX_DISTANCE);
+        Map<String, Suggestion> found = new HashMap<>();
+        for (String delete : deletes(input, maxDistance)) {
+            List<String> words = deletes.get(delete);
+            if (words == null) {
+                continue;
+            }
+            for (String word : words) {
+                if (found.containsKey(word) || Math.abs(word.length() - input.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = distance(input, word, maxDistance);
+                if (distance <= maxDistance) {
+                    found.put(word, new Suggestion(word, distance, counts.get(word)));
+                }
+            }
+        }
+        List<Suggestion> suggestions = new ArrayList<>(found.values());
+        suggestions.sort(BEST_FIRST);
+        return suggestions.size() > limit ? suggestions.subList(0, limit) : suggestions;
+    }
+
+    private static Set<String> deletes(String word) {
+        return deletes(word, MAX_DISTANCE);
+    }
+
+    // The prefix itself and everything reachable from it by deleting up to maxDistance characters
+    private static Set<String> deletes(String word, int maxDistance) {
+        String prefix = word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+        Set<String> result = new HashSet<>();
+        result.add(prefix);
+        List<String> frontier = List.of(prefix);
+        for (int distance = 1; distance <= maxDistance; distance++) {
+            List<String> next = new ArrayList<>();
+            for (String candidate : frontier) {
+                if (candidate.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < candidate.length(); i++) {
+                    String delete = candidate.substring(0, i) + candidate.substring(i + 1);
+                    if (result.add(delete)) {
+                        next.add(delete);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance between {@code a} and {@code b}, or {@code max + 1} as soon as
+     * it is known to exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
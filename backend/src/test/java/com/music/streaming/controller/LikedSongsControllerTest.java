@@ -1,5 +1,6 @@
 package com.music.streaming.controller;
 
+import com.music.streaming.dto.SongDTO;
 import com.music.streaming.model.Artist;
 import com.music.streaming.model.Song;
 import com.music.streaming.model.User;
@@ -8,6 +9,7 @@ import com.music.streaming.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -15,6 +17,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -35,6 +38,10 @@ public class LikedSongsControllerTest {
     @MockBean
     private SongRepository songRepository;
 
+    // The admin user initializer runs at startup, before any stubs, and would save through the mocked repository
+    @MockBean(name = "initAdminUser")
+    private CommandLineRunner initAdminUser;
+
     private User testUser;
     private Song testSong;
     private Artist testArtist;
@@ -88,8 +95,8 @@ public class LikedSongsControllerTest {
     @Test
     @WithMockUser(username = "testuser")
     public void testGetLikedSongs() throws Exception {
-        testUser.getLikedSongs().add(testSong);
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(songRepository.findLikedDTOs(1L)).thenReturn(List.of(SongDTO.of(testSong)));
 
         mockMvc.perform(get("/api/liked-songs"))
                 .andExpect(status().isOk())
@@ -0,0 +1,10 @@
+package com.music.streaming.controller;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@EnabledIfSystemProperty(named = "stream.benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "music.stream.executor.mode=platform")
+public class PlatformStreamingBenchmarkTest extends StreamingExecutorBenchmark {
+}
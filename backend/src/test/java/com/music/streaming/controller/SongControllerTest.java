@@ -0,0 +1,121 @@
+package com.music.streaming.controller;
+
+import com.music.streaming.model.Artist;
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.SongRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+public class SongControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    private Artist artist;
+    private final List<Long> songIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        artist = new Artist();
+        artist.setName("Keyset Artist");
+        artist = artistRepository.save(artist);
+        for (int i = 0; i < 5; i++) {
+            Song song = new Song();
+            song.setTitle("Keyset Song " + i);
+            song.setArtist(artist);
+            song.setAlbum("Keyset Album");
+            song.setDuration(180);
+            song.setGenre(i % 2 == 0 ? "Keyset Even" : "Keyset Odd");
+            song.setFileUrl("/music/keyset-" + i + ".mp3");
+            // Song 3 tops the charts
+            song.setPlayCount(i == 3 ? Integer.MAX_VALUE : i);
+            songIds.add(songRepository.save(song).getId());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        songRepository.deleteAllById(songIds);
+        artistRepository.delete(artist);
+    }
+
+    @Test
+    public void testAllSongsArePagedByIdWithNextCursor() throws Exception {
+        long beforeFirst = songIds.get(0) - 1;
+
+        mockMvc.perform(get("/api/songs").param("after", String.valueOf(beforeFirst)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(songIds.get(0)))
+                .andExpect(jsonPath("$[1].id").value(songIds.get(1)))
+                .andExpect(jsonPath("$[1].artistName").value("Keyset Artist"))
+                .andExpect(header().string(KeysetPagination.NEXT_CURSOR_HEADER, String.valueOf(songIds.get(1))));
+
+        mockMvc.perform(get("/api/songs").param("after", String.valueOf(songIds.get(3))).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(songIds.get(4)))
+                .andExpect(header().doesNotExist(KeysetPagination.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testGenreAndArtistPages() throws Exception {
+        mockMvc.perform(get("/api/songs/genre/Keyset Even").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(songIds.get(0)))
+                .andExpect(jsonPath("$[1].id").value(songIds.get(2)))
+                .andExpect(header().string(KeysetPagination.NEXT_CURSOR_HEADER, String.valueOf(songIds.get(2))));
+
+        mockMvc.perform(get("/api/songs/genre/Keyset Even")
+                        .param("after", String.valueOf(songIds.get(2))).param("limit", "2"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(songIds.get(4)));
+
+        mockMvc.perform(get("/api/songs/artist/" + artist.getId()).param("after", String.valueOf(songIds.get(0))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(header().doesNotExist(KeysetPagination.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void testSongByIdAndTopSongsAreProjectedWithTheirArtist() throws Exception {
+        mockMvc.perform(get("/api/songs/" + songIds.get(3)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Keyset Song 3"))
+                .andExpect(jsonPath("$.artistId").value(artist.getId()))
+                .andExpect(jsonPath("$.artistName").value("Keyset Artist"))
+                .andExpect(jsonPath("$.genre").value("Keyset Odd"))
+                .andExpect(jsonPath("$.fileUrl").value("/music/keyset-3.mp3"))
+                .andExpect(jsonPath("$.available").value(true));
+
+        mockMvc.perform(get("/api/songs/top"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(songIds.get(3)))
+                .andExpect(jsonPath("$[0].playCount").value(Integer.MAX_VALUE))
+                .andExpect(jsonPath("$[0].artistName").value("Keyset Artist"));
+    }
+}
@@ -3,27 +3,47 @@ package com.music.streaming.controller;
 import com.music.streaming.model.Artist;
 import com.music.streaming.model.Song;
 import com.music.streaming.repository.SongRepository;
+import com.music.streaming.service.StreamBulkhead;
+import com.music.streaming.service.StreamMetrics;
+import com.music.streaming.service.StreamReadAheadService;
+import com.music.streaming.service.StreamSegmentCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 public class StreamingControllerTest {
 
     @Autowired
@@ -32,6 +52,21 @@ public class StreamingControllerTest {
     @MockBean
     private SongRepository songRepository;
 
+    @Autowired
+    private StreamSegmentCache streamSegmentCache;
+
+    @Autowired
+    private StreamReadAheadService streamReadAheadService;
+
+    @Autowired
+    private StreamMetrics streamMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StreamBulkhead streamBulkhead;
+
     @TempDir
     Path tempDir;
 
@@ -79,6 +114,321 @@ public class StreamingControllerTest {
                 .andExpect(header().string("Accept-Ranges", "bytes"));
     }
 
+    @Test
+    public void testStreamSong_RangeBodyWrittenFromFile() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        MvcResult result = mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=5-11"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 5-11/33"))
+                .andExpect(content().string("is a te"));
+    }
+
+    @Test
+    public void testStreamSong_SuffixRange() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        MvcResult result = mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=-7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 26-32/33"))
+                .andExpect(content().string("content"));
+    }
+
+    @Test
+    public void testStreamSong_MultipleRanges() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        MvcResult result = mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=0-3,-7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Type", startsWith("multipart/byteranges;boundary=")))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("Content-Range: bytes 0-3/33\r\n\r\nThis\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 26-32/33\r\n\r\ncontent\r\n"));
+        assertTrue(body.endsWith("--\r\n"));
+        assertEquals(body.length(), result.getResponse().getContentLength());
+    }
+
+    @Test
+    public void testStreamSong_UnsatisfiableRange() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */33"));
+    }
+
+    @Test
+    public void testStreamSong_SeekWithoutTableFallsBackToFullContent() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        mockMvc.perform(get("/api/stream/1").param("t", "150"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Range"));
+    }
+
+    @Test
+    public void testStreamSong_HotSongServedFromSegmentCache() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+        when(songRepository.findTop10ByOrderByPlayCountDesc()).thenReturn(List.of(testSong));
+        streamSegmentCache.refreshHotSongs();
+        long hitsBefore = streamSegmentCache.getHits();
+
+        for (int i = 0; i < 2; i++) {
+            MvcResult result = mockMvc.perform(get("/api/stream/1")
+                            .header("Range", "bytes=10-13"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(content().string("test"));
+        }
+
+        assertTrue(streamSegmentCache.getHits() > hitsBefore, "Second read should be a cache hit");
+
+        when(songRepository.findTop10ByOrderByPlayCountDesc()).thenReturn(List.of());
+        streamSegmentCache.refreshHotSongs();
+    }
+
+    @Test
+    public void testStreamSong_NextTrackPrefetchedIntoSegmentCache() throws Exception {
+        File nextFile = tempDir.resolve("next-song.mp3").toFile();
+        try (FileWriter writer = new FileWriter(nextFile)) {
+            writer.write("Opening bars of the next track");
+        }
+        Song nextSong = new Song();
+        nextSong.setId(2L);
+        nextSong.setTitle("Next Song");
+        nextSong.setFileUrl("file://" + nextFile.getAbsolutePath());
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+        when(songRepository.findById(2L)).thenReturn(Optional.of(nextSong));
+
+        long completedBefore = (long) streamReadAheadService.getStats().get("completed");
+
+        mockMvc.perform(get("/api/stream/1").param("next", "2"))
+                .andExpect(status().isOk());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((long) streamReadAheadService.getStats().get("completed") == completedBefore
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(streamSegmentCache.admittedChunks(2L) > 0, "Next track should be admitted for read-ahead");
+
+        long hitsBefore = streamSegmentCache.getHits();
+        long missesBefore = streamSegmentCache.getMisses();
+        MvcResult result = mockMvc.perform(get("/api/stream/2")
+                        .header("Range", "bytes=0-6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("Opening"));
+
+        assertEquals(hitsBefore + 1, streamSegmentCache.getHits());
+        assertEquals(missesBefore, streamSegmentCache.getMisses());
+
+        streamSegmentCache.revokePrefetch(2L);
+        streamSegmentCache.invalidate(2L);
+    }
+
+    @Test
+    public void testStreamSong_RecordsMeters() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+        double partialBefore = meterRegistry.counter("music.stream.responses", "status", "206").count();
+        double unsatisfiableBefore = meterRegistry.counter("music.stream.responses", "status", "416").count();
+        double rangeRequestsBefore = meterRegistry.counter("music.stream.requests", "type", "range").count();
+        long songBytesBefore = streamMetrics.getBytesServed(1L);
+
+        MvcResult result = mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=0-3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+
+        assertEquals(partialBefore + 1, meterRegistry.counter("music.stream.responses", "status", "206").count());
+        assertEquals(unsatisfiableBefore + 1, meterRegistry.counter("music.stream.responses", "status", "416").count());
+        assertEquals(rangeRequestsBefore + 1, meterRegistry.counter("music.stream.requests", "type", "range").count());
+        assertTrue(meterRegistry.get("music.stream.ttfb").tag("type", "range").timer().count() > 0);
+        assertTrue(meterRegistry.get("music.stream.transfer").tag("type", "range").timer().count() > 0);
+        assertEquals(songBytesBefore + 4, streamMetrics.getBytesServed(1L));
+        assertEquals(0, streamMetrics.getActiveStreams());
+    }
+
+    @Test
+    public void testChangedNextHintRevokesTheOldPrefetch() throws Exception {
+        for (long id = 12; id <= 13; id++) {
+            File file = tempDir.resolve("song-" + id + ".mp3").toFile();
+            try (FileWriter writer = new FileWriter(file)) {
+                writer.write("Opening bars of song " + id);
+            }
+            Song song = new Song();
+            song.setId(id);
+            song.setTitle("Song " + id);
+            song.setFileUrl("file://" + file.getAbsolutePath());
+            when(songRepository.findById(id)).thenReturn(Optional.of(song));
+        }
+        long cancelledBefore = (long) streamReadAheadService.getStats().get("cancelled");
+
+        // Ids no other test streams, so the read-ahead state of other tests does not interfere
+        mockMvc.perform(post("/api/stream/11/played").param("next", "12"))
+                .andExpect(status().isNoContent());
+        awaitAdmitted(12L);
+
+        // The listener skipped ahead in its queue while song 11 plays
+        mockMvc.perform(post("/api/stream/11/played").param("next", "13"))
+                .andExpect(status().isNoContent());
+        awaitAdmitted(13L);
+
+        assertEquals(0, streamSegmentCache.admittedChunks(12L));
+        assertEquals(cancelledBefore + 1, (long) streamReadAheadService.getStats().get("cancelled"));
+
+        streamSegmentCache.revokePrefetch(13L);
+        streamSegmentCache.invalidate(12L);
+        streamSegmentCache.invalidate(13L);
+    }
+
+    private void awaitAdmitted(long songId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (streamSegmentCache.admittedChunks(songId) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(streamSegmentCache.admittedChunks(songId) > 0, "Song " + songId + " should be admitted for read-ahead");
+    }
+
+    @Test
+    public void testPrometheusScrapeRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").with(user("listener")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus").with(user("scraper").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("music_stream")));
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testPlayReportFromEdgeIsCountedWithoutStreaming() throws Exception {
+        double edgeBefore = meterRegistry.counter("music.stream.edge.requests").count();
+        double fullBefore = meterRegistry.counter("music.stream.requests", "type", "full").count();
+
+        // Ids no other test streams, so the read-ahead queue it starts does not interfere
+        mockMvc.perform(post("/api/stream/7/played").param("next", "8"))
+                .andExpect(status().isNoContent());
+
+        assertEquals(edgeBefore + 1, meterRegistry.counter("music.stream.edge.requests").count());
+        assertEquals(fullBefore, meterRegistry.counter("music.stream.requests", "type", "full").count());
+        verify(songRepository, never()).findById(7L);
+    }
+
+    @Test
+    public void testStreamSong_BulkheadFullReturnsServiceUnavailable() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+        double fullRequestsBefore = meterRegistry.counter("music.stream.requests", "type", "full").count();
+        int held = 0;
+        while (streamBulkhead.tryAcquire()) {
+            held++;
+        }
+        try {
+            mockMvc.perform(get("/api/stream/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"));
+        } finally {
+            for (int i = 0; i < held; i++) {
+                streamBulkhead.release();
+            }
+        }
+        // Turned away before any work was done for it
+        assertEquals(fullRequestsBefore, meterRegistry.counter("music.stream.requests", "type", "full").count());
+
+        // A permit released by both the body and the async completion callback is returned only once
+        StreamBulkhead.Permit permit = streamBulkhead.acquire();
+        assertEquals(1, streamBulkhead.getActive());
+        permit.release();
+        permit.release();
+        assertEquals(0, streamBulkhead.getActive());
+
+        MvcResult result = mockMvc.perform(get("/api/stream/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertEquals(0, streamBulkhead.getActive());
+    }
+
+    @Test
+    public void testStreamSong_SendsValidators() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        mockMvc.perform(get("/api/stream/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "max-age=86400, public"));
+    }
+
+    @Test
+    public void testStreamSong_IfNoneMatchReturnsNotModified() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        String etag = mockMvc.perform(get("/api/stream/1"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/stream/1")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
+    @Test
+    public void testStreamSong_StaleIfRangeSendsFullContent() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        mockMvc.perform(get("/api/stream/1")
+                        .header("Range", "bytes=0-10")
+                        .header("If-Range", "\"stale-etag\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Range"));
+    }
+
+    @Test
+    public void testStreamSong_RepeatRequestsServedFromMediaIndex() throws Exception {
+        when(songRepository.findById(1L)).thenReturn(Optional.of(testSong));
+
+        for (int i = 0; i < 2; i++) {
+            // Wait for the body, so it does not write while the next request runs through the filters
+            MvcResult result = mockMvc.perform(get("/api/stream/1"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        }
+
+        verify(songRepository, times(1)).findById(1L);
+    }
+
     @Test
     public void testStreamSong_NotFound() throws Exception {
         when(songRepository.findById(999L)).thenReturn(Optional.empty());
@@ -0,0 +1,148 @@
+package com.music.streaming.controller;
+
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.SongRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures JSON API latency while many slow listeners hold stream responses open.
+ * The subclasses are disabled by default; run both modes (virtual needs Java 21) with
+ * {@code mvn test -Dstream.benchmark=true -Dtest='*StreamingBenchmarkTest'} and compare the logged results.
+ */
+abstract class StreamingExecutorBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingExecutorBenchmark.class);
+
+    private static final int LISTENERS = 48;
+    private static final int API_CALLS = 300;
+    private static final long FILE_SIZE = 16L * 1024 * 1024;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${music.stream.executor.mode}")
+    private String mode;
+
+    @MockBean
+    private SongRepository songRepository;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void apiLatencyUnderStreamLoad() throws Exception {
+        Path file = tempDir.resolve("benchmark.mp3");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(FILE_SIZE);
+        }
+        Song song = new Song();
+        song.setId(1L);
+        song.setTitle("Benchmark");
+        song.setFileUrl("file://" + file.toAbsolutePath());
+        when(songRepository.findById(1L)).thenReturn(Optional.of(song));
+        when(songRepository.findTop10ByOrderByPlayCountDesc()).thenReturn(List.of());
+
+        long[] idle = measureApi();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch connected = new CountDownLatch(LISTENERS);
+        List<Thread> listeners = new ArrayList<>();
+        for (int i = 0; i < LISTENERS; i++) {
+            Thread listener = new Thread(() -> listen(running, started, rejected, connected), "listener-" + i);
+            listener.setDaemon(true);
+            listener.start();
+            listeners.add(listener);
+        }
+        connected.await();
+
+        long[] loaded = measureApi();
+        running.set(false);
+        for (Thread listener : listeners) {
+            listener.join(5000);
+        }
+
+        logger.info("Stream benchmark mode={} java={} listeners={} streaming={} rejected={}",
+                mode, Runtime.version().feature(), LISTENERS, started.get(), rejected.get());
+        logger.info("Stream benchmark api idle   p50={}ms p99={}ms", millis(idle, 50), millis(idle, 99));
+        logger.info("Stream benchmark api loaded p50={}ms p99={}ms", millis(loaded, 50), millis(loaded, 99));
+        assertTrue(started.get() > 0, "No stream was served");
+    }
+
+    // Reads a little at a time so the server-side write blocks on a full socket buffer, like a real player
+    private void listen(AtomicBoolean running, AtomicInteger started, AtomicInteger rejected, CountDownLatch connected) {
+        try {
+            HttpURLConnection connection = open("/api/stream/1");
+            int status = connection.getResponseCode();
+            connected.countDown();
+            if (status != 200) {
+                rejected.incrementAndGet();
+                return;
+            }
+            started.incrementAndGet();
+            byte[] buffer = new byte[16 * 1024];
+            try (InputStream in = connection.getInputStream()) {
+                while (running.get() && in.read(buffer) >= 0) {
+                    Thread.sleep(20);
+                }
+            }
+            connection.disconnect();
+        } catch (Exception e) {
+            connected.countDown();
+        }
+    }
+
+    private long[] measureApi() throws Exception {
+        long[] nanos = new long[API_CALLS];
+        for (int i = 0; i < API_CALLS; i++) {
+            long start = System.nanoTime();
+            HttpURLConnection connection = open("/api/songs/top");
+            try (InputStream in = connection.getInputStream()) {
+                in.readAllBytes();
+            }
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        return connection;
+    }
+
+    private static String millis(long[] nanos, int percentile) {
+        return String.format("%.2f", percentile(nanos, percentile));
+    }
+
+    private static double percentile(long[] nanos, int percentile) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = Math.min(sorted.length - 1, sorted.length * percentile / 100);
+        return sorted[index] / 1_000_000.0;
+    }
+}
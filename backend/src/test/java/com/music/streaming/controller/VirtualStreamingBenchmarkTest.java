@@ -0,0 +1,17 @@
+package com.music.streaming.controller;
+
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Without virtual threads the context would not start, and there would be nothing to compare
+@EnabledIfSystemProperty(named = "stream.benchmark", matches = "true")
+@EnabledIf("virtualThreadsAvailable")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "music.stream.executor.mode=virtual")
+public class VirtualStreamingBenchmarkTest extends StreamingExecutorBenchmark {
+
+    static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+}
@@ -0,0 +1,150 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteRangesTest {
+
+    private static final long LENGTH = 10_000;
+    private static final long NO_CAP = 0;
+
+    private ByteRanges ranges;
+
+    @BeforeEach
+    public void setUp() {
+        ranges = new ByteRanges();
+    }
+
+    @Test
+    public void testClosedRange() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=0-1023", LENGTH, NO_CAP));
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.start(0));
+        assertEquals(1023, ranges.end(0));
+        assertEquals(1024, ranges.length(0));
+    }
+
+    @Test
+    public void testClosedRangeEndClampedToLength() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=9000-20000", LENGTH, NO_CAP));
+        assertEquals(9000, ranges.start(0));
+        assertEquals(LENGTH - 1, ranges.end(0));
+    }
+
+    @Test
+    public void testOpenRange() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=500-", LENGTH, NO_CAP));
+        assertEquals(500, ranges.start(0));
+        assertEquals(LENGTH - 1, ranges.end(0));
+    }
+
+    @Test
+    public void testOpenRangeCappedWhenAlone() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=0-", LENGTH, 1000));
+        assertEquals(0, ranges.start(0));
+        assertEquals(999, ranges.end(0));
+    }
+
+    @Test
+    public void testSuffixRange() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=-128", LENGTH, 1000));
+        assertEquals(1, ranges.size());
+        assertEquals(LENGTH - 128, ranges.start(0));
+        assertEquals(LENGTH - 1, ranges.end(0));
+    }
+
+    @Test
+    public void testSuffixLongerThanRepresentation() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=-65536", LENGTH, NO_CAP));
+        assertEquals(0, ranges.start(0));
+        assertEquals(LENGTH - 1, ranges.end(0));
+    }
+
+    @Test
+    public void testMultipleRangesSortedAndKept() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=500-599, 0-99, -100", LENGTH, NO_CAP));
+        assertEquals(3, ranges.size());
+        assertEquals(0, ranges.start(0));
+        assertEquals(99, ranges.end(0));
+        assertEquals(500, ranges.start(1));
+        assertEquals(599, ranges.end(1));
+        assertEquals(LENGTH - 100, ranges.start(2));
+        assertEquals(LENGTH - 1, ranges.end(2));
+    }
+
+    @Test
+    public void testOverlappingAndAdjacentRangesCoalesced() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=0-99,100-199,150-300,1000-1099", LENGTH, NO_CAP));
+        assertEquals(2, ranges.size());
+        assertEquals(0, ranges.start(0));
+        assertEquals(300, ranges.end(0));
+        assertEquals(1000, ranges.start(1));
+    }
+
+    @Test
+    public void testRangeBridgingTwoExistingRangesCoalesced() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=0-9,20-29,5-25", LENGTH, NO_CAP));
+        assertEquals(1, ranges.size());
+        assertEquals(0, ranges.start(0));
+        assertEquals(29, ranges.end(0));
+    }
+
+    @Test
+    public void testOpenRangeNotCappedInMultiRange() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=0-9,5000-", LENGTH, 100));
+        assertEquals(2, ranges.size());
+        assertEquals(LENGTH - 1, ranges.end(1));
+    }
+
+    @Test
+    public void testWhitespaceAndEmptyElementsTolerated() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse(" Bytes = ,0-9 , ,20-29,", LENGTH, NO_CAP));
+        assertEquals(2, ranges.size());
+    }
+
+    @Test
+    public void testUnsatisfiableRanges() {
+        assertEquals(ByteRanges.Result.UNSATISFIABLE, ranges.parse("bytes=10000-", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.UNSATISFIABLE, ranges.parse("bytes=20000-30000,-0", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.UNSATISFIABLE, ranges.parse("bytes=99999999999999999999999-", LENGTH, NO_CAP));
+        assertEquals(0, ranges.size());
+    }
+
+    @Test
+    public void testSatisfiableWhenAnyRangeOverlaps() {
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=20000-30000,0-0", LENGTH, NO_CAP));
+        assertEquals(1, ranges.size());
+        assertEquals(1, ranges.length(0));
+    }
+
+    @Test
+    public void testMalformedHeadersIgnored() {
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse(null, LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("items=0-9", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=-", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=abc-def", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=9-0", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=0-9;10-19", LENGTH, NO_CAP));
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse("bytes=0-9,x", LENGTH, NO_CAP));
+    }
+
+    @Test
+    public void testTooManyDistinctRangesIgnored() {
+        StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i <= ByteRanges.MAX_RANGES; i++) {
+            header.append(i * 10).append('-').append(i * 10 + 1).append(',');
+        }
+        assertEquals(ByteRanges.Result.IGNORED, ranges.parse(header, LENGTH, NO_CAP));
+    }
+
+    @Test
+    public void testInstanceReusable() {
+        ranges.parse("bytes=0-9,20-29", LENGTH, NO_CAP);
+        assertEquals(ByteRanges.Result.SATISFIABLE, ranges.parse("bytes=-5", LENGTH, NO_CAP));
+        assertEquals(1, ranges.size());
+        assertEquals(LENGTH - 5, ranges.start(0));
+    }
+}
@@ -0,0 +1,75 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompletionTrieTest {
+
+    @Test
+    public void testCompletesWordStartsByWeight() {
+        CompletionTrie<String> trie = CompletionTrie.<String>builder(3)
+                .add("Yellow", 500, "yellow")
+                .add("Mellow Yellow", 20, "mellow yellow")
+                .add("Yellow Submarine", 700, "yellow submarine")
+                .add("Yesterday", 900, "yesterday")
+                .add("Hello", 1000, "hello")
+                .build();
+
+        assertEquals(List.of("Yesterday", "Yellow Submarine", "Yellow"), trie.complete("ye", 10));
+        assertEquals(List.of("Yellow Submarine", "Yellow", "Mellow Yellow"), trie.complete("yellow", 10));
+        assertEquals(List.of("Yellow Submarine"), trie.complete("yellow s", 10));
+        assertEquals(List.of("Yellow Submarine"), trie.complete("sub", 10));
+        assertEquals(List.of("Yesterday"), trie.complete("y", 1));
+        assertTrue(trie.complete("xylophone", 10).isEmpty());
+        assertTrue(trie.complete("", 10).isEmpty());
+    }
+
+    @Test
+    public void testMatchesBruteForceOnRandomCatalog() {
+        Random random = new Random(42);
+        String[] syllables = {"la", "le", "lo", "ma", "me", "mo", "na", "ne", "no", "ra"};
+        int k = 5;
+        CompletionTrie.Builder<Integer> builder = CompletionTrie.builder(k);
+        List<String> texts = new ArrayList<>();
+        long[] weights = new long[2000];
+        for (int i = 0; i < weights.length; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0, words = 1 + random.nextInt(3); word < words; word++) {
+                if (word > 0) {
+                    text.append(' ');
+                }
+                for (int s = 0, count = 1 + random.nextInt(3); s < count; s++) {
+                    text.append(syllables[random.nextInt(syllables.length)]);
+                }
+            }
+            texts.add(text.toString());
+            weights[i] = random.nextInt(1000);
+            builder.add(i, weights[i], text.toString());
+        }
+        CompletionTrie<Integer> trie = builder.build();
+        assertTrue(trie.nodeCount() > 0);
+
+        for (String prefix : List.of("l", "la", "lal", "lame", "mo", "ra", "rara", "ne no", "ma la", "q")) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < texts.size(); i++) {
+                if (hasWordStartingWith(texts.get(i), prefix)) {
+                    expected.add(i);
+                }
+            }
+            expected.sort(Comparator.comparingLong((Integer i) -> weights[i]).reversed().thenComparingInt(i -> i));
+            assertEquals(expected.subList(0, Math.min(k, expected.size())), trie.complete(prefix, 10), prefix);
+        }
+    }
+
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        for (int i = 0; i < text.length(); i++) {
+            if ((i == 0 || text.charAt(i - 1) == ' ') && text.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
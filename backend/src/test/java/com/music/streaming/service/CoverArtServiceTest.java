@@ -0,0 +1,101 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoverArtServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CoverArtService coverArtService;
+
+    @BeforeEach
+    public void setUp() {
+        coverArtService = new CoverArtService();
+        ReflectionTestUtils.setField(coverArtService, "enabled", true);
+        ReflectionTestUtils.setField(coverArtService, "cacheDir", tempDir.toString());
+        ReflectionTestUtils.setField(coverArtService, "sizes", new int[]{96, 300});
+        ReflectionTestUtils.setField(coverArtService, "defaultSize", 300);
+        ReflectionTestUtils.setField(coverArtService, "maxBytes", 1 << 20);
+        ReflectionTestUtils.setField(coverArtService, "maxPixels", 4_000_000L);
+        ReflectionTestUtils.setField(coverArtService, "jpegQuality", 0.85f);
+        coverArtService.init();
+    }
+
+    @Test
+    public void testStoreWritesThumbnailsOncePerPicture() throws Exception {
+        byte[] png = png(1000, 500);
+
+        String hash = coverArtService.store(png);
+        String again = coverArtService.store(png);
+
+        assertNotNull(hash);
+        assertEquals(hash, again);
+        assertEquals("/api/covers/" + hash + "/300", coverArtService.coverUrl(hash));
+        BufferedImage small = ImageIO.read(coverArtService.resolve(hash, 96).toFile());
+        assertEquals(96, small.getWidth());
+        assertEquals(48, small.getHeight());
+        BufferedImage large = ImageIO.read(coverArtService.resolve(hash, 300).toFile());
+        assertEquals(300, large.getWidth());
+        assertEquals(1L, coverArtService.getStats().get("stored"));
+        assertEquals(1L, coverArtService.getStats().get("reused"));
+    }
+
+    @Test
+    public void testResolveRejectsUnknownHashesAndSizes() throws Exception {
+        String hash = coverArtService.store(png(64, 64));
+
+        assertNotNull(coverArtService.resolve(hash, 96));
+        assertNull(coverArtService.resolve(hash, 600));
+        assertNull(coverArtService.resolve("../../etc/passwd", 96));
+        assertNull(coverArtService.resolve("0".repeat(64), 96));
+    }
+
+    @Test
+    public void testUndecodablePicturesAreSkipped() {
+        assertNull(coverArtService.store(new byte[]{1, 2, 3, 4}));
+        assertEquals(1L, coverArtService.getStats().get("failed"));
+        assertTrue(CoverArtService.isGeneratedCover(CoverArtService.DEFAULT_COVER));
+        assertFalse(CoverArtService.isGeneratedCover("https://example.com/cover.jpg"));
+    }
+
+    @Test
+    public void testLargePicturesAreDecodedSubsampled() throws Exception {
+        String hash = coverArtService.store(png(2400, 1200));
+
+        assertNotNull(hash);
+        BufferedImage large = ImageIO.read(coverArtService.resolve(hash, 300).toFile());
+        assertEquals(300, large.getWidth());
+        assertEquals(150, large.getHeight());
+    }
+
+    @Test
+    public void testPicturesOverThePixelBudgetAreNotDecoded() throws Exception {
+        // Blank, so it compresses to a few kilobytes while declaring 9 megapixels
+        byte[] png = png(3000, 3000);
+        assertTrue(png.length < 100_000);
+
+        assertNull(coverArtService.store(png));
+        assertEquals(1L, coverArtService.getStats().get("failed"));
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, height / 2, 0xFF3366CC);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
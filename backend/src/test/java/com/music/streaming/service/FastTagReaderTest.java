@@ -0,0 +1,283 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastTagReaderTest {
+
+    // MPEG 1 layer III, 128 kbps, 44.1 kHz, no padding: 417 bytes and 1152 samples per frame
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int FRAME_LENGTH = 417;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMp3Id3v23TagsAndCbrDuration() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(id3v2(3,
+                textFrame("TIT2", "Café Song"),
+                textFrame("APIC", "not text, skipped"),
+                textFrame("TPE1", "Some Artist"),
+                textFrame("TCON", "(17)")));
+        // ~10 seconds of CBR audio
+        writeFrames(out, 383);
+        Path file = write("song.mp3", out.toByteArray());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("Café Song", tags.title());
+        assertEquals("Some Artist", tags.artist());
+        assertNull(tags.album());
+        assertEquals("Rock", tags.genre());
+        assertEquals(10, tags.durationSeconds());
+        // The audio payload starts after the tag and runs to the end of the file
+        assertEquals(Files.size(file) - 383 * FRAME_LENGTH, tags.audioOffset());
+        assertEquals(383 * FRAME_LENGTH, tags.audioLength());
+    }
+
+    @Test
+    public void testRetaggingKeepsAudioFingerprint() throws Exception {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        writeFrames(audio, 2400);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        first.write(id3v2(3, textFrame("TIT2", "Before")));
+        first.write(audio.toByteArray());
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        second.write(id3v2(4, textFrame("TIT2", "A much longer title after retagging")));
+        second.write(audio.toByteArray());
+        Path before = write("before.mp3", first.toByteArray());
+        Path after = write("after.mp3", second.toByteArray());
+
+        FastTagReader.Tags beforeTags = FastTagReader.read(before);
+        FastTagReader.Tags afterTags = FastTagReader.read(after);
+
+        assertEquals(AudioFingerprint.compute(before, beforeTags.audioOffset(), beforeTags.audioLength()),
+                AudioFingerprint.compute(after, afterTags.audioOffset(), afterTags.audioLength()));
+        assertNotEquals(AudioFingerprint.compute(before, 0, 0), AudioFingerprint.compute(after, 0, 0));
+    }
+
+    @Test
+    public void testId3PicturePrefersFrontCover() throws Exception {
+        byte[] back = {1, 2, 3, 4, 5, 6, 7, 8};
+        byte[] front = {9, 8, 7, 6, 5, 4, 3, 2, 1, 0};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(id3v2(3,
+                textFrame("TIT2", "Pictured"),
+                pictureFrame(4, "back", back),
+                pictureFrame(3, "front", front)));
+        writeFrames(out, 100);
+        Path file = write("pictured.mp3", out.toByteArray());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals(front.length, tags.artworkLength());
+        byte[] located = new byte[tags.artworkLength()];
+        System.arraycopy(Files.readAllBytes(file), (int) tags.artworkOffset(), located, 0, located.length);
+        assertArrayEquals(front, located);
+    }
+
+    @Test
+    public void testMp3XingFrameCountAndId3v1Fallback() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] xing = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, xing, 0, 4);
+        ByteBuffer.wrap(xing, 4 + 32, 12).put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(0x1).putInt(23_000);
+        out.write(xing);
+        writeFrames(out, 20);
+        byte[] id3v1 = new byte[128];
+        System.arraycopy("TAG".getBytes(StandardCharsets.ISO_8859_1), 0, id3v1, 0, 3);
+        System.arraycopy("Old Title".getBytes(StandardCharsets.ISO_8859_1), 0, id3v1, 3, 9);
+        System.arraycopy("Old Album".getBytes(StandardCharsets.ISO_8859_1), 0, id3v1, 63, 9);
+        id3v1[127] = 8;
+        out.write(id3v1);
+        Path file = write("vbr.mp3", out.toByteArray());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("Old Title", tags.title());
+        assertEquals("Old Album", tags.album());
+        assertEquals("Jazz", tags.genre());
+        // The Xing header's frame count wins over the few frames actually present: 23000 * 1152 / 44100
+        assertEquals(601, tags.durationSeconds());
+    }
+
+    @Test
+    public void testFlacStreamInfoAndVorbisComments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("fLaC".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] streamInfo = new byte[34];
+        // 48 kHz, 2 channels, 16 bits, 480000 samples
+        long packed = (48_000L << 44) | (1L << 41) | (15L << 36) | 480_000L;
+        ByteBuffer.wrap(streamInfo, 10, 8).putLong(packed);
+        writeFlacBlock(out, 0, false, streamInfo);
+        writeFlacBlock(out, 6, false, new byte[4096]);
+        writeFlacBlock(out, 4, true, vorbisComments("TITLE=Flac Title", "artist=Flac Artist", "ALBUM=Lossless"));
+        out.write(new byte[1024]);
+        Path file = write("song.flac", out.toByteArray());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("Flac Title", tags.title());
+        assertEquals("Flac Artist", tags.artist());
+        assertEquals("Lossless", tags.album());
+        assertEquals(10, tags.durationSeconds());
+    }
+
+    @Test
+    public void testFlacPictureBlock() throws Exception {
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        byte[] mime = "image/png".getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer picture = ByteBuffer.allocate(8 + mime.length + 4 + 16 + 4 + image.length);
+        picture.putInt(3).putInt(mime.length).put(mime).putInt(0).put(new byte[16]).putInt(image.length).put(image);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("fLaC".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] streamInfo = new byte[34];
+        ByteBuffer.wrap(streamInfo, 10, 8).putLong((44_100L << 44) | (1L << 41) | (15L << 36) | 441_000L);
+        writeFlacBlock(out, 0, false, streamInfo);
+        writeFlacBlock(out, 6, false, picture.array());
+        writeFlacBlock(out, 4, true, vorbisComments("TITLE=With Cover"));
+        Path file = write("cover.flac", out.toByteArray());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("With Cover", tags.title());
+        // Marker, STREAMINFO block and PICTURE block header precede the picture fields
+        long pictureBody = 4 + 4 + 34 + 4;
+        assertEquals(pictureBody + picture.capacity() - image.length, tags.artworkOffset());
+        assertEquals(image.length, tags.artworkLength());
+    }
+
+    @Test
+    public void testWavInfoChunkAfterData() throws Exception {
+        ByteBuffer wav = ByteBuffer.allocate(12 + 24 + 8 + 176_400 + 8 + 20).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.ISO_8859_1)).putInt(wav.capacity() - 8).put("WAVE".getBytes(StandardCharsets.ISO_8859_1));
+        wav.put("fmt ".getBytes(StandardCharsets.ISO_8859_1)).putInt(16)
+                .putShort((short) 1).putShort((short) 2).putInt(44_100).putInt(176_400).putShort((short) 4).putShort((short) 16);
+        wav.put("data".getBytes(StandardCharsets.ISO_8859_1)).putInt(176_400).position(wav.position() + 176_400);
+        wav.put("LIST".getBytes(StandardCharsets.ISO_8859_1)).putInt(20)
+                .put("INFO".getBytes(StandardCharsets.ISO_8859_1))
+                .put("INAM".getBytes(StandardCharsets.ISO_8859_1)).putInt(8).put("Wav Song".getBytes(StandardCharsets.ISO_8859_1));
+        Path file = write("song.wav", wav.array());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("Wav Song", tags.title());
+        assertEquals(1, tags.durationSeconds());
+    }
+
+    @Test
+    public void testAiffCommonChunkDuration() throws Exception {
+        ByteBuffer aiff = ByteBuffer.allocate(12 + 26 + 8 + 8);
+        aiff.put("FORM".getBytes(StandardCharsets.ISO_8859_1)).putInt(aiff.capacity() - 8).put("AIFF".getBytes(StandardCharsets.ISO_8859_1));
+        // 441000 frames at 44.1 kHz; 44100 = 0xAC44 * 2^0 -> exponent 16383 + 15, mantissa 0xAC44 << 48
+        aiff.put("COMM".getBytes(StandardCharsets.ISO_8859_1)).putInt(18)
+                .putShort((short) 2).putInt(441_000).putShort((short) 16)
+                .putShort((short) (16383 + 15)).putLong(0xAC44L << 48);
+        aiff.put("NAME".getBytes(StandardCharsets.ISO_8859_1)).putInt(8).put("Aiff One".getBytes(StandardCharsets.ISO_8859_1));
+        Path file = write("song.aiff", aiff.array());
+
+        FastTagReader.Tags tags = FastTagReader.read(file);
+
+        assertNotNull(tags);
+        assertEquals("Aiff One", tags.title());
+        assertEquals(10, tags.durationSeconds());
+    }
+
+    @Test
+    public void testUnreadableFilesAreLeftToTheFallback() throws Exception {
+        assertNull(FastTagReader.read(write("empty.mp3", new byte[0])));
+        assertNull(FastTagReader.read(write("noise.mp3", new byte[4096])));
+        assertNull(FastTagReader.read(write("song.ogg", new byte[4096])));
+        // ID3v2.3 with whole-tag unsynchronisation
+        byte[] unsynchronised = id3v2(3, textFrame("TIT2", "x"));
+        unsynchronised[5] = (byte) 0x80;
+        assertNull(FastTagReader.read(write("unsync.mp3", unsynchronised)));
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content);
+        return file;
+    }
+
+    private static void writeFrames(ByteArrayOutputStream out, int frames) {
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, frame, 0, 4);
+        for (int i = 0; i < frames; i++) {
+            out.write(frame, 0, frame.length);
+        }
+    }
+
+    private static byte[] id3v2(int version, byte[]... frames) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            body.write(frame);
+        }
+        body.write(new byte[64]); // padding
+        int size = body.size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{'I', 'D', '3', (byte) version, 0, 0,
+                (byte) ((size >> 21) & 0x7F), (byte) ((size >> 14) & 0x7F), (byte) ((size >> 7) & 0x7F), (byte) (size & 0x7F)});
+        out.write(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    // ID3v2.3 text frame, UTF-16 with BOM
+    private static byte[] textFrame(String id, String text) {
+        byte[] value = text.getBytes(StandardCharsets.UTF_16);
+        ByteBuffer frame = ByteBuffer.allocate(10 + 1 + value.length);
+        frame.put(id.getBytes(StandardCharsets.ISO_8859_1)).putInt(1 + value.length).putShort((short) 0);
+        frame.put((byte) 1).put(value);
+        return frame.array();
+    }
+
+    // ID3v2.3 APIC frame: Latin-1 encoding, MIME type, picture type, description, image data
+    private static byte[] pictureFrame(int pictureType, String description, byte[] image) {
+        byte[] mime = "image/jpeg".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] text = description.getBytes(StandardCharsets.ISO_8859_1);
+        int size = 1 + mime.length + 1 + 1 + text.length + 1 + image.length;
+        ByteBuffer frame = ByteBuffer.allocate(10 + size);
+        frame.put("APIC".getBytes(StandardCharsets.ISO_8859_1)).putInt(size).putShort((short) 0);
+        frame.put((byte) 0).put(mime).put((byte) 0).put((byte) pictureType).put(text).put((byte) 0).put(image);
+        return frame.array();
+    }
+
+    private static void writeFlacBlock(ByteArrayOutputStream out, int type, boolean last, byte[] body) {
+        out.write((last ? 0x80 : 0) | type);
+        out.write((body.length >> 16) & 0xFF);
+        out.write((body.length >> 8) & 0xFF);
+        out.write(body.length & 0xFF);
+        out.write(body, 0, body.length);
+    }
+
+    private static byte[] vorbisComments(String... comments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer word = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] vendor = "test".getBytes(StandardCharsets.UTF_8);
+        out.write(word.putInt(0, vendor.length).array(), 0, 4);
+        out.write(vendor, 0, vendor.length);
+        out.write(word.putInt(0, comments.length).array(), 0, 4);
+        for (String comment : comments) {
+            byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+            out.write(word.putInt(0, bytes.length).array(), 0, 4);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,84 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LibraryScanJobServiceTest {
+
+    private LibraryScanJobService jobService;
+    private MusicLibraryService musicLibraryService;
+
+    @BeforeEach
+    public void setUp() {
+        musicLibraryService = mock(MusicLibraryService.class);
+        jobService = new LibraryScanJobService();
+        ReflectionTestUtils.setField(jobService, "musicLibraryService", musicLibraryService);
+        ReflectionTestUtils.setField(jobService, "jobHistory", 20);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    public void testScanRunsInBackgroundAndKeepsResult() throws Exception {
+        when(musicLibraryService.scanLibrary(any(LibraryScanJob.class)))
+                .thenReturn(Map.of("status", "success", "importedSongs", 3));
+
+        LibraryScanJob job = jobService.submit();
+        awaitFinished(job);
+
+        assertEquals(LibraryScanJob.State.COMPLETED, job.getState());
+        assertEquals(3, job.getResult().get("importedSongs"));
+        assertSame(job, jobService.getJob(job.getId()).orElseThrow());
+        assertTrue(jobService.getJob("unknown").isEmpty());
+    }
+
+    @Test
+    public void testCancelStopsRunningScanAndSkipsQueuedOne() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        when(musicLibraryService.scanLibrary(any(LibraryScanJob.class))).thenAnswer(invocation -> {
+            LibraryScanJob job = invocation.getArgument(0);
+            running.countDown();
+            // Stands in for the pipeline, which checks for cancellation between files
+            while (!job.isCancelRequested()) {
+                Thread.sleep(10);
+            }
+            return Map.of("status", "cancelled");
+        });
+
+        LibraryScanJob first = jobService.submit();
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        // A second submit while a scan is active joins it instead of queueing another
+        assertSame(first, jobService.submit());
+
+        jobService.cancel(first.getId());
+        awaitFinished(first);
+        assertEquals(LibraryScanJob.State.CANCELLED, first.getState());
+
+        LibraryScanJob second = jobService.submit();
+        assertNotSame(first, second);
+        jobService.cancel(second.getId());
+        awaitFinished(second);
+        assertEquals(LibraryScanJob.State.CANCELLED, second.getState());
+    }
+
+    private static void awaitFinished(LibraryScanJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished(), "Job did not finish: " + job.toMap());
+    }
+}
@@ -0,0 +1,81 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LibraryScanThrottleTest {
+
+    private LibraryScanThrottle throttle;
+    private StreamMetrics streamMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        streamMetrics = mock(StreamMetrics.class);
+        throttle = new LibraryScanThrottle();
+        ReflectionTestUtils.setField(throttle, "streamMetrics", streamMetrics);
+        ReflectionTestUtils.setField(throttle, "maxActiveStreams", 2);
+        ReflectionTestUtils.setField(throttle, "maxTtfbMillis", 500L);
+        ReflectionTestUtils.setField(throttle, "backoffInitialMillis", 100L);
+        ReflectionTestUtils.setField(throttle, "backoffMaxMillis", 200L);
+    }
+
+    @Test
+    public void testReadBudgetPacesFiles() throws Exception {
+        ReflectionTestUtils.setField(throttle, "filesPerSecond", 20.0);
+        ReflectionTestUtils.setField(throttle, "bytesPerSecond", 1_000_000L);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(throttle.acquire(10_000, () -> false));
+        }
+        // The first file starts at once; four more at 20 files/sec
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) >= 190);
+
+        // A 300 KB file reserves 0.3 s of the byte budget, which the next file waits out; timed from
+        // before the reservation, as part of that wait is spent on the 300 KB file's own file slot
+        begin = System.nanoTime();
+        assertTrue(throttle.acquire(300_000, () -> false));
+        assertTrue(throttle.acquire(1, () -> false));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) >= 290);
+        assertEquals(6L, throttle.getStats().get("throttledFiles"));
+    }
+
+    @Test
+    public void testBacksOffWhileStreamsAreBusy() throws Exception {
+        // Too many streams for two checks, then slow first bytes for one, then quiet
+        when(streamMetrics.getActiveStreams()).thenReturn(3, 3, 1, 1, 0);
+        when(streamMetrics.getRecentTtfbMillis()).thenReturn(900L, 100L);
+
+        assertTrue(throttle.acquire(1, () -> false));
+
+        verify(streamMetrics, atLeast(4)).getActiveStreams();
+        assertEquals(1L, throttle.getStats().get("backoffs"));
+        assertTrue((Long) throttle.getStats().get("backoffMillis") >= 300);
+        assertEquals(false, throttle.getStats().get("backingOff"));
+    }
+
+    @Test
+    public void testCancelledScanStopsWaiting() throws Exception {
+        when(streamMetrics.getActiveStreams()).thenReturn(10);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(150);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            cancelled.set(true);
+        });
+        canceller.start();
+
+        assertFalse(throttle.acquire(1, cancelled::get));
+        canceller.join();
+    }
+}
@@ -0,0 +1,80 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LibraryWatcherTest {
+
+    @TempDir
+    Path libraryDir;
+
+    private LibraryWatcher watcher;
+    private MusicLibraryService musicLibraryService;
+
+    @BeforeEach
+    public void setUp() {
+        musicLibraryService = mock(MusicLibraryService.class);
+        when(musicLibraryService.refreshFile(any())).thenReturn(true);
+        watcher = new LibraryWatcher();
+        ReflectionTestUtils.setField(watcher, "musicLibraryService", musicLibraryService);
+        ReflectionTestUtils.setField(watcher, "libraryPath", libraryDir.toString());
+        ReflectionTestUtils.setField(watcher, "debounceMillis", 300L);
+        ReflectionTestUtils.setField(watcher, "pollIntervalMillis", 50L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    public void testPollingCoalescesWritesAndReportsDeletes() throws Exception {
+        ReflectionTestUtils.setField(watcher, "mode", "poll");
+        watcher.start();
+        assertEquals("poll", watcher.getStats().get("mode"));
+
+        assertCoalescedAndRemoved();
+    }
+
+    @Test
+    public void testNativeWatchFollowsNewDirectories() throws Exception {
+        ReflectionTestUtils.setField(watcher, "mode", "auto");
+        watcher.start();
+        if (!"native".equals(watcher.getStats().get("mode"))) {
+            return; // no native watch service on this filesystem
+        }
+
+        Path album = Files.createDirectories(libraryDir.resolve("artist").resolve("album"));
+        Path track = album.resolve("track.mp3");
+        Files.write(track, new byte[]{1});
+        verify(musicLibraryService, timeout(5000)).refreshFile(track);
+
+        assertCoalescedAndRemoved();
+    }
+
+    private void assertCoalescedAndRemoved() throws Exception {
+        Path song = libraryDir.resolve("song.mp3");
+        for (int i = 1; i <= 5; i++) {
+            Files.write(song, new byte[i * 1024]);
+            Thread.sleep(60);
+        }
+        verify(musicLibraryService, timeout(5000)).refreshFile(song);
+        Thread.sleep(600);
+        // Several writes inside the debounce window are one import
+        verify(musicLibraryService, times(1)).refreshFile(song);
+
+        Files.delete(song);
+        verify(musicLibraryService, timeout(5000)).removeFiles(song);
+        verify(musicLibraryService, never()).scanLibrary();
+    }
+}
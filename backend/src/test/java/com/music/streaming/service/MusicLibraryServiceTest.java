@@ -3,7 +3,9 @@ package com.music.streaming.service;
 import com.music.streaming.model.Artist;
 import com.music.streaming.model.Song;
 import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.ScanLeaseRepository;
 import com.music.streaming.repository.SongRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -11,17 +13,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.File;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -36,11 +45,22 @@ public class MusicLibraryServiceTest {
     @MockBean
     private ArtistRepository artistRepository;
 
+    @Autowired
+    private ScanLeaseRepository scanLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @TempDir
     Path tempDir;
 
     private Artist testArtist;
     private List<Song> existingSongs;
+    // Songs "persisted" through the mocked repository by storeSongsInMemory, by id
+    private final Map<Long, Song> saved = new HashMap<>();
 
     @BeforeEach
     public void setUp() {
@@ -49,6 +69,24 @@ public class MusicLibraryServiceTest {
         testArtist.setName("Test Artist");
 
         existingSongs = new ArrayList<>();
+        saved.clear();
+    }
+
+    // Backs the mocked song and artist repositories with the saved map; new songs get ids after firstId
+    private void storeSongsInMemory(long firstId) {
+        AtomicLong ids = new AtomicLong(firstId);
+        when(artistRepository.findByName(any())).thenReturn(Optional.empty());
+        when(artistRepository.save(any(Artist.class))).thenReturn(testArtist);
+        when(songRepository.save(any(Song.class))).thenAnswer(invocation -> {
+            Song song = invocation.getArgument(0);
+            if (song.getId() == null) {
+                song.setId(ids.incrementAndGet());
+            }
+            saved.put(song.getId(), song);
+            return song;
+        });
+        when(songRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(saved.get((Long) invocation.getArgument(0))));
     }
 
     @Test
@@ -134,6 +172,207 @@ public class MusicLibraryServiceTest {
         assertTrue((Integer) result.get("scannedFiles") >= 1);
     }
 
+    @Test
+    public void testScanLibrary_PipelineImportsAllFilesInBatches() throws Exception {
+        Path musicDir = tempDir.resolve("library");
+        Files.createDirectories(musicDir.resolve("album"));
+        for (int i = 0; i < 25; i++) {
+            Files.createFile(musicDir.resolve("album").resolve("track-" + i + ".mp3"));
+        }
+        Files.createFile(musicDir.resolve("cover.jpg"));
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+
+        when(artistRepository.findByName(any())).thenReturn(Optional.empty());
+        when(artistRepository.save(any(Artist.class))).thenReturn(testArtist);
+        when(songRepository.save(any(Song.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = musicLibraryService.scanLibrary();
+
+        assertEquals("success", result.get("status"));
+        assertEquals(25, result.get("scannedFiles"));
+        assertEquals(25, result.get("importedSongs"));
+        assertEquals(0, result.get("skippedFiles"));
+        verify(songRepository, times(25)).save(any(Song.class));
+        // The artist is looked up once and then reused across batches
+        verify(artistRepository, times(1)).save(any(Artist.class));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> stages = (Map<String, Map<String, Object>>) result.get("stages");
+        assertEquals(25L, stages.get("walk").get("items"));
+        assertEquals(25L, stages.get("read").get("items"));
+        assertEquals(25L, stages.get("write").get("items"));
+    }
+
+    @Test
+    public void testScanLibrary_DedupIndexSkipsNormalizedDuplicates() throws Exception {
+        Path musicDir = tempDir.resolve("dedup");
+        Files.createDirectories(musicDir.resolve("a"));
+        Files.createDirectories(musicDir.resolve("b"));
+        Files.createFile(musicDir.resolve("a").resolve("Same Song.mp3"));
+        Files.createFile(musicDir.resolve("b").resolve("same-song!.mp3"));
+        Files.createFile(musicDir.resolve("b").resolve("Other Song.mp3"));
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+
+        storeSongsInMemory(0);
+        when(songRepository.findDedupRows()).thenReturn(new ArrayList<>());
+
+        var result = musicLibraryService.scanLibrary();
+
+        assertEquals(3, result.get("scannedFiles"));
+        assertEquals(2, result.get("importedSongs"));
+        verify(songRepository, times(1)).findDedupRows();
+        // Duplicates are found through the index, not by loading the artist's songs
+        verify(songRepository, never()).findByArtist(any());
+    }
+
+    @Test
+    public void testScanLibrary_RescanSkipsUnchangedAndMarksDeletedUnavailable() throws Exception {
+        Path musicDir = tempDir.resolve("incremental");
+        Files.createDirectories(musicDir);
+        for (int i = 0; i < 3; i++) {
+            Files.createFile(musicDir.resolve("song-" + i + ".mp3"));
+        }
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+
+        storeSongsInMemory(100);
+
+        var first = musicLibraryService.scanLibrary();
+        assertEquals(3, first.get("importedSongs"));
+
+        var second = musicLibraryService.scanLibrary();
+        assertEquals(0, second.get("scannedFiles"));
+        assertEquals(3, second.get("unchangedFiles"));
+
+        Path deleted = musicDir.resolve("song-1.mp3");
+        Files.delete(deleted);
+        var third = musicLibraryService.scanLibrary();
+        assertEquals(0, third.get("scannedFiles"));
+        assertEquals(1, third.get("unavailableSongs"));
+        Song missing = saved.values().stream()
+                .filter(song -> song.getFileUrl().equals("file://" + deleted.toAbsolutePath()))
+                .findFirst().orElseThrow();
+        assertFalse(missing.getAvailable());
+        assertEquals(2, saved.values().stream().filter(Song::getAvailable).count());
+    }
+
+    @Test
+    public void testScanLibrary_MovedFileKeepsItsSong() throws Exception {
+        Path musicDir = tempDir.resolve("moves");
+        Files.createDirectories(musicDir.resolve("sorted"));
+        byte[] audio = new byte[256 * 1024];
+        new java.util.Random(17).nextBytes(audio);
+        Path original = Files.write(musicDir.resolve("original.mp3"), audio);
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+
+        storeSongsInMemory(200);
+        when(songRepository.findDedupRows()).thenAnswer(invocation -> saved.values().stream()
+                .map(song -> new Object[]{song.getId(), song.getTitle(), testArtist.getId(), testArtist.getName(),
+                        song.getAudioFingerprint()})
+                .toList());
+
+        assertEquals(1, musicLibraryService.scanLibrary().get("importedSongs"));
+        Song song = saved.values().iterator().next();
+        assertNotNull(song.getAudioFingerprint());
+
+        Path moved = Files.move(original, musicDir.resolve("sorted").resolve("renamed.mp3"));
+        var rescan = musicLibraryService.scanLibrary();
+
+        assertEquals(0, rescan.get("unavailableSongs"));
+        assertEquals(1, saved.size());
+        assertEquals("file://" + moved.toAbsolutePath(), song.getFileUrl());
+        assertTrue(song.getAvailable());
+    }
+
+    @Test
+    public void testScanLibrary_MovedFileWithSameContentHashKeepsItsSong() throws Exception {
+        Path musicDir = tempDir.resolve("hashed-moves");
+        Files.createDirectories(musicDir.resolve("sorted"));
+        byte[] audio = new byte[64 * 1024];
+        new java.util.Random(23).nextBytes(audio);
+        Path original = Files.write(musicDir.resolve("original.mp3"), audio);
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+        // Only the content hash can recognise the move
+        ReflectionTestUtils.setField(musicLibraryService, "contentHashEnabled", true);
+        ReflectionTestUtils.setField(musicLibraryService, "fingerprintEnabled", false);
+        storeSongsInMemory(300);
+
+        try {
+            assertEquals(1, musicLibraryService.scanLibrary().get("importedSongs"));
+            Song song = saved.values().iterator().next();
+
+            Path moved = Files.move(original, musicDir.resolve("sorted").resolve("renamed.mp3"));
+            var rescan = musicLibraryService.scanLibrary();
+
+            assertEquals(0, rescan.get("unavailableSongs"));
+            assertEquals(1, saved.size());
+            assertEquals("file://" + moved.toAbsolutePath(), song.getFileUrl());
+            assertTrue(song.getAvailable());
+        } finally {
+            ReflectionTestUtils.setField(musicLibraryService, "contentHashEnabled", false);
+            ReflectionTestUtils.setField(musicLibraryService, "fingerprintEnabled", true);
+        }
+    }
+
+    @Test
+    public void testScanLibrary_SkipsShardsLeasedByAnotherNode() throws Exception {
+        Path musicDir = tempDir.resolve("shared");
+        Files.createDirectories(musicDir.resolve("mine"));
+        Files.createDirectories(musicDir.resolve("theirs"));
+        Files.createFile(musicDir.resolve("mine").resolve("one.mp3"));
+        Files.createFile(musicDir.resolve("theirs").resolve("two.mp3"));
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+
+        when(artistRepository.findByName(any())).thenReturn(Optional.empty());
+        when(artistRepository.save(any(Artist.class))).thenReturn(testArtist);
+        when(songRepository.save(any(Song.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Another replica is scanning the "theirs" directory
+        ScanLeaseService otherNode = new ScanLeaseService();
+        ReflectionTestUtils.setField(otherNode, "enabled", true);
+        ReflectionTestUtils.setField(otherNode, "ttlMillis", 120_000L);
+        ReflectionTestUtils.setField(otherNode, "configuredNodeId", "other-node");
+        ReflectionTestUtils.setField(otherNode, "leaseRepository", scanLeaseRepository);
+        ReflectionTestUtils.setField(otherNode, "transactionManager", transactionManager);
+        otherNode.init();
+        assertTrue(otherNode.tryAcquire("library-shard:theirs"));
+
+        try {
+            var result = musicLibraryService.scanLibrary();
+
+            assertEquals(1, result.get("scannedFiles"));
+            assertEquals(1L, result.get("shards"));
+            assertEquals(1L, result.get("skippedShards"));
+            assertEquals(0L, result.get("lostShards"));
+            verify(songRepository, times(1)).save(any(Song.class));
+        } finally {
+            otherNode.release("library-shard:theirs");
+        }
+    }
+
+    @Test
+    public void testScanLibrary_CountsItemsPerStage() throws Exception {
+        Path musicDir = tempDir.resolve("metered");
+        Files.createDirectories(musicDir);
+        Files.createFile(musicDir.resolve("one.mp3"));
+        Files.createFile(musicDir.resolve("two.mp3"));
+        ReflectionTestUtils.setField(musicLibraryService, "libraryPath", musicDir.toString());
+        storeSongsInMemory(0);
+        double walked = stageCount("walk");
+        double read = stageCount("read");
+        double written = stageCount("write");
+
+        var result = musicLibraryService.scanLibrary();
+
+        assertEquals(2, result.get("importedSongs"));
+        assertEquals(walked + 2, stageCount("walk"));
+        assertEquals(read + 2, stageCount("read"));
+        assertEquals(written + 2, stageCount("write"));
+    }
+
+    private double stageCount(String stage) {
+        return meterRegistry.counter("music.library.scan.items", "stage", stage).count();
+    }
+
     @Test
     public void testGetLibraryStats() {
         when(songRepository.count()).thenReturn(10L);
@@ -0,0 +1,114 @@
+package com.music.streaming.service;
+
+import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.ScanLeaseRepository;
+import com.music.streaming.repository.SongRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ScanLeaseServiceTest {
+
+    @Autowired
+    private ScanLeaseService leaseService;
+
+    @Autowired
+    private ScanLeaseRepository leaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Same mocks as MusicLibraryServiceTest, so the application context is shared
+    @MockBean
+    private SongRepository songRepository;
+
+    @MockBean
+    private ArtistRepository artistRepository;
+
+    @Test
+    public void testLeaseIsExclusiveUntilReleasedOrExpired() {
+        ScanLeaseService otherNode = otherNode("other-node", 120_000);
+
+        assertTrue(leaseService.tryAcquire("test-lease"));
+        // Claiming again is a renewal for the holder and a refusal for anyone else
+        assertTrue(leaseService.tryAcquire("test-lease"));
+        assertFalse(otherNode.tryAcquire("test-lease"));
+
+        leaseService.release("test-lease");
+        assertTrue(otherNode.tryAcquire("test-lease"));
+        assertFalse(leaseService.tryAcquire("test-lease"));
+
+        // A holder that stops renewing loses the lease once it expires
+        ScanLeaseService stalledNode = otherNode("stalled-node", -1_000);
+        assertTrue(stalledNode.tryAcquire("expired-lease"));
+        assertTrue(leaseService.tryAcquire("expired-lease"));
+        assertEquals(leaseService.getNodeId(), leaseRepository.findById("expired-lease").orElseThrow().getOwner());
+        leaseService.release("expired-lease");
+        otherNode.release("test-lease");
+    }
+
+    @Test
+    public void testRenewalDropsLeasesTakenOverByAnotherNode() {
+        ScanLeaseService stalledNode = otherNode("stalled-node", -1_000);
+        assertTrue(stalledNode.tryAcquire("kept-lease"));
+        assertTrue(stalledNode.tryAcquire("lost-lease"));
+
+        // Expired while the stalled node was not renewing, and claimed by this one
+        assertTrue(leaseService.tryAcquire("lost-lease"));
+        stalledNode.renewHeld();
+
+        assertTrue(stalledNode.holds("kept-lease"));
+        assertFalse(stalledNode.holds("lost-lease"));
+        assertTrue(leaseService.holds("lost-lease"));
+        // Releasing a lost lease leaves the new holder's claim alone
+        stalledNode.release("lost-lease");
+        assertEquals(leaseService.getNodeId(), leaseRepository.findById("lost-lease").orElseThrow().getOwner());
+        stalledNode.release("kept-lease");
+        leaseService.release("lost-lease");
+    }
+
+    @Test
+    public void testLeaseIsRenewedOnItsOwnThread() throws Exception {
+        ScanLeaseService scanningNode = otherNode("scanning-node", 400);
+        ReflectionTestUtils.setField(scanningNode, "renewMillis", 50L);
+        scanningNode.init();
+        try {
+            assertTrue(scanningNode.tryAcquire("renewed-lease"));
+
+            // Several TTLs pass without anyone calling renewHeld() or any Spring scheduler involved
+            Thread.sleep(1_200);
+
+            assertFalse(leaseService.tryAcquire("renewed-lease"));
+            assertTrue(scanningNode.holds("renewed-lease"));
+        } finally {
+            scanningNode.shutdown();
+            scanningNode.release("renewed-lease");
+        }
+    }
+
+    @Test
+    public void testWriteLockIsTakenInsideTheCallersTransaction() {
+        Boolean locked = new TransactionTemplate(transactionManager).execute(status -> leaseService.lockWrites());
+
+        assertEquals(Boolean.TRUE, locked);
+        assertTrue(leaseRepository.existsById(ScanLeaseService.WRITE_LOCK));
+    }
+
+    private ScanLeaseService otherNode(String nodeId, long ttlMillis) {
+        ScanLeaseService node = new ScanLeaseService();
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "ttlMillis", ttlMillis);
+        ReflectionTestUtils.setField(node, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(node, "leaseRepository", leaseRepository);
+        ReflectionTestUtils.setField(node, "transactionManager", transactionManager);
+        node.init();
+        return node;
+    }
+}
@@ -0,0 +1,183 @@
+package com.music.streaming.service;
+
+import com.music.streaming.dto.SuggestionDTO;
+import com.music.streaming.model.Artist;
+import com.music.streaming.model.Song;
+import com.music.streaming.repository.ArtistRepository;
+import com.music.streaming.repository.SongRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SearchIndexTest {
+
+    private SearchIndex searchIndex;
+
+    @BeforeEach
+    public void setUp() {
+        SongRepository songRepository = mock(SongRepository.class);
+        ArtistRepository artistRepository = mock(ArtistRepository.class);
+        // id, title, album, play count, artist id, artist name
+        when(songRepository.findSearchRows()).thenReturn(List.of(
+                new Object[]{1L, "Yellow", "Parachutes", 500, 10L, "Coldplay"},
+                new Object[]{2L, "Fix You", "X&Y", 900, 10L, "Coldplay"},
+                new Object[]{3L, "Mellow Yellow", "Sunshine Superman", 20, 11L, "Donovan"},
+                new Object[]{4L, "Hello", "25", 1000, 12L, "Adele"},
+                new Object[]{5L, "Halo", "I Am... Sasha Fierce", 300, 13L, "Beyoncé"},
+                new Object[]{6L, "Yellow Submarine", "Revolver", 700, 14L, "The Beatles"},
+                new Object[]{7L, "Radioactive", "Night Visions", 400, 15L, "Imagine Dragons"}));
+        // id, name, follower count
+        when(artistRepository.findSearchRows()).thenReturn(List.of(
+                new Object[]{10L, "Coldplay", 100},
+                new Object[]{11L, "Donovan", 5},
+                new Object[]{12L, "Adele", 80},
+                new Object[]{13L, "Beyoncé", 90},
+                new Object[]{14L, "The Beatles", 120},
+                new Object[]{15L, "Imagine Dragons", 60}));
+
+        searchIndex = new SearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "songRepository", songRepository);
+        ReflectionTestUtils.setField(searchIndex, "artistRepository", artistRepository);
+        ReflectionTestUtils.setField(searchIndex, "enabled", true);
+        ReflectionTestUtils.setField(searchIndex, "defaultLimit", 50);
+        ReflectionTestUtils.setField(searchIndex, "maxLimit", 200);
+        ReflectionTestUtils.setField(searchIndex, "fuzzyEnabled", true);
+        ReflectionTestUtils.setField(searchIndex, "suggestDefaultLimit", 10);
+        ReflectionTestUtils.setField(searchIndex, "suggestMaxLimit", 20);
+        searchIndex.rebuild();
+    }
+
+    @Test
+    public void testRanksExactTitleOverPartialAndBreaksTiesByPlays() {
+        // Exact title first; then "Yellow" as a word in two titles, the more played one first
+        assertEquals(List.of(1L, 6L, 3L), searchIndex.searchSongs("yellow", 10));
+        assertEquals(List.of(1L), searchIndex.searchSongs("yellow", 1));
+    }
+
+    @Test
+    public void testMatchesPrefixesSubstringsAndEveryWord() {
+        assertEquals(List.of(1L, 2L), searchIndex.searchSongs("coldpl", 10).stream().sorted().toList());
+        // Substring inside a word, like the old LIKE query
+        assertTrue(searchIndex.searchSongs("ellow", 10).containsAll(List.of(1L, 3L, 6L)));
+        // Both words must match, in any field
+        assertEquals(List.of(6L), searchIndex.searchSongs("beatles yellow", 10));
+        // Accents and punctuation are ignored
+        assertEquals(List.of(5L), searchIndex.searchSongs("BEYONCE!", 10));
+        assertEquals(List.of(4L), searchIndex.searchSongs("he", 10));
+        assertTrue(searchIndex.searchSongs("zzz", 10).isEmpty());
+        assertTrue(searchIndex.searchSongs("  ", 10).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        Artist artist = new Artist();
+        artist.setId(20L);
+        artist.setName("Yellowcard");
+        Song song = new Song();
+        song.setId(8L);
+        song.setTitle("Ocean Avenue");
+        song.setAlbum("Ocean Avenue");
+        song.setArtist(artist);
+        song.setPlayCount(0);
+
+        searchIndex.indexSong(song);
+
+        assertEquals(List.of(8L), searchIndex.searchSongs("ocean", 10));
+        assertEquals(List.of(20L), searchIndex.searchArtists("yellowc", 10));
+
+        song.setTitle("Only One");
+        searchIndex.indexSong(song);
+        assertTrue(searchIndex.searchSongs("ocean", 10).contains(8L));
+        assertEquals(List.of(8L), searchIndex.searchSongs("only one", 10));
+
+        searchIndex.removeSong(8L);
+        assertTrue(searchIndex.searchSongs("only", 10).isEmpty());
+    }
+
+    @Test
+    public void testWritesDuringRebuildSurviveTheSwap() {
+        Artist artist = new Artist();
+        artist.setId(20L);
+        artist.setName("Yellowcard");
+        Song song = new Song();
+        song.setId(8L);
+        song.setTitle("Ocean Avenue");
+        song.setAlbum("Ocean Avenue");
+        song.setArtist(artist);
+        song.setPlayCount(0);
+
+        // A scan imports song 8 and song 2 is deleted after the snapshot was read, before the swap
+        SongRepository songRepository = (SongRepository) ReflectionTestUtils.getField(searchIndex, "songRepository");
+        List<Object[]> snapshot = songRepository.findSearchRows();
+        when(songRepository.findSearchRows()).thenAnswer(invocation -> {
+            searchIndex.indexSong(song);
+            searchIndex.removeSong(2L);
+            return snapshot;
+        });
+
+        searchIndex.rebuild();
+
+        assertEquals(List.of(8L), searchIndex.searchSongs("ocean", 10));
+        assertEquals(List.of(20L), searchIndex.searchArtists("yellowc", 10));
+        assertTrue(searchIndex.searchSongs("fix you", 10).isEmpty());
+
+        // Only writes made during a rebuild are replayed
+        searchIndex.removeSong(8L);
+        when(songRepository.findSearchRows()).thenReturn(snapshot);
+        searchIndex.rebuild();
+        assertTrue(searchIndex.searchSongs("ocean", 10).isEmpty());
+        assertEquals(List.of(2L), searchIndex.searchSongs("fix you", 10));
+    }
+
+    @Test
+    public void testArtistSearchAndDefaultLimit() {
+        assertEquals(List.of(14L), searchIndex.searchArtists("beat", 10));
+        // Both names have a word starting with "b"; the name starting with it ranks first
+        assertEquals(List.of(13L, 14L), searchIndex.searchArtists("b", 10));
+        assertEquals(50, searchIndex.resultLimit(null));
+    }
+
+    @Test
+    public void testFuzzyModeToleratesTypos() {
+        assertTrue(searchIndex.searchArtists("beatels", 10).isEmpty());
+        assertEquals(List.of(14L), searchIndex.searchArtists("beatels", 10, true));
+        assertEquals(List.of(15L), searchIndex.searchArtists("imagin dragosn", 10, true));
+        assertEquals(List.of(7L), searchIndex.searchSongs("radiaoctive dragons", 10, true));
+        // One edit from both "hello" and "halo"; the more played song first
+        assertEquals(List.of(4L, 5L), searchIndex.searchSongs("hallo", 10, true));
+        // An exact word outranks a correction
+        assertEquals(5L, searchIndex.searchSongs("halo", 10, true).get(0));
+        // Short words are never corrected
+        assertTrue(searchIndex.searchSongs("fax", 10, true).isEmpty());
+    }
+
+    @Test
+    public void testSuggestCompletesSongsArtistsAndAlbums() {
+        List<SuggestionDTO> suggestions = searchIndex.suggest("Yel", 10);
+
+        assertEquals(List.of("Yellow Submarine", "Yellow", "Mellow Yellow"),
+                suggestions.stream().map(SuggestionDTO::getText).toList());
+        assertEquals(new SuggestionDTO("song", "Yellow Submarine", "The Beatles", 6L), suggestions.get(0));
+
+        // Artists weigh their followers plus their songs' plays
+        assertEquals(new SuggestionDTO("artist", "Coldplay", null, 10L), searchIndex.suggest("cold", 10).get(0));
+        assertEquals(new SuggestionDTO("album", "Night Visions", "Imagine Dragons", null),
+                searchIndex.suggest("visi", 10).get(0));
+        assertEquals(1, searchIndex.suggest("ye", 1).size());
+    }
+
+    @Test
+    public void testSuggestionsFollowChangesOnRefresh() {
+        searchIndex.removeSong(4L);
+        assertEquals("Hello", searchIndex.suggest("hel", 10).get(0).getText());
+
+        searchIndex.refreshCompletions();
+
+        assertTrue(searchIndex.suggest("hel", 10).isEmpty());
+    }
+}
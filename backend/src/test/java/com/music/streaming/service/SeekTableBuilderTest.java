@@ -0,0 +1,93 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeekTableBuilderTest {
+
+    // MPEG 1 layer III, 128 kbps, 44.1 kHz, no padding: 417 bytes and 1152 samples per frame
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int FRAME_LENGTH = 417;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testMp3FrameScanMapsTimeToFrameBoundaries() throws Exception {
+        byte[] id3 = {'I', 'D', '3', 4, 0, 0, 0, 0, 0, 20};
+        Path file = writeMp3(id3, 200);
+
+        SeekTable table = SeekTableBuilder.build(file);
+
+        assertNotNull(table);
+        int audioStart = id3.length + 20;
+        assertEquals(audioStart, table.offsetAt(0));
+        // 1.0s falls inside frame 38 (each frame lasts 1152 / 44100 s)
+        assertEquals(audioStart + 38L * FRAME_LENGTH, table.offsetAt(1.0));
+        assertEquals(audioStart + 57L * FRAME_LENGTH, table.offsetAt(1.5));
+        assertEquals(0, (table.offsetAt(2.0) - audioStart) % FRAME_LENGTH, "Offsets land on frame boundaries");
+        // Seeking past the end clamps to the last entry
+        assertTrue(table.offsetAt(3600) < Files.size(file));
+    }
+
+    @Test
+    public void testXingFrameIsNotCountedAsAudio() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] xingFrame = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, xingFrame, 0, 4);
+        System.arraycopy("Xing".getBytes(), 0, xingFrame, 4 + 32, 4);
+        out.write(xingFrame);
+        Path file = writeMp3(out.toByteArray(), 100);
+
+        SeekTable table = SeekTableBuilder.build(file);
+
+        assertNotNull(table);
+        assertEquals(FRAME_LENGTH, table.offsetAt(0));
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        SeekTable table = new SeekTable(500, new long[]{100, 8100, 16350, 16350, 1_000_000_000_000L});
+
+        SeekTable decoded = SeekTable.decode(table.encode());
+
+        assertEquals(500, decoded.getIntervalMillis());
+        assertEquals(5, decoded.size());
+        assertEquals(8100, decoded.offsetAt(0.5));
+        assertEquals(16350, decoded.offsetAt(1.2));
+        assertEquals(1_000_000_000_000L, decoded.offsetAt(2.0));
+    }
+
+    @Test
+    public void testUnsupportedOrEmptyFilesHaveNoTable() throws Exception {
+        Path wav = tempDir.resolve("song.wav");
+        Files.write(wav, new byte[1024]);
+        Path notMp3 = tempDir.resolve("noise.mp3");
+        Files.write(notMp3, new byte[4096]);
+
+        assertNull(SeekTableBuilder.build(wav));
+        assertNull(SeekTableBuilder.build(notMp3));
+    }
+
+    private Path writeMp3(byte[] prefix, int frames) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(prefix);
+        if (prefix.length > 0 && prefix[0] == 'I') {
+            out.write(new byte[20]);
+        }
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(FRAME_HEADER, 0, frame, 0, 4);
+        for (int i = 0; i < frames; i++) {
+            out.write(frame);
+        }
+        Path file = tempDir.resolve("song.mp3");
+        Files.write(file, out.toByteArray());
+        return file;
+    }
+}
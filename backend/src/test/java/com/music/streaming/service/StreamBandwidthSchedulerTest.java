@@ -0,0 +1,78 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamBandwidthSchedulerTest {
+
+    private StreamBandwidthScheduler scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new StreamBandwidthScheduler();
+        ReflectionTestUtils.setField(scheduler, "globalBytesPerSecond", 1_000_000L);
+        ReflectionTestUtils.setField(scheduler, "bitrateMultiplier", 4.0);
+        ReflectionTestUtils.setField(scheduler, "minBytesPerSecond", 10_000L);
+        ReflectionTestUtils.setField(scheduler, "burstSeconds", 1.0);
+    }
+
+    @Test
+    public void testPerStreamCapFollowsBitrate() {
+        try (StreamBandwidthScheduler.StreamPermit permit = scheduler.open(40_000)) {
+            assertEquals(160_000, permit.getRate());
+        }
+    }
+
+    @Test
+    public void testLowBitrateUsesFloor() {
+        try (StreamBandwidthScheduler.StreamPermit permit = scheduler.open(1_000)) {
+            assertEquals(10_000, permit.getRate());
+        }
+    }
+
+    @Test
+    public void testUnknownBitrateIsOnlyBoundByFairShare() {
+        try (StreamBandwidthScheduler.StreamPermit permit = scheduler.open(0)) {
+            assertEquals(1_000_000, permit.getRate());
+        }
+        ReflectionTestUtils.setField(scheduler, "globalBytesPerSecond", 0L);
+        try (StreamBandwidthScheduler.StreamPermit permit = scheduler.open(0)) {
+            assertTrue(permit.isUnlimited());
+        }
+    }
+
+    @Test
+    public void testMaxMinFairShare() {
+        // Caps: 100k, 800k, 800k against a 1M budget -> the small stream keeps its cap, the rest split 900k
+        StreamBandwidthScheduler.StreamPermit small = scheduler.open(25_000);
+        StreamBandwidthScheduler.StreamPermit large1 = scheduler.open(200_000);
+        StreamBandwidthScheduler.StreamPermit large2 = scheduler.open(200_000);
+
+        assertEquals(100_000, small.getRate());
+        assertEquals(450_000, large1.getRate());
+        assertEquals(450_000, large2.getRate());
+        assertEquals(3, scheduler.getActiveStreams());
+
+        large2.close();
+        assertEquals(800_000, large1.getRate());
+        small.close();
+        large1.close();
+        assertEquals(0, scheduler.getActiveStreams());
+    }
+
+    @Test
+    public void testAcquireWaitsOnceBurstIsSpent() throws Exception {
+        try (StreamBandwidthScheduler.StreamPermit permit = scheduler.open(2_500)) {
+            // 10k/s with a one second burst: the first 10k are free, the next 5k take about half a second
+            permit.acquire(10_000);
+            long begin = System.nanoTime();
+            permit.acquire(5_000);
+            long elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+            assertTrue(elapsedMillis >= 400, "waited " + elapsedMillis + "ms");
+            assertEquals(5_000, scheduler.getThrottledBytes());
+        }
+    }
+}
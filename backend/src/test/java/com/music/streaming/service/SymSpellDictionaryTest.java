@@ -0,0 +1,55 @@
+package com.music.streaming.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SymSpellDictionaryTest {
+
+    @Test
+    public void testDistanceCountsAdjacentSwapsAsOneEdit() {
+        assertEquals(0, SymSpellDictionary.distance("beatles", "beatles", 2));
+        assertEquals(1, SymSpellDictionary.distance("beatels", "beatles", 2));
+        assertEquals(1, SymSpellDictionary.distance("imagin", "imagine", 2));
+        assertEquals(2, SymSpellDictionary.distance("kitten", "sittin", 2));
+        // Stops early once the bound is exceeded
+        assertEquals(3, SymSpellDictionary.distance("abcdef", "uvwxyz", 2));
+    }
+
+    @Test
+    public void testLookupFindsWordsWithinDistanceClosestFirst() {
+        SymSpellDictionary dictionary = new SymSpellDictionary();
+        for (String word : List.of("dragons", "dragon", "wagons", "imagine", "imagination")) {
+            dictionary.add(word);
+        }
+        dictionary.add("dragon");
+
+        List<SymSpellDictionary.Suggestion> suggestions = dictionary.lookup("dragosn", 2, 10);
+
+        // Both one edit away (a swap, a deletion); the word in more documents first
+        assertEquals("dragon", suggestions.get(0).word());
+        assertEquals(2, suggestions.get(0).count());
+        assertEquals("dragons", suggestions.get(1).word());
+        assertEquals(1, suggestions.get(1).distance());
+        assertTrue(suggestions.stream().noneMatch(s -> s.word().equals("imagination")));
+        // Differences past the indexed prefix are still found
+        assertEquals("imagination", dictionary.lookup("imaginatoin", 2, 1).get(0).word());
+    }
+
+    @Test
+    public void testRemovedWordsAreNoLongerSuggested() {
+        SymSpellDictionary dictionary = new SymSpellDictionary();
+        dictionary.add("yellow");
+        dictionary.add("yellow");
+
+        dictionary.remove("yellow");
+        assertTrue(dictionary.contains("yellow"));
+        dictionary.remove("yellow");
+
+        assertFalse(dictionary.contains("yellow"));
+        assertTrue(dictionary.lookup("yelow", 1, 10).isEmpty());
+        assertEquals(0, dictionary.deleteCount());
+    }
+}
@@ -1,14 +1,53 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect } from 'react';
+import songService from '../services/songService';
 import './SearchBar.css';
 
+// Wait for a pause in typing before asking for completions
+const SUGGEST_DELAY_MS = 150;
+
 const SearchBar = ({ onSearch }) => {
   const [keyword, setKeyword] = useState('');
+  const [suggestions, setSuggestions] = useState([]);
+  // Closed after a search, so the completed text does not reopen the list
+  const [open, setOpen] = useState(false);
+
+  useEffect(() => {
+    const prefix = keyword.trim();
+    if (!open || !prefix) {
+      setSuggestions([]);
+      return undefined;
+    }
+    let cancelled = false;
+    const timer = setTimeout(() => {
+      songService.suggest(prefix)
+        .then((res) => {
+          if (!cancelled) {
+            setSuggestions(res.data);
+          }
+        })
+        .catch(() => setSuggestions([]));
+    }, SUGGEST_DELAY_MS);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [keyword, open]);
+
+  const search = (text) => {
+    setOpen(false);
+    if (text.trim()) {
+      onSearch(text);
+    }
+  };
 
   const handleSubmit = (e) => {
     e.preventDefault();
-    if (keyword.trim()) {
-      onSearch(keyword);
-    }
+    search(keyword);
+  };
+
+  const handleSelect = (suggestion) => {
+    setKeyword(suggestion.text);
+    search(suggestion.text);
   };
 
   return (
@@ -18,10 +57,29 @@ const SearchBar = ({ onSearch }) => {
           type="text"
           placeholder="Search for songs, artists, or albums..."
           value={keyword}
-          onChange={(e) => setKeyword(e.target.value)}
+          onChange={(e) => {
+            setKeyword(e.target.value);
+            setOpen(true);
+          }}
+          onBlur={() => setOpen(false)}
         />
         <button type="submit">🔍</button>
       </form>
+      {open && suggestions.length > 0 && (
+        <ul className="search-suggestions">
+          {suggestions.map((suggestion) => (
+            <li
+              key={`${suggestion.type}-${suggestion.id}-${suggestion.text}-${suggestion.artistName}`}
+              onMouseDown={() => handleSelect(suggestion)}
+            >
+              <span className="suggestion-text">{suggestion.text}</span>
+              <span className="suggestion-meta">
+                {suggestion.type}{suggestion.artistName ? ` · ${suggestion.artistName}` : ''}
+              </span>
+            </li>
+          ))}
+        </ul>
+      )}
     </div>
   );
 };
@@ -7,12 +7,15 @@ import './Admin.css';
 
 const Admin = () => {
   const [songs, setSongs] = useState([]);
+  // Id to continue the song list after, while there are more pages
+  const [nextCursor, setNextCursor] = useState(null);
   const [artists, setArtists] = useState([]);
   const [stats, setStats] = useState({});
   const [loading, setLoading] = useState(false);
   const [showAddModal, setShowAddModal] = useState(false);
   const [editingSong, setEditingSong] = useState(null);
   const [scanResult, setScanResult] = useState(null);
+  const [scanProgress, setScanProgress] = useState(null);
   const navigate = useNavigate();
 
   const [formData, setFormData] = useState({
@@ -39,13 +42,14 @@ const Admin = () => {
   const loadData = async () => {
     try {
       setLoading(true);
-      const [songsRes, artistsRes, statsRes] = await Promise.all([
-        adminService.getAllSongs(),
+      const [songsRes, allArtists, statsRes] = await Promise.all([
+        adminService.getSongs(),
         artistService.getAllArtists(),
         adminService.getLibraryStats()
       ]);
       setSongs(songsRes.data);
-      setArtists(artistsRes.data);
+      setNextCursor(songsRes.headers['x-next-cursor'] || null);
+      setArtists(allArtists);
       setStats(statsRes.data);
     } catch (error) {
       console.error('Error loading data:', error);
@@ -58,21 +62,48 @@ const Admin = () => {
     }
   };
 
+  const handleLoadMoreSongs = async () => {
+    try {
+      setLoading(true);
+      const res = await adminService.getSongs(nextCursor);
+      setSongs((loaded) => [...loaded, ...res.data]);
+      setNextCursor(res.headers['x-next-cursor'] || null);
+    } catch (error) {
+      console.error('Error loading songs:', error);
+    } finally {
+      setLoading(false);
+    }
+  };
+
   const handleScanLibrary = async () => {
     try {
       setLoading(true);
       setScanResult(null);
-      const response = await adminService.scanLibrary();
-      setScanResult(response.data);
+      // The scan runs as a background job; poll it until it finishes
+      let job = (await adminService.scanLibrary()).data;
+      while (job.state === 'QUEUED' || job.state === 'RUNNING') {
+        setScanProgress(job);
+        await new Promise((resolve) => setTimeout(resolve, 1000));
+        job = (await adminService.getScanJob(job.id)).data;
+      }
+      setScanProgress(null);
+      setScanResult(job.result || { status: 'error', message: 'Scan was cancelled' });
       loadData(); // Reload data after scan
     } catch (error) {
       console.error('Error scanning library:', error);
       alert('Failed to scan library: ' + (error.response?.data?.message || error.message));
     } finally {
+      setScanProgress(null);
       setLoading(false);
     }
   };
 
+  const handleCancelScan = async () => {
+    if (scanProgress) {
+      await adminService.cancelScanJob(scanProgress.id);
+    }
+  };
+
   const handleInputChange = (e) => {
     setFormData({
       ...formData,
@@ -213,6 +244,20 @@ const Admin = () => {
           </button>
         </div>
         
+        {scanProgress && (
+          <div className="scan-result">
+            <h3>Scanning...</h3>
+            <p>Processed Files: {scanProgress.processedFiles ?? 0}
+              {scanProgress.discoveryComplete ? ` of ${scanProgress.discoveredFiles}` : ''}</p>
+            <p>Imported Songs: {scanProgress.importedSongs ?? 0}</p>
+            {scanProgress.filesPerSecond > 0 && <p>Files/sec: {scanProgress.filesPerSecond}</p>}
+            {scanProgress.etaSeconds != null && <p>Time Remaining: {scanProgress.etaSeconds}s</p>}
+            <button onClick={handleCancelScan} className="btn-secondary" disabled={scanProgress.cancelRequested}>
+              Cancel Scan
+            </button>
+          </div>
+        )}
+
         {scanResult && (
           <div className={`scan-result ${scanResult.status === 'success' ? 'success' : 'error'}`}>
             <h3>Scan Result</h3>
@@ -279,6 +324,11 @@ const Admin = () => {
             </tbody>
           </table>
         </div>
+        {nextCursor && (
+          <button onClick={handleLoadMoreSongs} className="btn-secondary" disabled={loading}>
+            Load more
+          </button>
+        )}
       </div>
 
       {showAddModal && (
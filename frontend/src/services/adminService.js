@@ -1,9 +1,9 @@
 import api from './api';
 
 const adminService = {
-  // Get all songs
-  getAllSongs: () => {
-    return api.get('/admin/songs');
+  // Get a page of songs; pass the previous page's X-Next-Cursor as `after`
+  getSongs: (after) => {
+    return api.get('/admin/songs', { params: { after } });
   },
 
   // Create a new song
@@ -21,11 +21,21 @@ const adminService = {
     return api.delete(`/admin/songs/${id}`);
   },
 
-  // Scan music library
+  // Start a background library scan; resolves to the scan job
   scanLibrary: () => {
     return api.post('/admin/library/scan');
   },
 
+  // Get the progress of a scan job
+  getScanJob: (jobId) => {
+    return api.get(`/admin/library/scan/jobs/${jobId}`);
+  },
+
+  // Cancel a scan job
+  cancelScanJob: (jobId) => {
+    return api.post(`/admin/library/scan/jobs/${jobId}/cancel`);
+  },
+
   // Get library statistics
   getLibraryStats: () => {
     return api.get('/admin/library/stats');
@@ -22,4 +22,16 @@ api.interceptors.request.use(
   }
 );
 
+// Follows the X-Next-Cursor header of a paged list endpoint until the last page
+export const getAllPages = async (url, params = {}) => {
+  const items = [];
+  let after;
+  do {
+    const res = await api.get(url, { params: { ...params, after } });
+    items.push(...res.data);
+    after = res.headers['x-next-cursor'];
+  } while (after);
+  return items;
+};
+
 export default api;
@@ -1,7 +1,8 @@
-import api from './api';
+import api, { getAllPages } from './api';
 
 const artistService = {
-  getAllArtists: () => api.get('/artists'),
+  // Every page of artists, as one array
+  getAllArtists: () => getAllPages('/artists'),
   getArtistById: (id) => api.get(`/artists/${id}`),
   searchArtists: (keyword) => api.get(`/artists/search?keyword=${keyword}`),
   getTopArtists: () => api.get('/artists/top'),
@@ -1,9 +1,10 @@
 import api from './api';
 
 const songService = {
-  getAllSongs: () => api.get('/songs'),
+  getAllSongs: (after) => api.get('/songs', { params: { after } }),
   getSongById: (id) => api.get(`/songs/${id}`),
   searchSongs: (keyword) => api.get(`/songs/search?keyword=${keyword}`),
+  suggest: (prefix) => api.get(`/search/suggest?prefix=${encodeURIComponent(prefix)}`),
   getTopSongs: () => api.get('/songs/top'),
   getSongsByArtist: (artistId) => api.get(`/songs/artist/${artistId}`),
   getSongsByGenre: (genre) => api.get(`/songs/genre/${genre}`),